@@ -0,0 +1,42 @@
+package com.example.demo.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа для запуска бенчмарков.
+ *
+ * Принимает обычные аргументы командной строки JMH. Кроме пропускной
+ * способности и перцентилей задержки (режимы Throughput и SampleTime)
+ * подключается профилировщик GC, который выводит скорость выделения
+ * памяти ({@code gc.alloc.rate} и {@code gc.alloc.rate.norm}).
+ * Результаты сохраняются в {@code target/jmh-result.json}
+ * для сравнения между релизами.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Запускает бенчмарки.
+     *
+     * @param args аргументы JMH, например {@code -p visits=1000000 ListBenchmark}
+     * @throws Exception при ошибке запуска
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (cli.getIncludes().isEmpty()) {
+            builder.include(BenchmarkRunner.class.getPackageName() + "\\..*Benchmark");
+        }
+        Options options = builder
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
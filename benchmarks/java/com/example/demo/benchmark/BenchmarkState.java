@@ -0,0 +1,101 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.FitnessClubApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Общее состояние бенчмарков: запущенное приложение
+ * со встроенной базой данных, заполненной заданными объёмами.
+ *
+ * Объёмы задаются параметрами JMH, например
+ * {@code -p clients=10000 -p purchases=50000 -p visits=1000000}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    /**
+     * Количество клиентов.
+     */
+    @Param("1000")
+    public int clients;
+
+    /**
+     * Количество покупок абонементов.
+     */
+    @Param("5000")
+    public int purchases;
+
+    /**
+     * Количество посещений.
+     */
+    @Param("100000")
+    public int visits;
+
+    /**
+     * Контекст запущенного приложения.
+     */
+    public ConfigurableApplicationContext context;
+
+    /**
+     * Клиент MockMvc для выполнения запросов вместе с отрисовкой шаблонов.
+     */
+    public MockMvc mockMvc;
+
+    /**
+     * Запускает приложение с профилем {@code bench} и заполняет базу данных.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FitnessClubApplication.class)
+                .profiles("bench")
+                .run();
+        new DataSeeder(context.getBean(JdbcTemplate.class)).seed(clients, purchases, visits);
+        DataGenerator.refresh(context);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    /**
+     * Останавливает приложение.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Возвращает компонент приложения.
+     *
+     * @param type тип компонента
+     * @param <T>  тип компонента
+     * @return компонент
+     */
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Возвращает номер случайного клиента, у которого есть покупка.
+     *
+     * @return номер клиента
+     */
+    public int randomClient() {
+        return ThreadLocalRandom.current().nextInt(Math.min(clients, purchases)) + 1;
+    }
+
+    /**
+     * Возвращает номер случайного тренера.
+     *
+     * @return номер тренера
+     */
+    public int randomCoach() {
+        return ThreadLocalRandom.current().nextInt(DataSeeder.COACHES) + 1;
+    }
+}
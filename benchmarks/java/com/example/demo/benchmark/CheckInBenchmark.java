@@ -0,0 +1,120 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.Attendance;
+import com.example.demo.model.Visit;
+import com.example.demo.repository.ClientRepository;
+import com.example.demo.repository.CoachRepository;
+import com.example.demo.repository.TicketPurchaseRepository;
+import com.example.demo.service.CheckInService;
+import com.example.demo.service.EntitlementCache;
+import com.example.demo.service.SlotReservations;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Бенчмарки проверки права на посещение при записи на занятие.
+ *
+ * <ul>
+ *   <li>{@code entitlementCached} — проверка по кэшу прав;</li>
+ *   <li>{@code entitlementIndexed} — индексный запрос при промахе кэша;</li>
+ *   <li>{@code checkIn} — полная запись на занятие со списанием занятия,
+ *       выполняемая в транзакции с откатом, чтобы не менять данные.</li>
+ * </ul>
+ *
+ * Каждый вызов {@code checkIn} записывает клиента в свой часовой слот
+ * (слоты перебираются назад от текущего часа в пределах
+ * {@link #SLOT_WINDOW} часов, раньше любой сгенерированной покупки
+ * они не уходят), поэтому измеряется успешная запись, а не отказ
+ * из-за повторной отметки или заполненного слота. Счётчики мест
+ * в слотах сбрасываются после каждой итерации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CheckInBenchmark {
+
+    /**
+     * Количество перебираемых слотов: покупки в сгенерированных
+     * данных сделаны не позже чем 30 дней назад.
+     */
+    private static final long SLOT_WINDOW = 29L * 24;
+
+    /**
+     * Номер следующего вызова {@code checkIn}.
+     */
+    private final AtomicLong invocations = new AtomicLong();
+
+    private EntitlementCache entitlementCache;
+    private TicketPurchaseRepository purchaseRepo;
+    private ClientRepository clientRepo;
+    private CoachRepository coachRepo;
+    private CheckInService checkInService;
+    private TransactionTemplate transactionTemplate;
+    private SlotReservations slotReservations;
+
+    /**
+     * Получает компоненты приложения из общего состояния.
+     *
+     * @param state общее состояние бенчмарков
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        entitlementCache = state.bean(EntitlementCache.class);
+        purchaseRepo = state.bean(TicketPurchaseRepository.class);
+        clientRepo = state.bean(ClientRepository.class);
+        coachRepo = state.bean(CoachRepository.class);
+        checkInService = state.bean(CheckInService.class);
+        transactionTemplate = state.bean(TransactionTemplate.class);
+        slotReservations = state.bean(SlotReservations.class);
+    }
+
+    /**
+     * Сбрасывает счётчики мест, накопленные за итерацию.
+     */
+    @TearDown(Level.Iteration)
+    public void resetSlots() {
+        slotReservations.evictAll();
+    }
+
+    @Benchmark
+    public Object entitlementCached(BenchmarkState state) {
+        return entitlementCache.find(state.randomClient());
+    }
+
+    @Benchmark
+    public Object entitlementIndexed(BenchmarkState state) {
+        return purchaseRepo.findEntitlements(state.randomClient(), PageRequest.of(0, 1));
+    }
+
+    @Benchmark
+    public Object checkIn(BenchmarkState state) {
+        return transactionTemplate.execute(status -> {
+            Visit visit = new Visit();
+            visit.setClient(clientRepo.getReferenceById(state.randomClient()));
+            visit.setCoach(coachRepo.getReferenceById(state.randomCoach()));
+            visit.setVisitDate(nextSlot());
+            visit.setAttendance(Attendance.ATTENDED);
+            Visit saved = checkInService.checkIn(visit);
+            status.setRollbackOnly();
+            return saved;
+        });
+    }
+
+    /**
+     * Возвращает время в слоте, который не использовался
+     * в последних {@link #SLOT_WINDOW} вызовах.
+     */
+    private LocalDateTime nextSlot() {
+        long hoursBack = invocations.getAndIncrement() % SLOT_WINDOW;
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(hoursBack);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.FitnessClubApplication;
+import com.example.demo.service.ClientSearchIndex;
+import com.example.demo.service.EntitlementCache;
+import com.example.demo.service.OccupancyService;
+import com.example.demo.service.PassSummaryService;
+import com.example.demo.service.ReferenceDataService;
+import com.example.demo.service.RollupService;
+import com.example.demo.service.SlotReservations;
+import com.example.demo.service.TableVersions;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Заполняет базу данных приложения синтетическими данными.
+ *
+ * Запускает приложение с переданными аргументами Spring (без профиля
+ * используется {@code bench} со встроенной базой H2), заполняет пустую
+ * базу через {@link DataSeeder} и останавливается. Объём задаётся
+ * свойством {@code fitness.seed.scale} (S — 10 тысяч, M — 1 миллион,
+ * L — 10 миллионов посещений); отдельные количества можно переопределить
+ * свойствами {@code fitness.seed.clients}, {@code fitness.seed.purchases}
+ * и {@code fitness.seed.visits}, начальное значение генератора —
+ * свойством {@code fitness.seed.random-seed}.
+ *
+ * Пример для локального PostgreSQL:
+ * <pre>
+ * --spring.profiles.active=default --fitness.seed.scale=L
+ * --spring.datasource.url=jdbc:postgresql://localhost:5432/fitness?reWriteBatchedInserts=true
+ * </pre>
+ */
+public class DataGenerator {
+
+    /**
+     * Запускает приложение и заполняет базу данных.
+     *
+     * @param args аргументы Spring, например {@code --fitness.seed.scale=M}
+     */
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = start(args)) {
+            seed(context);
+        }
+    }
+
+    /**
+     * Запускает приложение; без явного профиля используется {@code bench}.
+     *
+     * @param args аргументы Spring
+     * @return контекст запущенного приложения
+     */
+    public static ConfigurableApplicationContext start(String[] args) {
+        return new SpringApplicationBuilder(FitnessClubApplication.class)
+                .properties("spring.profiles.default=bench")
+                .run(args);
+    }
+
+    /**
+     * Заполняет пустую базу данных объёмами из свойств {@code fitness.seed.*}
+     * и обновляет кэши приложения.
+     *
+     * @param context контекст запущенного приложения
+     * @throws IllegalStateException если в базе уже есть клиенты или тренеры
+     */
+    public static void seed(ApplicationContext context) {
+        Environment env = context.getEnvironment();
+        DataSeeder.Scale scale = env.getProperty("fitness.seed.scale", DataSeeder.Scale.class, DataSeeder.Scale.S);
+        int clients = env.getProperty("fitness.seed.clients", Integer.class, scale.clients);
+        int purchases = env.getProperty("fitness.seed.purchases", Integer.class, scale.purchases);
+        int visits = env.getProperty("fitness.seed.visits", Integer.class, scale.visits);
+        long randomSeed = env.getProperty("fitness.seed.random-seed", Long.class, 42L);
+
+        DataSeeder seeder = new DataSeeder(context.getBean(JdbcTemplate.class), randomSeed);
+        if (!seeder.isEmpty()) {
+            throw new IllegalStateException("База данных не пуста: генератор заполняет только пустую базу");
+        }
+        long started = System.currentTimeMillis();
+        seeder.seed(clients, purchases, visits);
+        refresh(context);
+        System.out.printf("Создано клиентов: %d, покупок: %d, посещений: %d за %d мс%n",
+                clients, purchases, visits, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Обновляет кэши и сводные таблицы после записи данных в обход приложения.
+     *
+     * @param context контекст запущенного приложения
+     */
+    public static void refresh(ApplicationContext context) {
+        // Индекс поиска строится при запуске, то есть до заполнения базы.
+        context.getBean(ClientSearchIndex.class).rebuild();
+        context.getBean(RollupService.class).rebuild();
+        context.getBean(PassSummaryService.class).rebuild();
+        context.getBean(EntitlementCache.class).clear();
+        context.getBean(OccupancyService.class).evictAll();
+        context.getBean(SlotReservations.class).evictAll();
+        context.getBean(ReferenceDataService.class).evictCoaches();
+        context.getBean(ReferenceDataService.class).evictTickets();
+        context.getBean(TableVersions.class).touch(TableVersions.Table.values());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.Attendance;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Заполняет базу данных тестовыми данными для бенчмарков
+ * и нагрузочного теста.
+ *
+ * Строки вставляются пакетами без указания идентификаторов,
+ * поэтому в чистой базе номера записей идут подряд с единицы.
+ * Генератор случайных чисел инициализируется постоянным значением,
+ * чтобы наборы данных совпадали между запусками; даты отсчитываются
+ * от дня запуска.
+ */
+public class DataSeeder {
+
+    /**
+     * Типовые объёмы данных.
+     */
+    public enum Scale {
+
+        /**
+         * 10 тысяч посещений.
+         */
+        S(1_000, 5_000, 10_000),
+
+        /**
+         * 1 миллион посещений.
+         */
+        M(10_000, 50_000, 1_000_000),
+
+        /**
+         * 10 миллионов посещений.
+         */
+        L(100_000, 500_000, 10_000_000);
+
+        /**
+         * Количество клиентов.
+         */
+        public final int clients;
+
+        /**
+         * Количество покупок.
+         */
+        public final int purchases;
+
+        /**
+         * Количество посещений.
+         */
+        public final int visits;
+
+        Scale(int clients, int purchases, int visits) {
+            this.clients = clients;
+            this.purchases = purchases;
+            this.visits = visits;
+        }
+    }
+
+    /**
+     * Размер пакета вставки.
+     */
+    private static final int BATCH_SIZE = 5_000;
+
+    /**
+     * Количество специализаций.
+     */
+    public static final int SPECIALIZATIONS = 5;
+
+    /**
+     * Количество тренеров.
+     */
+    public static final int COACHES = 20;
+
+    private final JdbcTemplate jdbc;
+
+    private final Random random;
+
+    /**
+     * @param jdbc шаблон JDBC встроенной базы данных
+     */
+    public DataSeeder(JdbcTemplate jdbc) {
+        this(jdbc, 42);
+    }
+
+    /**
+     * @param jdbc шаблон JDBC базы данных
+     * @param seed начальное значение генератора случайных чисел
+     */
+    public DataSeeder(JdbcTemplate jdbc, long seed) {
+        this.jdbc = jdbc;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Проверяет, что таблицы, заполняемые генератором, пусты.
+     *
+     * @return true, если в базе нет ни одного клиента и тренера
+     */
+    public boolean isEmpty() {
+        Long rows = jdbc.queryForObject(
+                "select (select count(*) from clients) + (select count(*) from coaches)", Long.class);
+        return rows == null || rows == 0;
+    }
+
+    /**
+     * Заполняет все таблицы.
+     *
+     * @param clients   количество клиентов
+     * @param purchases количество покупок
+     * @param visits    количество посещений
+     */
+    public void seed(int clients, int purchases, int visits) {
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>();
+
+        for (int i = 1; i <= SPECIALIZATIONS; i++) {
+            rows.add(new Object[]{"Направление " + i});
+        }
+        flush("insert into specializations (name) values (?)", rows);
+
+        for (int i = 1; i <= SPECIALIZATIONS * 2; i++) {
+            int spec = (i - 1) % SPECIALIZATIONS + 1;
+            rows.add(new Object[]{spec, i % 2 == 0 ? 16 : 8, BigDecimal.valueOf(2_000L + i * 500L)});
+        }
+        flush("insert into season_tickets (specialization_number, sessions_count, price) values (?, ?, ?)", rows);
+
+        for (int i = 1; i <= COACHES; i++) {
+            rows.add(new Object[]{"Тренер " + i, (i - 1) % SPECIALIZATIONS + 1, "+7900" + i, "coach" + i + "@fit.local"});
+        }
+        flush("insert into coaches (full_name, specialization_number, phone, email) values (?, ?, ?, ?)", rows);
+
+        String clientSql = "insert into clients (full_name, birth_date, phone, email) values (?, ?, ?, ?)";
+        for (int i = 1; i <= clients; i++) {
+            rows.add(new Object[]{"Клиент " + i, Date.valueOf(today.minusYears(18 + random.nextInt(50))),
+                    "+7999" + i, "client" + i + "@mail.local"});
+            flushIfFull(clientSql, rows);
+        }
+        flush(clientSql, rows);
+
+        String purchaseSql = "insert into ticket_purchases "
+                + "(client_number, ticket_number, purchase_date, remaining_sessions) values (?, ?, ?, ?)";
+        for (int i = 0; i < purchases; i++) {
+            rows.add(new Object[]{i % clients + 1, random.nextInt(SPECIALIZATIONS * 2) + 1,
+                    Date.valueOf(today.minusDays(30 + random.nextInt(700))), 1_000_000});
+            flushIfFull(purchaseSql, rows);
+        }
+        flush(purchaseSql, rows);
+
+        String visitSql = "insert into visits (client_number, coach_number, visit_date, attendance) values (?, ?, ?, ?)";
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
+        for (int i = 0; i < visits; i++) {
+            rows.add(new Object[]{random.nextInt(clients) + 1, random.nextInt(COACHES) + 1,
+                    Timestamp.valueOf(now.minusMinutes(15L * random.nextInt(70_000))),
+                    (random.nextInt(10) == 0 ? Attendance.MISSED : Attendance.ATTENDED).getCode()});
+            flushIfFull(visitSql, rows);
+        }
+        flush(visitSql, rows);
+    }
+
+    private void flushIfFull(String sql, List<Object[]> rows) {
+        if (rows.size() >= BATCH_SIZE) {
+            flush(sql, rows);
+        }
+    }
+
+    private void flush(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+}
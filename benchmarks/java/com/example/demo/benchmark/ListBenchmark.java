@@ -0,0 +1,92 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.controller.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки обработчиков списков без отрисовки шаблонов.
+ *
+ * Обработчики вызываются напрямую, результатом считается
+ * заполненная модель представления. Запрос передаётся без
+ * {@code If-None-Match}, поэтому список всегда строится заново.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ListBenchmark {
+
+    private VisitController visitController;
+    private TicketPurchaseController purchaseController;
+    private CoachController coachController;
+    private SeasonTicketController ticketController;
+    private ClientController clientController;
+
+    /**
+     * Получает контроллеры из общего состояния.
+     *
+     * @param state общее состояние бенчмарков
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        visitController = state.bean(VisitController.class);
+        purchaseController = state.bean(TicketPurchaseController.class);
+        coachController = state.bean(CoachController.class);
+        ticketController = state.bean(SeasonTicketController.class);
+        clientController = state.bean(ClientController.class);
+    }
+
+    @Benchmark
+    public Object visits() {
+        ExtendedModelMap model = new ExtendedModelMap();
+        visitController.list(null, null, null, null, null, null, null, model);
+        return model;
+    }
+
+    @Benchmark
+    public Object visitsByCoach(BenchmarkState state) {
+        ExtendedModelMap model = new ExtendedModelMap();
+        visitController.list(null, null, state.randomCoach(), null, null, null, null, model);
+        return model;
+    }
+
+    @Benchmark
+    public Object purchases() {
+        ExtendedModelMap model = new ExtendedModelMap();
+        purchaseController.list(model, request());
+        return model;
+    }
+
+    @Benchmark
+    public Object coaches() {
+        ExtendedModelMap model = new ExtendedModelMap();
+        coachController.listCoaches(model, request());
+        return model;
+    }
+
+    @Benchmark
+    public Object tickets() {
+        ExtendedModelMap model = new ExtendedModelMap();
+        ticketController.list(model, request());
+        return model;
+    }
+
+    @Benchmark
+    public Object clients() {
+        ExtendedModelMap model = new ExtendedModelMap();
+        clientController.listClients(model, request());
+        return model;
+    }
+
+    private static ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.demo.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Нагрузочный тест страниц и API приложения.
+ *
+ * Запускает приложение так же, как {@link DataGenerator}, заполняет
+ * пустую базу и в течение {@code fitness.load.duration} выполняет
+ * HTTP-запросы из {@code fitness.load.threads} потоков; каждый запрос
+ * идёт на случайный маршрут. Запросы первых {@code fitness.load.warmup}
+ * не учитываются. По каждому маршруту выводятся количество запросов,
+ * ошибки (ответы 5xx и сбои соединения), пропускная способность
+ * и задержка p50/p99/max; та же таблица сохраняется
+ * в {@code target/load-result.csv}.
+ *
+ * Удаление записей и импорт CSV не нагружаются: удаление уменьшает
+ * набор данных во время замера, а импорт — разовая операция.
+ * Чтобы нагрузить уже заполненную базу, задайте {@code fitness.seed.skip=true}.
+ */
+public class LoadTest {
+
+    private static final DateTimeFormatter VISIT_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    /**
+     * Маршрут нагрузки.
+     *
+     * @param name    название маршрута в отчёте
+     * @param request построение очередного запроса
+     */
+    private record Route(String name, Supplier<HttpRequest> request) {
+    }
+
+    /**
+     * Итоги маршрута.
+     *
+     * @param name       название маршрута
+     * @param requests   количество учтённых запросов
+     * @param errors     количество ошибок
+     * @param throughput запросов в секунду
+     * @param p50        медиана задержки, мс
+     * @param p99        99-й перцентиль задержки, мс
+     * @param max        наибольшая задержка, мс
+     */
+    private record Result(String name, int requests, long errors, double throughput,
+                          double p50, double p99, double max) {
+    }
+
+    /**
+     * Задержки запросов одного маршрута в одном потоке.
+     */
+    private static final class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+
+        private void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+        }
+
+        private void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i]);
+            }
+            errors += other.errors;
+        }
+    }
+
+    /**
+     * Запускает приложение, заполняет базу и выполняет нагрузку.
+     *
+     * @param args аргументы Spring, например
+     *             {@code --fitness.seed.scale=M --fitness.load.threads=32}
+     * @throws Exception при ошибке запуска или прерывании
+     */
+    public static void main(String[] args) throws Exception {
+        try (ConfigurableApplicationContext context = DataGenerator.start(args)) {
+            Environment env = context.getEnvironment();
+            if (!env.getProperty("fitness.seed.skip", Boolean.class, false)) {
+                DataGenerator.seed(context);
+            }
+            int threads = env.getProperty("fitness.load.threads", Integer.class, 16);
+            Duration warmup = env.getProperty("fitness.load.warmup", Duration.class, Duration.ofSeconds(10));
+            Duration duration = env.getProperty("fitness.load.duration", Duration.class, Duration.ofSeconds(60));
+            String base = "http://localhost:" + env.getProperty("local.server.port");
+
+            List<Route> routes = routes(base, context.getBean(JdbcTemplate.class));
+            List<Result> results = run(routes, threads, warmup, duration);
+            report(results, Path.of("target", "load-result.csv"));
+        }
+    }
+
+    /**
+     * Возвращает маршруты нагрузки с номерами записей из базы данных.
+     */
+    private static List<Route> routes(String base, JdbcTemplate jdbc) {
+        int clients = maxId(jdbc, "select max(client_number) from clients");
+        int coaches = maxId(jdbc, "select max(coach_number) from coaches");
+        int tickets = maxId(jdbc, "select max(ticket_number) from season_tickets");
+        int specializations = maxId(jdbc, "select max(specialization_number) from specializations");
+        Supplier<Integer> client = () -> ThreadLocalRandom.current().nextInt(clients) + 1;
+        Supplier<Integer> coach = () -> ThreadLocalRandom.current().nextInt(coaches) + 1;
+        Supplier<Integer> ticket = () -> ThreadLocalRandom.current().nextInt(tickets) + 1;
+        Supplier<Integer> specialization = () -> ThreadLocalRandom.current().nextInt(specializations) + 1;
+
+        List<Route> routes = new ArrayList<>();
+        routes.add(new Route("GET /", () -> get(base + "/")));
+        routes.add(new Route("GET /clients", () -> get(base + "/clients")));
+        routes.add(new Route("GET /clients/{id}", () -> get(base + "/clients/" + client.get())));
+        routes.add(new Route("GET /clients/search", () -> get(base + "/clients/search?q="
+                + URLEncoder.encode("Клиент " + client.get(), StandardCharsets.UTF_8))));
+        routes.add(new Route("GET /clients/new", () -> get(base + "/clients/new")));
+        routes.add(new Route("GET /clients/edit/{id}", () -> get(base + "/clients/edit/" + client.get())));
+        routes.add(new Route("POST /clients/save", () -> {
+            int n = ThreadLocalRandom.current().nextInt(1_000_000);
+            return form(base + "/clients/save", "fullName", "Нагрузка " + n,
+                    "phone", "+7988" + n, "email", "load" + n + "@mail.local");
+        }));
+        routes.add(new Route("GET /coaches", () -> get(base + "/coaches")));
+        routes.add(new Route("GET /coaches/{id}/occupancy", () -> get(base + "/coaches/" + coach.get() + "/occupancy")));
+        routes.add(new Route("GET /coaches/new", () -> get(base + "/coaches/new")));
+        routes.add(new Route("GET /coaches/edit/{id}", () -> get(base + "/coaches/edit/" + coach.get())));
+        routes.add(new Route("POST /coaches/save", () -> {
+            int n = ThreadLocalRandom.current().nextInt(1_000_000);
+            return form(base + "/coaches/save", "fullName", "Тренер нагрузки " + n,
+                    "specialization", String.valueOf(specialization.get()), "phone", "+7977" + n);
+        }));
+        routes.add(new Route("GET /tickets", () -> get(base + "/tickets")));
+        routes.add(new Route("GET /tickets/new", () -> get(base + "/tickets/new")));
+        routes.add(new Route("POST /tickets/save", () -> form(base + "/tickets/save",
+                "specialization", String.valueOf(specialization.get()), "sessionsCount", "8", "price", "4000")));
+        routes.add(new Route("GET /purchases", () -> get(base + "/purchases")));
+        routes.add(new Route("GET /purchases/new", () -> get(base + "/purchases/new")));
+        routes.add(new Route("POST /purchases/save", () -> form(base + "/purchases/save",
+                "client", String.valueOf(client.get()), "seasonTicket", String.valueOf(ticket.get()),
+                "purchaseDate", LocalDate.now().toString())));
+        routes.add(new Route("GET /purchases/export", () -> get(base + "/purchases/export")));
+        routes.add(new Route("GET /visits", () -> get(base + "/visits")));
+        routes.add(new Route("GET /visits?coach", () -> get(base + "/visits?coach=" + coach.get())));
+        routes.add(new Route("GET /visits/new", () -> get(base + "/visits/new")));
+        routes.add(new Route("GET /visits/pass/{id}", () -> get(base + "/visits/pass/" + client.get())));
+        routes.add(new Route("POST /visits/save", () -> form(base + "/visits/save",
+                "client", String.valueOf(client.get()), "coach", String.valueOf(coach.get()),
+                "visitDate", LocalDateTime.now().format(VISIT_DATE), "attendance", "ATTENDED")));
+        routes.add(new Route("GET /visits/export", () -> get(base + "/visits/export?from="
+                + LocalDate.now().minusDays(1) + "&to=" + LocalDate.now())));
+        routes.add(new Route("POST /api/checkins", () -> HttpRequest.newBuilder(URI.create(base + "/api/checkins"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                        "{\"clientNumber\":%d,\"coachNumber\":%d,\"visitDate\":\"%s\"}",
+                        client.get(), coach.get(), LocalDateTime.now().format(VISIT_DATE))))
+                .build()));
+        routes.add(new Route("GET /import", () -> get(base + "/import")));
+        return routes;
+    }
+
+    private static int maxId(JdbcTemplate jdbc, String sql) {
+        Integer max = jdbc.queryForObject(sql, Integer.class);
+        if (max == null) {
+            throw new IllegalStateException("Нет данных для нагрузки: " + sql);
+        }
+        return max;
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).GET().build();
+    }
+
+    private static HttpRequest form(String uri, String... fields) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < fields.length; i += 2) {
+            if (i > 0) {
+                body.append('&');
+            }
+            body.append(fields[i]).append('=').append(URLEncoder.encode(fields[i + 1], StandardCharsets.UTF_8));
+        }
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    /**
+     * Выполняет нагрузку и собирает задержки по маршрутам.
+     */
+    private static List<Result> run(List<Route> routes, int threads, Duration warmup, Duration duration)
+            throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        Callable<Samples[]> worker = () -> {
+            Samples[] samples = new Samples[routes.size()];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = new Samples();
+            }
+            while (System.nanoTime() < end) {
+                int r = ThreadLocalRandom.current().nextInt(routes.size());
+                HttpRequest request = routes.get(r).request().get();
+                long started = System.nanoTime();
+                boolean failed;
+                try {
+                    failed = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 500;
+                } catch (IOException e) {
+                    failed = true;
+                }
+                if (started >= measureFrom) {
+                    samples[r].add(System.nanoTime() - started);
+                    if (failed) {
+                        samples[r].errors++;
+                    }
+                }
+            }
+            return samples;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Samples[] total = new Samples[routes.size()];
+        for (int i = 0; i < total.length; i++) {
+            total[i] = new Samples();
+        }
+        try {
+            List<Future<Samples[]>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(worker));
+            }
+            for (Future<Samples[]> future : futures) {
+                Samples[] samples = future.get();
+                for (int i = 0; i < samples.length; i++) {
+                    total[i].addAll(samples[i]);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double seconds = duration.toNanos() / 1e9;
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < total.length; i++) {
+            Samples samples = total[i];
+            long[] sorted = Arrays.copyOf(samples.nanos, samples.size);
+            Arrays.sort(sorted);
+            results.add(new Result(routes.get(i).name(), sorted.length, samples.errors, sorted.length / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6));
+        }
+        return results;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    /**
+     * Выводит итоги в консоль и сохраняет их в CSV.
+     */
+    private static void report(List<Result> results, Path csv) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("route,requests,errors,rps,p50_ms,p99_ms,max_ms");
+        System.out.printf("%-30s %9s %7s %9s %9s %9s %9s%n", "Маршрут", "Запросов", "Ошибок", "Запр/с",
+                "p50, мс", "p99, мс", "max, мс");
+        for (Result r : results) {
+            System.out.printf(Locale.ROOT, "%-30s %9d %7d %9.1f %9.2f %9.2f %9.2f%n",
+                    r.name(), r.requests(), r.errors(), r.throughput(), r.p50(), r.p99(), r.max());
+            lines.add(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f",
+                    r.name(), r.requests(), r.errors(), r.throughput(), r.p50(), r.p99(), r.max()));
+        }
+        Files.createDirectories(csv.getParent());
+        Files.write(csv, lines, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.Occupancy;
+import com.example.demo.repository.VisitRepository;
+import com.example.demo.service.OccupancyService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки тепловой карты загрузки тренера.
+ *
+ * Сравнивают агрегатный запрос за год без кэша
+ * и повторное чтение той же карты из кэша.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class OccupancyBenchmark {
+
+    private VisitRepository visitRepo;
+    private OccupancyService occupancyService;
+    private LocalDate from;
+    private LocalDate to;
+
+    /**
+     * Получает репозиторий и сервис из общего состояния.
+     *
+     * @param state общее состояние бенчмарков
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        visitRepo = state.bean(VisitRepository.class);
+        occupancyService = state.bean(OccupancyService.class);
+        to = LocalDate.now();
+        from = to.minusYears(1);
+    }
+
+    @Benchmark
+    public Object occupancyQuery(BenchmarkState state) {
+        return Occupancy.of(from, to, visitRepo.countByWeekdayAndHour(
+                state.randomCoach(), from.atStartOfDay(), to.plusDays(1).atStartOfDay()));
+    }
+
+    @Benchmark
+    public Object occupancyCached(BenchmarkState state) {
+        return occupancyService.occupancy(state.randomCoach(), from, to);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Бенчмарки полной обработки запроса страниц списков
+ * вместе с отрисовкой шаблонов Thymeleaf.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Benchmark
+    public String visitsList(BenchmarkState state) throws Exception {
+        return state.mockMvc.perform(get("/visits")).andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String purchasesList(BenchmarkState state) throws Exception {
+        return state.mockMvc.perform(get("/purchases")).andReturn().getResponse().getContentAsString();
+    }
+}
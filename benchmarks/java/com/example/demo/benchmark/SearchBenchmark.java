@@ -0,0 +1,45 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.ClientSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки поиска клиентов для полей выбора в формах.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SearchBenchmark {
+
+    private ClientSearchIndex searchIndex;
+
+    /**
+     * Получает индекс поиска из общего состояния.
+     *
+     * @param state общее состояние бенчмарков
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        searchIndex = state.bean(ClientSearchIndex.class);
+    }
+
+    @Benchmark
+    public Object byName(BenchmarkState state) {
+        return searchIndex.search("Клиент " + state.randomClient(), 10);
+    }
+
+    @Benchmark
+    public Object byPhone(BenchmarkState state) {
+        return searchIndex.search("999" + state.randomClient(), 10);
+    }
+
+    @Benchmark
+    public Object byEmailSubstring() {
+        return searchIndex.search("nt12", 10);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.FitnessClubApplication;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.Visit;
+import com.example.demo.repository.ClientRepository;
+import com.example.demo.repository.CoachRepository;
+import com.example.demo.service.CheckInException;
+import com.example.demo.service.CheckInService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Параллельные записи на занятия по одной покупке абонемента.
+ *
+ * Из {@link #THREADS} потоков одновременно выполняется {@link #ATTEMPTS}
+ * записей одного клиента, у которого одна покупка на {@link #SESSIONS}
+ * занятий. Каждая запись идёт в свой часовой слот, поэтому отказать
+ * можно только из-за закончившихся занятий. Проверяется, что остаток
+ * не уходит ниже нуля, а списанных занятий ровно столько же,
+ * сколько успешных записей и посещений в базе данных.
+ */
+@SpringBootTest(classes = FitnessClubApplication.class)
+@ActiveProfiles("bench")
+class ConcurrentCheckInTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 400;
+    private static final int SESSIONS = 150;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private CheckInService checkInService;
+
+    @Autowired
+    private ClientRepository clientRepo;
+
+    @Autowired
+    private CoachRepository coachRepo;
+
+    @Test
+    void consumesEachSessionOnce() throws Exception {
+        if (new DataSeeder(jdbc, 0).isEmpty()) {
+            new DataSeeder(jdbc, 0).seed(50, 50, 0);
+        }
+        int client = createClient();
+        int purchase = createPurchase(client);
+        int coach = jdbc.queryForObject("select min(coach_number) from coaches", Integer.class);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int i;
+                    while ((i = next.getAndIncrement()) < ATTEMPTS) {
+                        Visit visit = new Visit();
+                        visit.setClient(clientRepo.getReferenceById(client));
+                        visit.setCoach(coachRepo.getReferenceById(coach));
+                        visit.setVisitDate(now.minusHours(i));
+                        visit.setAttendance(Attendance.ATTENDED);
+                        try {
+                            checkInService.checkIn(visit);
+                            succeeded.incrementAndGet();
+                        } catch (CheckInException e) {
+                            rejected.incrementAndGet();
+                        }
+                        assertThat(remaining(purchase)).isGreaterThanOrEqualTo(0);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int visits = jdbc.queryForObject("select count(*) from visits where client_number = ?", Integer.class, client);
+        assertThat(remaining(purchase)).isZero();
+        assertThat(succeeded.get()).isEqualTo(SESSIONS);
+        assertThat(rejected.get()).isEqualTo(ATTEMPTS - SESSIONS);
+        assertThat(visits).isEqualTo(succeeded.get());
+    }
+
+    private int createClient() {
+        jdbc.update("insert into clients (full_name, birth_date, phone, email) values (?, ?, ?, ?)",
+                "Параллельный клиент", LocalDate.now().minusYears(30), "+70000000000", "concurrent@mail.local");
+        return jdbc.queryForObject("select max(client_number) from clients", Integer.class);
+    }
+
+    private int createPurchase(int client) {
+        jdbc.update("insert into ticket_purchases (client_number, ticket_number, purchase_date, remaining_sessions) "
+                        + "values (?, (select min(ticket_number) from season_tickets), ?, ?)",
+                client, LocalDate.now().minusDays(60), SESSIONS);
+        return jdbc.queryForObject("select max(purchase_number) from ticket_purchases", Integer.class);
+    }
+
+    private int remaining(int purchase) {
+        return jdbc.queryForObject("select remaining_sessions from ticket_purchases where purchase_number = ?",
+                Integer.class, purchase);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.FitnessClubApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Планы ключевых запросов на заполненной базе PostgreSQL.
+ *
+ * Пустая база заполняется объёмом {@code fitness.seed.scale}
+ * (по умолчанию M — 1 миллион посещений), собирается статистика,
+ * и для каждого запроса, повторяющего запрос репозитория, выполняется
+ * {@code EXPLAIN}. Тест запроса не проходит, если план читает большую
+ * таблицу (посещения, покупки, клиенты) последовательным просмотром.
+ * Так ошибка в индексах из {@code db/indexes.sql} или в условиях
+ * запроса обнаруживается до выкладки.
+ *
+ * Встроенная база H2 не подходит: её планы не совпадают с планами
+ * PostgreSQL. Поэтому тест запускается только с
+ * {@code -Dfitness.test.postgres=true}; для него лучше отвести
+ * отдельную базу, например
+ * {@code -Dspring.datasource.url=jdbc:postgresql://localhost:5432/fitness_plan?reWriteBatchedInserts=true}.
+ */
+@SpringBootTest(classes = FitnessClubApplication.class, properties = {
+        "fitness.seed.scale=M",
+        "fitness.checkin.journal=target/checkins-postgres.journal"
+})
+@EnabledIfSystemProperty(named = "fitness.test.postgres", matches = "true")
+class QueryPlanTest {
+
+    /**
+     * Таблицы, последовательный просмотр которых считается ошибкой.
+     */
+    private static final Set<String> LARGE_TABLES = Set.of("visits", "ticket_purchases", "clients");
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @TestFactory
+    Stream<DynamicTest> queriesUseIndexes() {
+        String product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        assertThat(product).isEqualToIgnoringCase("PostgreSQL");
+        if (new DataSeeder(jdbc, 0).isEmpty()) {
+            DataGenerator.seed(context);
+        }
+        jdbc.execute("analyze");
+
+        ObjectMapper mapper = new ObjectMapper();
+        return queries().entrySet().stream().map(query -> DynamicTest.dynamicTest(query.getKey(), () -> {
+            String json = jdbc.queryForObject("explain (format json) " + query.getValue(), String.class);
+            JsonNode plan = mapper.readTree(json).get(0).get("Plan");
+            List<String> scans = new ArrayList<>();
+            List<String> seqScans = new ArrayList<>();
+            collect(plan, scans, seqScans);
+            assertThat(seqScans)
+                    .as("последовательный просмотр в плане: %s", String.join(", ", scans))
+                    .isEmpty();
+        }));
+    }
+
+    /**
+     * Возвращает проверяемые запросы по названию.
+     */
+    private Map<String, String> queries() {
+        Integer client = jdbc.queryForObject("select client_number from visits "
+                + "group by client_number order by count(*) desc limit 1", Integer.class);
+        Integer coach = jdbc.queryForObject("select coach_number from visits "
+                + "group by coach_number order by count(*) desc limit 1", Integer.class);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        String month = literal(now.minusMonths(1));
+        String weeks = literal(LocalDate.now().minusWeeks(12).atStartOfDay());
+        String end = literal(LocalDate.now().plusDays(1).atStartOfDay());
+        String max = literal(LocalDateTime.of(9999, 1, 1, 0, 0));
+        String journal = "select v.visit_number, v.visit_date, c.full_name, co.full_name, v.attendance "
+                + "from visits v left join clients c on c.client_number = v.client_number "
+                + "left join coaches co on co.coach_number = v.coach_number ";
+
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("Журнал: первая страница (VisitRepository.findPageBefore)", journal
+                + "where v.visit_date >= " + month + " and v.visit_date < " + max + " and v.visit_date <= " + max
+                + " and (v.visit_date < " + max + " or v.visit_number < 2147483647) "
+                + "order by v.visit_date desc, v.visit_number desc limit 51");
+        queries.put("Журнал тренера (VisitRepository.findCoachPageBefore)", journal
+                + "where v.coach_number = " + coach + " and v.visit_date >= " + month + " and v.visit_date < " + max
+                + " and v.visit_date <= " + max + " and (v.visit_date < " + max + " or v.visit_number < 2147483647) "
+                + "order by v.visit_date desc, v.visit_number desc limit 51");
+        queries.put("История посещений клиента (VisitRepository.findClientPageBefore)", journal
+                + "where v.client_number = " + client + " and v.visit_date <= " + max
+                + " and (v.visit_date < " + max + " or v.visit_number < 2147483647) "
+                + "order by v.visit_date desc, v.visit_number desc limit 21");
+        queries.put("Загрузка тренера (VisitRepository.countByWeekdayAndHour)",
+                "select extract(isodow from visit_date), extract(hour from visit_date), count(*) from visits "
+                        + "where coach_number = " + coach + " and visit_date >= " + weeks + " and visit_date < " + end
+                        + " group by 1, 2");
+        queries.put("Записи клиента (VisitRepository.countClientVisits)",
+                "select count(*) from visits where client_number = " + client
+                        + " and visit_date >= " + weeks + " and visit_date < " + end);
+        queries.put("Неявки клиента (VisitRepository.countClientNoShows)",
+                "select count(*) from visits where client_number = " + client
+                        + " and attendance = 0 and visit_date >= " + weeks + " and visit_date < " + end);
+        queries.put("Неявки тренера (VisitRepository.countCoachNoShows)",
+                "select count(*) from visits where coach_number = " + coach
+                        + " and attendance = 0 and visit_date >= " + weeks + " and visit_date < " + end);
+        queries.put("Сводка клиента (ClientRepository.findSummary)",
+                "select c.client_number, c.full_name, "
+                        + "(select count(*) from visits v where v.client_number = c.client_number), "
+                        + "(select coalesce(sum(p.remaining_sessions), 0) from ticket_purchases p "
+                        + "where p.client_number = c.client_number), "
+                        + "(select max(v.visit_date) from visits v where v.client_number = c.client_number) "
+                        + "from clients c where c.client_number = " + client + " and c.deleted = false");
+        queries.put("Действующий абонемент (TicketPurchaseRepository.findEntitlements)",
+                "select purchase_number, purchase_date from ticket_purchases where client_number = " + client
+                        + " and remaining_sessions > 0 order by purchase_date, purchase_number limit 1");
+        queries.put("История покупок клиента (TicketPurchaseRepository.findClientRows)",
+                "select p.purchase_number, p.purchase_date, t.price from ticket_purchases p "
+                        + "left join season_tickets t on t.ticket_number = p.ticket_number "
+                        + "where p.client_number = " + client
+                        + " order by p.purchase_date desc, p.purchase_number desc limit 21");
+        queries.put("Удаление клиента: посещения (PurgeService)",
+                "select visit_number from visits where client_number = " + client + " limit 5000");
+        queries.put("Удаление клиента: покупки (PurgeService)",
+                "select purchase_number from ticket_purchases where client_number = " + client + " limit 5000");
+
+        return queries;
+    }
+
+    /**
+     * Собирает узлы чтения таблиц плана и последовательные просмотры больших таблиц.
+     */
+    private static void collect(JsonNode node, List<String> scans, List<String> seqScans) {
+        String type = node.path("Node Type").asText();
+        String relation = node.path("Relation Name").asText(null);
+        if (relation != null) {
+            String index = node.path("Index Name").asText(null);
+            scans.add(type + " " + relation + (index != null ? " (" + index + ")" : ""));
+            if ("Seq Scan".equals(type) && isLarge(relation)) {
+                seqScans.add(relation);
+            }
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, scans, seqScans);
+        }
+    }
+
+    private static boolean isLarge(String relation) {
+        return LARGE_TABLES.contains(relation) || relation.startsWith("visits_");
+    }
+
+    private static String literal(LocalDateTime value) {
+        return "timestamp '" + value.toString().replace('T', ' ') + "'";
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.PrimaryReadsInterceptor;
+import com.example.demo.config.ReplicaRoutingDataSource;
+import com.example.demo.service.TableVersions;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Выбор реплики или основной базы данных для чтений веб-запросов.
+ *
+ * Проверяется, что страница с ETag читает с реплики и получает версию
+ * таблиц, уже воспроизведённую на ней, что после фиксации записи
+ * (в том числе запросом GET) браузер читает с основной базы данных,
+ * а остальные транзакции только для чтения идут на реплику.
+ */
+class ReplicaRoutingTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+
+    private ReplicaRoutingDataSource routing;
+
+    private final PrimaryReadsInterceptor interceptor = new PrimaryReadsInterceptor();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        routing = new ReplicaRoutingDataSource(primary, replica, Duration.ofSeconds(10));
+        routing.afterPropertiesSet();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyRequestUsesReplica() throws Exception {
+        bind(new MockHttpServletRequest("GET", "/visits"), new MockHttpServletResponse());
+
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void listWithEtagUsesReplicaAndReplicatedVersion() throws Exception {
+        TableVersions versions = new TableVersions();
+        ReflectionTestUtils.setField(versions, "routing", routing);
+        String before = etag(versions);
+
+        versions.touch(TableVersions.Table.CLIENTS);
+        assertThat(etag(versions)).isEqualTo(before);
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+
+        versions.replicated(versions.snapshot());
+        assertThat(etag(versions)).isNotEqualTo(before);
+    }
+
+    @Test
+    void readsAfterCommittedWriteUsePrimary() throws Exception {
+        MockHttpServletRequest delete = new MockHttpServletRequest("GET", "/clients/delete/1");
+        MockHttpServletResponse deleteResponse = new MockHttpServletResponse();
+        bind(delete, deleteResponse);
+        interceptor.preHandle(delete, deleteResponse, null);
+        write(TransactionSynchronization.STATUS_COMMITTED);
+        Cookie cookie = deleteResponse.getCookies()[0];
+        assertThat(cookie.getMaxAge()).isEqualTo(10);
+
+        MockHttpServletRequest redirected = new MockHttpServletRequest("GET", "/clients");
+        redirected.setCookies(cookie);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bind(redirected, response);
+        interceptor.preHandle(redirected, response, null);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void rolledBackWriteKeepsReplicaReads() throws Exception {
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/clients/save");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bind(post, response);
+        write(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(response.getCookies()).isEmpty();
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void writesUsePrimary() throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    }
+
+    /**
+     * Берёт соединение в транзакции записи и завершает её с указанным итогом.
+     */
+    private void write(int status) throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(status));
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    private static String etag(TableVersions versions) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/clients");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bind(request, response);
+        assertThat(versions.notModified(new ServletWebRequest(request, response), TableVersions.Table.CLIENTS))
+                .isFalse();
+        return response.getHeader("ETag");
+    }
+
+    private static void bind(MockHttpServletRequest request, MockHttpServletResponse response) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.FitnessClubApplication;
+import com.example.demo.dto.CheckInRequest;
+import com.example.demo.model.Attendance;
+import com.example.demo.model.Visit;
+import com.example.demo.repository.ClientRepository;
+import com.example.demo.repository.CoachRepository;
+import com.example.demo.repository.VisitRepository;
+import com.example.demo.service.CheckInException;
+import com.example.demo.service.CheckInQueue;
+import com.example.demo.service.CheckInService;
+import com.example.demo.service.SlotFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Вместимость слотов тренеров под параллельной нагрузкой.
+ *
+ * Вместимость всех специализаций на время теста равна {@link #CAPACITY}.
+ * Записи через форму выполняются из {@link #THREADS} потоков к нескольким
+ * тренерам во вчерашних слотах; клиенты выбираются случайно, поэтому часть
+ * записей повторяет уже сделанные и откатывается после того, как место
+ * было занято, — так проверяется и освобождение мест. Отметки турникетов
+ * занимают места при приёме и не должны переполнить слот после пакетной
+ * записи. После теста вместимость сбрасывается, а посещения слотов удаляются.
+ */
+@SpringBootTest(classes = FitnessClubApplication.class)
+@ActiveProfiles("bench")
+class SlotCapacityTest {
+
+    private static final int CAPACITY = 5;
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS = 2000;
+    private static final int COACHES = 4;
+    private static final int SLOTS = 3;
+    private static final int CLIENTS = 40;
+
+    /**
+     * Час первого проверяемого слота.
+     */
+    private static final int FIRST_HOUR = 6;
+
+    /**
+     * Слот тренера.
+     *
+     * @param coachNumber номер тренера
+     * @param start       начало слота
+     */
+    private record SlotKey(int coachNumber, LocalDateTime start) {
+    }
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private CheckInService checkInService;
+
+    @Autowired
+    private CheckInQueue checkInQueue;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ClientRepository clientRepo;
+
+    @Autowired
+    private CoachRepository coachRepo;
+
+    @Autowired
+    private VisitRepository visitRepo;
+
+    private final List<SlotKey> keys = new ArrayList<>();
+
+    private final List<Integer> clients = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        if (new DataSeeder(jdbc, 0).isEmpty()) {
+            new DataSeeder(jdbc, 0).seed(50, 50, 0);
+        }
+        List<Integer> coaches = jdbc.queryForList("select coach_number from coaches where deleted = false "
+                + "order by coach_number limit ?", Integer.class, COACHES);
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        for (Integer coach : coaches) {
+            for (int i = 0; i < SLOTS; i++) {
+                keys.add(new SlotKey(coach, yesterday.atTime(FIRST_HOUR + i, 0)));
+            }
+        }
+        clearSlots();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(createClient(i));
+        }
+        jdbc.update("update specializations set slot_capacity = ?", CAPACITY);
+        DataGenerator.refresh(context);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("update specializations set slot_capacity = null");
+        clearSlots();
+        DataGenerator.refresh(context);
+    }
+
+    @Test
+    void formCheckInsDoNotOverfillSlots() throws Exception {
+        Map<SlotKey, AtomicInteger> booked = new ConcurrentHashMap<>();
+        keys.forEach(key -> booked.put(key, new AtomicInteger()));
+        LongAdder full = new LongAdder();
+        AtomicInteger left = new AtomicInteger(ATTEMPTS);
+
+        runConcurrently(() -> {
+            while (left.decrementAndGet() >= 0) {
+                SlotKey key = keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+                int client = clients.get(ThreadLocalRandom.current().nextInt(clients.size()));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        Visit visit = new Visit();
+                        visit.setClient(clientRepo.getReferenceById(client));
+                        visit.setCoach(coachRepo.getReferenceById(key.coachNumber()));
+                        visit.setVisitDate(key.start().plusMinutes(ThreadLocalRandom.current().nextInt(60)));
+                        visit.setAttendance(Attendance.ATTENDED);
+                        checkInService.checkIn(visit);
+                    });
+                    booked.get(key).incrementAndGet();
+                } catch (SlotFullException e) {
+                    full.increment();
+                } catch (CheckInException e) {
+                    // повторная запись клиента в тот же слот
+                }
+            }
+        });
+
+        assertThat(full.sum()).isPositive();
+        for (SlotKey key : keys) {
+            long stored = visitRepo.countCoachVisits(key.coachNumber(), key.start(), key.start().plusHours(1));
+            assertThat(stored).as("посещений в слоте %s", key).isLessThanOrEqualTo(CAPACITY);
+            assertThat(stored).as("успешных записей в слоте %s", key).isEqualTo(booked.get(key).get());
+        }
+    }
+
+    @Test
+    void turnstileCheckInsDoNotOverfillSlot() throws Exception {
+        SlotKey key = keys.get(0);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger accepted = new AtomicInteger();
+        LongAdder full = new LongAdder();
+
+        runConcurrently(() -> {
+            int i;
+            while ((i = next.getAndIncrement()) < clients.size()) {
+                try {
+                    if (checkInQueue.accept(new CheckInRequest(clients.get(i), key.coachNumber(),
+                            key.start().plusMinutes(i))).isPresent()) {
+                        accepted.incrementAndGet();
+                    }
+                } catch (SlotFullException e) {
+                    full.increment();
+                }
+            }
+        });
+
+        assertThat(accepted.get()).isEqualTo(CAPACITY);
+        assertThat(full.sum()).isEqualTo(clients.size() - CAPACITY);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (stored(key) < CAPACITY && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(stored(key)).isEqualTo(CAPACITY);
+
+        Visit visit = new Visit();
+        visit.setClient(clientRepo.getReferenceById(clients.get(0)));
+        visit.setCoach(coachRepo.getReferenceById(key.coachNumber()));
+        visit.setVisitDate(key.start().plusMinutes(59));
+        visit.setAttendance(Attendance.ATTENDED);
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> checkInService.checkIn(visit)))
+                .isInstanceOf(SlotFullException.class);
+    }
+
+    private long stored(SlotKey key) {
+        return visitRepo.countCoachVisits(key.coachNumber(), key.start(), key.start().plusHours(1));
+    }
+
+    private void runConcurrently(Runnable worker) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    worker.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void clearSlots() {
+        for (SlotKey key : keys) {
+            jdbc.update("delete from visits where coach_number = ? and visit_date >= ? and visit_date < ?",
+                    key.coachNumber(), key.start(), key.start().plusHours(1));
+        }
+    }
+
+    private int createClient(int i) {
+        jdbc.update("insert into clients (full_name, birth_date, phone, email) values (?, ?, ?, ?)",
+                "Клиент вместимости " + i, LocalDate.now().minusYears(30), "+7000000" + String.format("%04d", i),
+                "capacity" + i + "@mail.local");
+        int client = jdbc.queryForObject("select max(client_number) from clients", Integer.class);
+        jdbc.update("insert into ticket_purchases (client_number, ticket_number, purchase_date, remaining_sessions) "
+                        + "values (?, (select min(ticket_number) from season_tickets), ?, ?)",
+                client, LocalDate.now().minusDays(60), ATTEMPTS);
+        return client;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.FitnessClubApplication;
+import com.example.demo.service.VisitPartitionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Секционирование посещений и архивирование секций на PostgreSQL.
+ *
+ * Запускается только с {@code -Dfitness.test.postgres=true} против базы
+ * из {@code application.properties} приложения; адрес можно переопределить
+ * свойством {@code spring.datasource.url}. Проверяется, что таблица
+ * посещений переведена на секции, ключ слота в секции отклоняет повторную
+ * запись, а старая секция переносится в архив несколькими частями
+ * и удаляется.
+ */
+@SpringBootTest(classes = FitnessClubApplication.class, properties = {
+        "fitness.visits.partitioning.enabled=true",
+        "fitness.visits.partitioning.archive-chunk-rows=" + VisitPartitioningTest.CHUNK_ROWS,
+        "fitness.checkin.journal=${java.io.tmpdir}/checkins-${random.uuid}.journal"
+})
+@EnabledIfSystemProperty(named = "fitness.test.postgres", matches = "true")
+class VisitPartitioningTest {
+
+    static final int CHUNK_ROWS = 100;
+
+    private static final int ARCHIVED_ROWS = 250;
+
+    private static final LocalDate OLD_MONTH = LocalDate.of(2000, 1, 1);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private VisitPartitionService partitionService;
+
+    @Test
+    void slotKeyRejectsDuplicateInPartition() {
+        seed();
+        assertThat(jdbc.queryForObject("select exists (select 1 from pg_partitioned_table "
+                + "where partrelid = to_regclass('visits'))", Boolean.class)).isTrue();
+
+        LocalDateTime slot = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        jdbc.update("delete from visits where slot_start = ?", slot);
+        String insert = "insert into visits (client_number, coach_number, visit_date, attendance, slot_start) "
+                + "select min(c.client_number), min(t.coach_number), ?, 1, ? from clients c, coaches t";
+        jdbc.update(insert, slot, slot);
+
+        assertThatThrownBy(() -> jdbc.update(insert, slot.plusMinutes(10), slot))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining("_slot_key");
+        jdbc.update("delete from visits where slot_start = ?", slot);
+    }
+
+    @Test
+    void archivesOldPartitionInChunks() throws Exception {
+        seed();
+        String partition = "visits_2000_01";
+        jdbc.update("delete from visit_archive_chunks where month = ?", OLD_MONTH);
+        jdbc.update("delete from visit_archives where month = ?", OLD_MONTH);
+        jdbc.execute("create table if not exists " + partition + " partition of visits "
+                + "for values from ('" + OLD_MONTH + "') to ('" + OLD_MONTH.plusMonths(1) + "')");
+        jdbc.update("delete from " + partition);
+        jdbc.update("insert into visits (client_number, coach_number, visit_date, attendance, slot_start) "
+                + "select (select min(client_number) from clients), (select min(coach_number) from coaches), "
+                + "cast(? as timestamp) + n * interval '1 hour', 1, cast(? as timestamp) + n * interval '1 hour' "
+                + "from generate_series(1, ?) n", OLD_MONTH.atStartOfDay(), OLD_MONTH.atStartOfDay(), ARCHIVED_ROWS);
+
+        partitionService.maintain();
+
+        assertThat(jdbc.queryForObject("select to_regclass(?) is null", Boolean.class, partition)).isTrue();
+        Map<String, Object> archive = jdbc.queryForMap(
+                "select rows_count, chunks_count from visit_archives where month = ?", OLD_MONTH);
+        assertThat(((Number) archive.get("rows_count")).longValue()).isEqualTo(ARCHIVED_ROWS);
+        assertThat(((Number) archive.get("chunks_count")).intValue()).isEqualTo(3);
+
+        List<Map<String, Object>> chunks = jdbc.queryForList(
+                "select rows_count, data from visit_archive_chunks where month = ? order by chunk", OLD_MONTH);
+        assertThat(chunks).hasSize(3);
+        int total = 0;
+        for (Map<String, Object> chunk : chunks) {
+            List<String> lines = unzip((byte[]) chunk.get("data"));
+            assertThat(lines.get(0)).startsWith("visit_number,");
+            assertThat(lines).hasSize(((Number) chunk.get("rows_count")).intValue() + 1);
+            assertThat(lines.size() - 1).isLessThanOrEqualTo(CHUNK_ROWS);
+            total += lines.size() - 1;
+        }
+        assertThat(total).isEqualTo(ARCHIVED_ROWS);
+    }
+
+    private void seed() {
+        if (new DataSeeder(jdbc, 0).isEmpty()) {
+            new DataSeeder(jdbc, 0).seed(50, 50, 0);
+        }
+    }
+
+    private static List<String> unzip(byte[] data) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(data)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+}
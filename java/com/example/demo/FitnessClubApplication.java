@@ -2,13 +2,16 @@ package com.example.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Главный класс запуска приложения фитнес клуба.
  *
  * Класс содержит метод main, который запускает Spring Boot приложение.
+ * Планировщик включён для фоновых заданий, например пересчёта сводных показателей.
  */
 @SpringBootApplication
+@EnableScheduling
 public class FitnessClubApplication {
 
     /**
@@ -0,0 +1,67 @@
+package com.example.demo.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Настройка кэшей приложения.
+ *
+ * Кэши создаются Spring Boot на основе Caffeine по списку
+ * {@code spring.cache.cache-names}. Размер кэша ограничивается
+ * суммарным количеством закэшированных строк, а не количеством
+ * записей, так как справочник хранится одной записью-списком
+ * (или таблицей по номеру).
+ * Список больше предела учитывается как предел: он вытесняет
+ * остальные записи кэша, но сам остаётся в кэше, а в журнал
+ * пишется предупреждение о том, что предел стоит увеличить.
+ * Статистика попаданий и промахов публикуется через Actuator
+ * как метрика {@code cache.gets}.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheConfig.class);
+
+    /**
+     * Построитель кэшей Caffeine.
+     *
+     * @param maxRows максимальное количество строк в одном кэше
+     * @param ttl     время жизни записи после загрузки
+     * @return построитель кэшей
+     */
+    @Bean
+    public Caffeine<Object, Object> caffeine(
+            @Value("${fitness.cache.reference.max-rows:50000}") long maxRows,
+            @Value("${fitness.cache.reference.ttl:10m}") Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((key, value) -> weight(key, value, maxRows))
+                .expireAfterWrite(ttl)
+                .recordStats();
+    }
+
+    /**
+     * Возвращает вес записи: количество строк списка или таблицы,
+     * но не больше предела кэша.
+     */
+    private static int weight(Object key, Object value, long maxRows) {
+        int rows = value instanceof Collection<?> c ? Math.max(1, c.size())
+                : value instanceof Map<?, ?> m ? Math.max(1, m.size()) : 1;
+        if (rows > maxRows) {
+            log.warn("Запись {} содержит {} строк при пределе кэша {}; "
+                    + "увеличьте fitness.cache.reference.max-rows", key, rows, maxRows);
+            return (int) Math.min(maxRows, Integer.MAX_VALUE);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Настройка источников данных.
+ *
+ * Основная база данных настраивается свойствами {@code spring.datasource.*}.
+ * Если задано свойство {@code fitness.datasource.replica.url}, создаётся
+ * отдельный пул реплики, и транзакции только для чтения (списки
+ * и отчёты) направляются на неё через {@link ReplicaRoutingDataSource}.
+ * После фиксации записи браузер читает с основной базы данных
+ * в течение {@code max-lag} и {@code check-interval} реплики, см.
+ * {@link PrimaryReadsInterceptor}.
+ * Без реплики приложение работает только с основной базой данных.
+ */
+@Configuration
+public class DataSourceConfig implements WebMvcConfigurer {
+
+    /**
+     * Адрес реплики; пустая строка, если реплика не настроена.
+     */
+    @Value("${fitness.datasource.replica.url:}")
+    private String replicaUrl;
+
+    /**
+     * Наибольшее допустимое отставание реплики.
+     */
+    @Value("${fitness.datasource.replica.max-lag:5s}")
+    private Duration maxLag;
+
+    /**
+     * Период проверки отставания реплики.
+     */
+    @Value("${fitness.datasource.replica.check-interval:PT5S}")
+    private Duration checkInterval;
+
+    /**
+     * Пул соединений основной базы данных.
+     *
+     * @param properties свойства {@code spring.datasource.*}
+     * @return пул основной базы данных
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Пул соединений реплики только для чтения.
+     *
+     * @param url      адрес реплики
+     * @param username пользователь реплики
+     * @param password пароль реплики
+     * @param poolSize наибольшее количество соединений с репликой
+     * @return пул реплики
+     */
+    @Bean
+    @ConditionalOnProperty("fitness.datasource.replica.url")
+    public HikariDataSource replicaDataSource(
+            @Value("${fitness.datasource.replica.url}") String url,
+            @Value("${fitness.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${fitness.datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${fitness.datasource.replica.pool-size:10}") int poolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(true);
+        // приложение должно запускаться и при недоступной реплике
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    /**
+     * Источник данных, выбирающий реплику или основную базу данных.
+     *
+     * @param primary основная база данных
+     * @param replica реплика
+     * @return маршрутизирующий источник данных
+     */
+    @Bean
+    @ConditionalOnProperty("fitness.datasource.replica.url")
+    public ReplicaRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                      @Qualifier("replicaDataSource") DataSource replica) {
+        return new ReplicaRoutingDataSource(primary, replica, maxLag.plus(checkInterval));
+    }
+
+    /**
+     * Источник данных приложения для JPA и {@code JdbcTemplate}.
+     *
+     * @param primary основная база данных
+     * @param routing маршрутизирующий источник, если реплика настроена
+     * @return источник данных приложения
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 ObjectProvider<ReplicaRoutingDataSource> routing) {
+        ReplicaRoutingDataSource router = routing.getIfAvailable();
+        return router != null ? new LazyConnectionDataSourceProxy(router) : primary;
+    }
+
+    /**
+     * Регистрирует перехватчик, направляющий чтения браузера на основную
+     * базу данных после записи, если реплика настроена.
+     *
+     * @param interceptors реестр перехватчиков
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        if (!replicaUrl.isEmpty()) {
+            interceptors.addInterceptor(new PrimaryReadsInterceptor());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.config;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Перехватчик Hibernate, считающий загруженные сущности
+ * в счётчиках текущего HTTP-запроса.
+ */
+public class EntityLoadCounter implements Interceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        SqlRequestStats.entityLoaded();
+        return false;
+    }
+}
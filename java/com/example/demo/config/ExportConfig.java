@@ -0,0 +1,51 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * Настройка асинхронных ответов потоковых выгрузок.
+ *
+ * Выгрузка CSV записывается в асинхронном режиме и может идти дольше
+ * общего тайм-аута асинхронных запросов. Для адресов {@code .../export}
+ * тайм-аут заменяется значением {@code fitness.export.timeout}
+ * (0 — без ограничения); остальные асинхронные запросы используют
+ * тайм-аут по умолчанию.
+ */
+@Configuration
+public class ExportConfig implements WebMvcConfigurer {
+
+    /**
+     * Тайм-аут потоковой выгрузки.
+     */
+    @Value("${fitness.export.timeout:0}")
+    private Duration exportTimeout;
+
+    /**
+     * Регистрирует перехватчик, задающий тайм-аут выгрузок.
+     *
+     * @param configurer настройка асинхронной обработки
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+                if (request instanceof AsyncWebRequest async && servletRequest != null
+                        && servletRequest.getRequestURI().endsWith("/export")) {
+                    async.setTimeout(exportTimeout.toMillis());
+                }
+            }
+        });
+    }
+}
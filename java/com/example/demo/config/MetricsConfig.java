@@ -0,0 +1,70 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Настройка метрик запросов и SQL.
+ *
+ * Время ответа по адресам публикует Spring Boot
+ * ({@code http.server.requests}, гистограмма включена в настройках).
+ * Эта конфигурация подключает к Hibernate счётчики инструкций,
+ * времени JDBC и загруженных сущностей и публикует их по адресам
+ * через {@link RequestMetricsInterceptor}. Статистика Hibernate,
+ * включая попадания в кэш второго уровня и кэш запросов,
+ * публикуется модулем hibernate-micrometer. Все метрики доступны
+ * через {@code /actuator/metrics}.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    /**
+     * Реестр метрик.
+     */
+    @Autowired
+    private MeterRegistry registry;
+
+    /**
+     * Подключает к Hibernate счётчики SQL текущего запроса.
+     *
+     * @param slowQuery порог журнала медленных запросов
+     * @param sample    доля записываемых медленных запросов
+     * @return настройка свойств Hibernate
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlMetricsCustomizer(
+            @Value("${fitness.metrics.slow-query:200ms}") Duration slowQuery,
+            @Value("${fitness.metrics.slow-query-sample:1.0}") double sample) {
+        SqlTimingListener.configure(slowQuery.toMillis(), sample);
+        StatementInspector inspector = sql -> {
+            SqlRequestStats.statement(sql);
+            return sql;
+        };
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+            properties.put(AvailableSettings.INTERCEPTOR, new EntityLoadCounter());
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, SqlTimingListener.class.getName());
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    /**
+     * Регистрирует перехватчик, публикующий SQL-метрики запросов.
+     *
+     * @param interceptors реестр перехватчиков
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(new RequestMetricsInterceptor(registry));
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Направляет чтения браузера на основную базу данных сразу после записи.
+ *
+ * После фиксации транзакции записи {@link ReplicaRoutingDataSource}
+ * выставляет браузеру cookie на время, за которое реплика догоняет
+ * основную базу данных или исключается из чтения проверкой отставания.
+ * Пока cookie действует, запросы браузера помечаются атрибутом
+ * {@link ReplicaRoutingDataSource#PRIMARY_READS}.
+ */
+public class PrimaryReadsInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (WebUtils.getCookie(request, ReplicaRoutingDataSource.COOKIE) != null) {
+            request.setAttribute(ReplicaRoutingDataSource.PRIMARY_READS, Boolean.TRUE);
+        }
+        return true;
+    }
+}
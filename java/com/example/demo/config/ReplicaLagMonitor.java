@@ -0,0 +1,150 @@
+package com.example.demo.config;
+
+import com.example.demo.service.TableVersions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Проверка отставания реплики.
+ *
+ * Каждые {@code fitness.datasource.replica.check-interval} измеряет,
+ * на сколько секунд реплика отстаёт от основной базы данных. Если
+ * отставание больше {@code fitness.datasource.replica.max-lag} или
+ * реплика не отвечает, чтение переключается на основную базу данных
+ * до следующей успешной проверки. Отставание публикуется как метрика
+ * {@code fitness.datasource.replica.lag}.
+ *
+ * Перед проверкой запоминаются версии таблиц {@link TableVersions}
+ * и позиция журнала основной базы данных. Если реплика воспроизвела
+ * журнал до этой позиции, запомненные версии отмечаются как
+ * воспроизведённые, и страницы, читающие с реплики, получают их в ETag.
+ */
+@Component
+@ConditionalOnProperty("fitness.datasource.replica.url")
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    /**
+     * Отставание воспроизведения WAL в секундах. Если все полученные
+     * записи уже воспроизведены или сервер не является репликой,
+     * отставание считается нулевым: время последней транзакции
+     * на простаивающей основной базе не означает отставания.
+     */
+    private static final String LAG_SQL = "select case "
+            + "when not pg_is_in_recovery() or pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 "
+            + "else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0) end";
+
+    /**
+     * Воспроизвела ли реплика журнал до указанной позиции.
+     */
+    private static final String REPLAYED_SQL = "select not pg_is_in_recovery() "
+            + "or coalesce(pg_last_wal_replay_lsn() >= cast(? as pg_lsn), false)";
+
+    /**
+     * Пул соединений реплики.
+     */
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    /**
+     * Пул соединений основной базы данных.
+     */
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    /**
+     * Версии таблиц для условных ответов страниц списков.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Источник данных, выбирающий реплику или основную базу данных.
+     */
+    @Autowired
+    private ReplicaRoutingDataSource routing;
+
+    /**
+     * Реестр метрик.
+     */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Наибольшее допустимое отставание реплики.
+     */
+    @Value("${fitness.datasource.replica.max-lag:5s}")
+    private Duration maxLag;
+
+    private JdbcTemplate jdbc;
+
+    private JdbcTemplate primaryJdbc;
+
+    /**
+     * Последнее измеренное отставание в секундах; -1, если реплика недоступна.
+     */
+    private volatile double lagSeconds;
+
+    /**
+     * Регистрирует метрики реплики.
+     */
+    @PostConstruct
+    public void init() {
+        jdbc = new JdbcTemplate(replica);
+        jdbc.setQueryTimeout(5);
+        primaryJdbc = new JdbcTemplate(primary);
+        primaryJdbc.setQueryTimeout(5);
+        Gauge.builder("fitness.datasource.replica.lag", () -> lagSeconds)
+                .description("Отставание реплики в секундах, -1 — реплика недоступна")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("fitness.datasource.replica.usable", () -> routing.isReplicaUsable() ? 1 : 0)
+                .description("Идут ли чтения на реплику")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Измеряет отставание реплики, отмечает воспроизведённые версии
+     * таблиц и разрешает или запрещает чтение с реплики.
+     */
+    @Scheduled(fixedDelayString = "${fitness.datasource.replica.check-interval:PT5S}")
+    public void check() {
+        Map<TableVersions.Table, TableVersions.Version> snapshot = tableVersions.snapshot();
+        String position;
+        try {
+            position = primaryJdbc.queryForObject("select cast(pg_current_wal_lsn() as text)", String.class);
+        } catch (RuntimeException e) {
+            log.debug("Не удалось прочитать позицию журнала основной базы данных", e);
+            position = null;
+        }
+        try {
+            if (position != null && Boolean.TRUE.equals(jdbc.queryForObject(REPLAYED_SQL, Boolean.class, position))) {
+                tableVersions.replicated(snapshot);
+            }
+            Double lag = jdbc.queryForObject(LAG_SQL, Double.class);
+            lagSeconds = lag != null ? lag : 0;
+            routing.setReplicaUsable(lagSeconds * 1000 <= maxLag.toMillis());
+        } catch (RuntimeException e) {
+            log.debug("Не удалось проверить реплику", e);
+            lagSeconds = -1;
+            routing.setReplicaUsable(false);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Источник данных, направляющий транзакции только для чтения на реплику.
+ *
+ * Транзакции {@code @Transactional(readOnly = true)} получают
+ * соединения реплики, остальные — основной базы данных. Пока реплика
+ * отстаёт больше допустимого или недоступна, все соединения выдаются
+ * основной базой данных. Источник должен быть обёрнут в
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * чтобы соединение бралось после того, как транзакция помечена
+ * как транзакция только для чтения.
+ *
+ * Веб-запрос читает с основной базы данных, даже в транзакции только
+ * для чтения, если он отмечен атрибутом {@link #PRIMARY_READS}. Атрибут
+ * и cookie {@value #COOKIE} выставляются после фиксации транзакции
+ * записи, выполненной в веб-запросе, независимо от HTTP-метода (удаление
+ * выполняется запросом GET). Пока cookie действует, следующие запросы
+ * браузера отмечаются тем же атрибутом, см. {@link PrimaryReadsInterceptor},
+ * поэтому список, открытый после перенаправления, уже содержит
+ * сохранённые изменения.
+ *
+ * Страницы с ETag из версий таблиц читают с реплики: для них
+ * {@link com.example.demo.service.TableVersions} выдаёт версии,
+ * изменения которых уже воспроизведены на реплике.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * Ключ основной базы данных.
+     */
+    static final String PRIMARY = "primary";
+
+    /**
+     * Ключ реплики.
+     */
+    static final String REPLICA = "replica";
+
+    /**
+     * Атрибут запроса, направляющий все его чтения на основную базу данных.
+     */
+    public static final String PRIMARY_READS = ReplicaRoutingDataSource.class.getName() + ".PRIMARY_READS";
+
+    /**
+     * Имя cookie, отмечающего недавнюю запись.
+     */
+    static final String COOKIE = "fitness-primary-reads";
+
+    /**
+     * Атрибут запроса, отмечающий, что конец текущей транзакции
+     * записи уже отслеживается.
+     */
+    private static final String WRITE_PENDING = ReplicaRoutingDataSource.class.getName() + ".WRITE_PENDING";
+
+    private final DataSource primary;
+
+    /**
+     * Сколько секунд после записи чтения браузера идут на основную базу данных.
+     */
+    private final int primaryReadsSeconds;
+
+    /**
+     * Можно ли сейчас читать с реплики.
+     */
+    private volatile boolean replicaUsable = true;
+
+    /**
+     * Создаёт источник данных.
+     *
+     * @param primary            основная база данных
+     * @param replica            реплика
+     * @param primaryReadsWindow сколько после записи читать с основной базы данных:
+     *                           время, за которое реплика догоняет её или
+     *                           исключается из чтения проверкой отставания
+     */
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration primaryReadsWindow) {
+        this.primary = primary;
+        this.primaryReadsSeconds = (int) Math.max(1, (primaryReadsWindow.toMillis() + 999) / 1000);
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Разрешает или запрещает чтение с реплики.
+     *
+     * @param usable true, если реплика доступна и не отстаёт
+     */
+    public void setReplicaUsable(boolean usable) {
+        if (replicaUsable != usable) {
+            log.warn(usable ? "Чтение с реплики возобновлено" : "Чтение переключено на основную базу данных");
+        }
+        replicaUsable = usable;
+    }
+
+    /**
+     * Возвращает, используется ли сейчас реплика.
+     *
+     * @return true, если транзакции только для чтения идут на реплику
+     */
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Проверяет, читает ли текущий поток с реплики в транзакциях
+     * только для чтения.
+     *
+     * @return true, если реплика доступна и запрос не отмечен
+     * атрибутом {@link #PRIMARY_READS}
+     */
+    public boolean readsFromReplica() {
+        return replicaUsable && !requestNeedsPrimary();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && readsFromReplica()
+                ? REPLICA : PRIMARY;
+    }
+
+    /**
+     * Проверяет, должен ли текущий веб-запрос читать с основной базы данных.
+     */
+    private static boolean requestNeedsPrimary() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && attributes.getAttribute(PRIMARY_READS, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    /**
+     * Если соединение берётся для транзакции записи веб-запроса,
+     * после её фиксации отмечает запрос и браузер для чтения
+     * с основной базы данных.
+     */
+    private void markAfterWrite() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)
+                || attributes.getAttribute(WRITE_PENDING, RequestAttributes.SCOPE_REQUEST) != null) {
+            return;
+        }
+        attributes.setAttribute(WRITE_PENDING, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                attributes.removeAttribute(WRITE_PENDING, RequestAttributes.SCOPE_REQUEST);
+                if (status == STATUS_COMMITTED) {
+                    markPrimaryReads(attributes.getRequest(), attributes.getResponse());
+                }
+            }
+        });
+    }
+
+    private void markPrimaryReads(HttpServletRequest request, HttpServletResponse response) {
+        request.setAttribute(PRIMARY_READS, Boolean.TRUE);
+        if (response == null || response.isCommitted()) {
+            return;
+        }
+        String path = request.getContextPath();
+        Cookie cookie = new Cookie(COOKIE, "1");
+        cookie.setPath(path.isEmpty() ? "/" : path);
+        cookie.setMaxAge(primaryReadsSeconds);
+        cookie.setHttpOnly(true);
+        response.addCookie(cookie);
+    }
+
+    /**
+     * Возвращает соединение; если реплика не отвечает, она
+     * исключается до следующей проверки и соединение берётся
+     * у основной базы данных.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        markAfterWrite();
+        if (determineCurrentLookupKey() == PRIMARY) {
+            return primary.getConnection();
+        }
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            log.warn("Реплика недоступна: {}", e.getMessage());
+            setReplicaUsable(false);
+            return primary.getConnection();
+        }
+    }
+}
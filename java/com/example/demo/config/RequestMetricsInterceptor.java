@@ -0,0 +1,83 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Публикует SQL-показатели каждого запроса в метрики Micrometer.
+ *
+ * Метрики помечаются тегами {@code method} и {@code uri}
+ * (шаблон адреса, как в {@code http.server.requests}):
+ * <ul>
+ *   <li>{@code fitness.request.sql.statements} — количество SQL-инструкций;</li>
+ *   <li>{@code fitness.request.jdbc.time} — суммарное время JDBC;</li>
+ *   <li>{@code fitness.request.entities.loaded} — количество загруженных сущностей;</li>
+ *   <li>{@code fitness.request.cache.gets} — обращения к кэшам Hibernate
+ *   с тегом {@code result=hit|miss}.</li>
+ * </ul>
+ * Учитывается и SQL, выполненный при отрисовке шаблона.
+ */
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    private final MeterRegistry registry;
+
+    /**
+     * Создаёт перехватчик.
+     *
+     * @param registry реестр метрик
+     */
+    public RequestMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlRequestStats.start(request.getMethod() + " " + uri(request));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlRequestStats stats = SqlRequestStats.finish();
+        if (stats == null) {
+            return;
+        }
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri(request));
+        DistributionSummary.builder("fitness.request.sql.statements")
+                .description("SQL-инструкций на запрос")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(stats.statements());
+        Timer.builder("fitness.request.jdbc.time")
+                .description("Время JDBC на запрос")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(stats.jdbcNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("fitness.request.entities.loaded")
+                .description("Загруженных сущностей на запрос")
+                .tags(tags)
+                .register(registry)
+                .record(stats.entitiesLoaded());
+        if (stats.cacheHits() > 0) {
+            registry.counter("fitness.request.cache.gets", tags.and("result", "hit")).increment(stats.cacheHits());
+        }
+        if (stats.cacheMisses() > 0) {
+            registry.counter("fitness.request.cache.gets", tags.and("result", "miss")).increment(stats.cacheMisses());
+        }
+    }
+
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.config;
+
+/**
+ * Счётчики SQL текущего HTTP-запроса.
+ *
+ * Счётчики привязаны к потоку обработки запроса: их заполняют
+ * обработчики событий Hibernate, а {@link RequestMetricsInterceptor}
+ * публикует их в метрики после завершения запроса. SQL, выполненный
+ * вне запроса (фоновые задания, потоковые выгрузки), не учитывается
+ * в метриках запросов, но попадает в журнал медленных запросов.
+ */
+public final class SqlRequestStats {
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    private static final ThreadLocal<String> LAST_SQL = new ThreadLocal<>();
+
+    /**
+     * Шаблон адреса и метод запроса, например {@code POST /visits/save}.
+     */
+    private final String endpoint;
+
+    private int statements;
+    private long jdbcNanos;
+    private int entitiesLoaded;
+    private int cacheHits;
+    private int cacheMisses;
+
+    private SqlRequestStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Начинает учёт SQL для запроса в текущем потоке.
+     *
+     * @param endpoint метод и шаблон адреса запроса
+     * @return счётчики запроса
+     */
+    static SqlRequestStats start(String endpoint) {
+        SqlRequestStats stats = new SqlRequestStats(endpoint);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Завершает учёт SQL в текущем потоке.
+     *
+     * @return счётчики завершённого запроса или null
+     */
+    static SqlRequestStats finish() {
+        SqlRequestStats stats = CURRENT.get();
+        CURRENT.remove();
+        LAST_SQL.remove();
+        return stats;
+    }
+
+    /**
+     * Возвращает адрес текущего запроса для журнала.
+     *
+     * @return метод и шаблон адреса или «-» вне запроса
+     */
+    static String currentEndpoint() {
+        SqlRequestStats stats = CURRENT.get();
+        return stats != null ? stats.endpoint : "-";
+    }
+
+    /**
+     * Возвращает текст последней подготовленной в потоке инструкции.
+     *
+     * @return SQL или null
+     */
+    static String lastSql() {
+        return LAST_SQL.get();
+    }
+
+    static void statement(String sql) {
+        LAST_SQL.set(sql);
+        SqlRequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statements++;
+        }
+    }
+
+    static void jdbcTime(long nanos) {
+        SqlRequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.jdbcNanos += nanos;
+        }
+    }
+
+    static void entityLoaded() {
+        SqlRequestStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.entitiesLoaded++;
+        }
+    }
+
+    static void cacheGet(boolean hit) {
+        SqlRequestStats stats = CURRENT.get();
+        if (stats != null) {
+            if (hit) {
+                stats.cacheHits++;
+            } else {
+                stats.cacheMisses++;
+            }
+        }
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    int statements() {
+        return statements;
+    }
+
+    long jdbcNanos() {
+        return jdbcNanos;
+    }
+
+    int entitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    int cacheHits() {
+        return cacheHits;
+    }
+
+    int cacheMisses() {
+        return cacheMisses;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import org.hibernate.SessionEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Обработчик событий сессии Hibernate, измеряющий время JDBC.
+ *
+ * Hibernate создаёт отдельный экземпляр на каждую сессию
+ * (свойство {@code hibernate.session.events.auto}), поэтому
+ * пороги журнала медленных запросов задаются статически
+ * из {@link MetricsConfig} при запуске.
+ *
+ * Инструкции дольше {@code fitness.metrics.slow-query} пишутся
+ * в журнал {@code fitness.sql.slow} вместе с адресом запроса;
+ * записывается доля {@code fitness.metrics.slow-query-sample}
+ * таких инструкций.
+ */
+public class SqlTimingListener implements SessionEventListener {
+
+    private static final Logger slowLog = LoggerFactory.getLogger("fitness.sql.slow");
+
+    private static volatile long slowNanos = Long.MAX_VALUE;
+    private static volatile double sampleRate = 1.0;
+
+    private long statementStart;
+    private long batchStart;
+
+    /**
+     * Задаёт параметры журнала медленных запросов.
+     *
+     * @param slowMillis порог длительности инструкции в миллисекундах
+     * @param sample     доля записываемых медленных инструкций от 0 до 1
+     */
+    static void configure(long slowMillis, double sample) {
+        slowNanos = slowMillis * 1_000_000;
+        sampleRate = sample;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record(System.nanoTime() - statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record(System.nanoTime() - batchStart);
+    }
+
+    @Override
+    public void cacheGetEnd(boolean hit) {
+        SqlRequestStats.cacheGet(hit);
+    }
+
+    private static void record(long nanos) {
+        SqlRequestStats.jdbcTime(nanos);
+        if (nanos >= slowNanos && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            slowLog.warn("{} мс [{}] {}", nanos / 1_000_000, SqlRequestStats.currentEndpoint(), SqlRequestStats.lastSql());
+        }
+    }
+}
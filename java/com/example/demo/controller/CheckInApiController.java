@@ -0,0 +1,55 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.CheckInRequest;
+import com.example.demo.service.CheckInException;
+import com.example.demo.service.CheckInQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * API записи на занятия для турникетов.
+ *
+ * Принимает отметки в формате JSON и подтверждает их, не дожидаясь
+ * сохранения посещения: посещения записываются пакетами очередью
+ * {@link CheckInQueue}.
+ */
+@RestController
+@RequestMapping("/api/checkins")
+public class CheckInApiController {
+
+    /**
+     * Секунд до повторной отправки отметки при заполненной очереди.
+     */
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * Очередь отметок турникетов.
+     */
+    @Autowired
+    private CheckInQueue checkInQueue;
+
+    /**
+     * Принимает отметку турникета.
+     *
+     * @param request отметка турникета
+     * @return 202 с подтверждением, 422 с текстом ошибки, если клиент
+     * не может пройти на занятие, или 503, если очередь заполнена
+     */
+    @PostMapping
+    public ResponseEntity<?> checkIn(@RequestBody CheckInRequest request) {
+        try {
+            return checkInQueue.accept(request)
+                    .<ResponseEntity<?>>map(ack -> ResponseEntity.accepted().body(ack))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                            .build());
+        } catch (CheckInException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -1,13 +1,30 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.ClientHit;
+import com.example.demo.dto.ClientSummary;
+import com.example.demo.dto.PurgeStatus;
 import com.example.demo.model.Client;
 import com.example.demo.repository.ClientRepository;
+import com.example.demo.repository.TicketPurchaseRepository;
+import com.example.demo.service.AttendanceService;
+import com.example.demo.service.ClientSearchIndex;
+import com.example.demo.service.PassSummaryService;
+import com.example.demo.service.PurgeService;
+import com.example.demo.service.TableVersions;
+import com.example.demo.service.VisitJournalService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * <p>
@@ -16,7 +33,7 @@ import org.springframework.web.bind.annotation.*;
  *
  * <p>
  * Обрабатывает HTTP-запросы, связанные с CRUD-операциями над сущностью {@link Client}:
- * просмотр списка клиентов, добавление, редактирование и удаление.
+ * просмотр списка клиентов и профиля клиента, добавление, редактирование и удаление.
  * </p>
  *
  * <p>
@@ -39,25 +56,149 @@ public class ClientController {
     @Autowired
     private ClientRepository clientRepository;
 
+    /**
+     * Наибольшее количество результатов поиска клиентов.
+     */
+    private static final int MAX_HITS = 50;
+
+    /**
+     * Количество строк на странице истории посещений и покупок профиля.
+     */
+    private static final int HISTORY_PAGE_SIZE = 20;
+
+    /**
+     * Количество последних дней, за которые в профиле считается посещаемость.
+     */
+    private static final int ATTENDANCE_DAYS = 90;
+
+    /**
+     * Репозиторий покупок для истории покупок клиента.
+     */
+    @Autowired
+    private TicketPurchaseRepository purchaseRepository;
+
+    /**
+     * Сервис постраничного просмотра посещений.
+     */
+    @Autowired
+    private VisitJournalService visitJournalService;
+
+    /**
+     * Сервис неявок и посещаемости.
+     */
+    @Autowired
+    private AttendanceService attendanceService;
+
+    /**
+     * Сервис удаления клиентов вместе с покупками и посещениями.
+     */
+    @Autowired
+    private PurgeService purgeService;
+
+    /**
+     * Сервис сводки абонементов для колонок остатка занятий
+     * и последнего посещения в списке клиентов.
+     */
+    @Autowired
+    private PassSummaryService passSummaryService;
+
+    /**
+     * Версии таблиц для условных ответов {@code GET} списка.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Индекс поиска клиентов.
+     * Обновляется при сохранении клиента.
+     */
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
     /**
      * <p>
      * Отображает список всех клиентов фитнес-центра.
      * </p>
      *
      * <p>
-     * Метод извлекает всех клиентов из базы данных и передаёт их
-     * в модель для отображения на странице.
+     * Метод извлекает всех клиентов, кроме помеченных на удаление,
+     * и передаёт их в модель для отображения на странице
+     * вместе с ходом фонового удаления клиентов.
+     * Остаток занятий и последнее посещение берутся из сводки
+     * абонементов одной строкой на клиента, без агрегации
+     * покупок и посещений.
+     * </p>
+     *
+     * <p>
+     * Если клиенты не менялись с прошлого запроса браузера и фоновых
+     * удалений нет, возвращается 304 без обращения к базе данных.
      * </p>
      *
-     * @param model объект {@link Model}, используемый для передачи данных в представление
-     * @return имя HTML-шаблона со списком клиентов
+     * @param model   объект {@link Model}, используемый для передачи данных в представление
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return имя HTML-шаблона со списком клиентов или null для ответа 304
      */
     @GetMapping
-    public String listClients(Model model) {
-        model.addAttribute("clients", clientRepository.findAll());
+    public String listClients(Model model, WebRequest request) {
+        List<PurgeStatus> purges = purgeService.jobs(PurgeService.Target.CLIENT);
+        if (purges.stream().allMatch(PurgeStatus::finished)
+                && tableVersions.notModified(request, TableVersions.Table.CLIENTS)) {
+            return null;
+        }
+        model.addAttribute("clients", clientRepository.findAllVisible());
+        model.addAttribute("passes", passSummaryService.byClient());
+        model.addAttribute("purges", purges);
         return "clients/list";
     }
 
+    /**
+     * <p>
+     * Отображает профиль клиента.
+     * </p>
+     *
+     * <p>
+     * Счётчики профиля (количество посещений, остаток занятий,
+     * последнее посещение) вычисляются одним агрегирующим запросом,
+     * посещаемость за {@value #ATTENDANCE_DAYS} дней — по индексам
+     * записей и неявок клиента.
+     * История посещений и история покупок загружаются отдельными
+     * страницами по {@value #HISTORY_PAGE_SIZE} строк и листаются
+     * независимо: посещения — курсором {@code before}/{@code beforeId},
+     * покупки — номером страницы {@code purchases}. Коллекции
+     * {@link Client#getVisits()} и {@link Client#getPurchases()}
+     * не загружаются, поэтому профиль клиента с многолетней историей
+     * открывается так же быстро, как профиль нового клиента.
+     * </p>
+     *
+     * @param id        идентификатор клиента
+     * @param before    дата посещения курсора «раньше» или null
+     * @param beforeId  номер посещения курсора «раньше» или null
+     * @param purchases номер страницы истории покупок, начиная с 0
+     * @param model     объект {@link Model} для передачи данных в представление
+     * @return имя HTML-шаблона профиля клиента
+     * @throws IllegalArgumentException если клиент с указанным id не найден
+     */
+    @GetMapping("/{id}")
+    public String showProfile(@PathVariable("id") Integer id,
+                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                              @RequestParam(required = false) Integer beforeId,
+                              @RequestParam(defaultValue = "0") int purchases,
+                              Model model) {
+        ClientSummary summary = clientRepository.findSummary(id)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid client Id: " + id));
+        model.addAttribute("summary", summary);
+        LocalDate today = LocalDate.now();
+        model.addAttribute("attendance",
+                attendanceService.clientStats(id, today.minusDays(ATTENDANCE_DAYS - 1L), today));
+        model.addAttribute("visits", visitJournalService.clientPage(id, before, beforeId, HISTORY_PAGE_SIZE));
+        model.addAttribute("purchases", purchaseRepository.findClientRows(id,
+                PageRequest.of(Math.max(purchases, 0), HISTORY_PAGE_SIZE)));
+        model.addAttribute("before", before);
+        model.addAttribute("beforeId", beforeId);
+        model.addAttribute("purchasePage", Math.max(purchases, 0));
+        return "clients/profile";
+    }
+
     /**
      * <p>
      * Отображает форму для добавления нового клиента.
@@ -123,15 +264,43 @@ public class ClientController {
             return "clients/form";
         }
         clientRepository.save(client);
+        searchIndex.put(client);
+        passSummaryService.markDirty(client.getClientNumber());
+        tableVersions.touch(TableVersions.Table.CLIENTS, TableVersions.Table.PURCHASES);
         return "redirect:/clients";
     }
 
+    /**
+     * <p>
+     * Ищет клиентов по части ФИО, телефона или email.
+     * </p>
+     *
+     * <p>
+     * Используется полями выбора клиента в формах записи на занятие
+     * и продажи абонемента вместо полного списка клиентов.
+     * Поиск выполняется по индексу {@link ClientSearchIndex}
+     * без обращения к базе данных.
+     * </p>
+     *
+     * @param q     строка поиска, не короче {@value ClientSearchIndex#MIN_QUERY} символов
+     * @param limit наибольшее количество результатов, не более {@value #MAX_HITS}
+     * @return найденные клиенты в формате JSON
+     */
+    @GetMapping("/search")
+    @ResponseBody
+    public List<ClientHit> search(@RequestParam("q") String q,
+                                  @RequestParam(defaultValue = "10") int limit) {
+        return searchIndex.search(q, Math.min(limit, MAX_HITS));
+    }
+
     /**
      * <p>
      * Удаляет клиента по идентификатору.
      * </p>
      *
      * <p>
+     * Клиент сразу скрывается из списков и поиска, а его покупки
+     * и посещения удаляются пакетными запросами через {@link PurgeService}.
      * После удаления выполняется перенаправление
      * на страницу со списком клиентов.
      * </p>
@@ -141,7 +310,7 @@ public class ClientController {
      */
     @GetMapping("/delete/{id}")
     public String deleteClient(@PathVariable("id") Integer id) {
-        clientRepository.deleteById(id);
+        purgeService.delete(PurgeService.Target.CLIENT, id);
         return "redirect:/clients";
     }
 }
@@ -1,15 +1,26 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.PurgeStatus;
 import com.example.demo.model.Coach;
 import com.example.demo.repository.CoachRepository;
-import com.example.demo.repository.SpecializationRepository;
+import com.example.demo.service.AttendanceService;
+import com.example.demo.service.FragmentCache;
+import com.example.demo.service.OccupancyService;
+import com.example.demo.service.PurgeService;
+import com.example.demo.service.ReferenceDataService;
+import com.example.demo.service.TableVersions;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 /**
  * <p>
@@ -23,9 +34,10 @@ import org.springframework.web.bind.annotation.*;
  * </p>
  *
  * <p>
- * Взаимодействует с репозиториями {@link CoachRepository} и
- * {@link SpecializationRepository} для работы с базой данных и
- * справочником специализаций тренеров.
+ * Взаимодействует с репозиторием {@link CoachRepository} для работы
+ * с базой данных, а справочник специализаций тренеров получает
+ * из кэша {@link ReferenceDataService}, который сбрасывается
+ * при сохранении и удалении тренеров.
  * </p>
  *
  * <p>
@@ -48,10 +60,46 @@ public class CoachController {
     private CoachRepository coachRepository;
 
     /**
-     * Репозиторий для доступа к списку специализаций тренеров.
+     * Сервис справочных данных для списка специализаций
+     * и сброса кэша тренеров.
+     */
+    @Autowired
+    private ReferenceDataService referenceData;
+
+    /**
+     * Сервис удаления тренеров вместе с посещениями.
+     */
+    @Autowired
+    private PurgeService purgeService;
+
+    /**
+     * Версии таблиц для условных ответов {@code GET} списка.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Кэш отрисованных фрагментов списка.
+     */
+    @Autowired
+    private FragmentCache fragmentCache;
+
+    /**
+     * Сервис тепловой карты загрузки тренеров.
      */
     @Autowired
-    private SpecializationRepository specializationRepository;
+    private OccupancyService occupancyService;
+
+    /**
+     * Сервис неявок и посещаемости.
+     */
+    @Autowired
+    private AttendanceService attendanceService;
+
+    /**
+     * Длина периода тепловой карты по умолчанию в неделях.
+     */
+    private static final int OCCUPANCY_WEEKS = 12;
 
     /**
      * <p>
@@ -59,19 +107,69 @@ public class CoachController {
      * </p>
      *
      * <p>
-     * Метод извлекает данные о тренерах из базы данных и
-     * передаёт их в модель для отображения на странице.
+     * Таблица тренеров отрисовывается шаблоном {@code coaches/table}
+     * и берётся из {@link FragmentCache}; строки списка вместе
+     * с названием специализации загружаются одним запросом
+     * только при промахе кэша. На страницу также передаётся
+     * ход фонового удаления тренеров.
      * </p>
      *
-     * @param model объект {@link Model} для передачи данных в представление
-     * @return имя HTML-шаблона со списком тренеров
+     * <p>
+     * Если тренеры не менялись с прошлого запроса браузера и фоновых
+     * удалений нет, возвращается 304 без обращения к базе данных.
+     * </p>
+     *
+     * @param model   объект {@link Model} для передачи данных в представление
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return имя HTML-шаблона со списком тренеров или null для ответа 304
      */
     @GetMapping
-    public String listCoaches(Model model) {
-        model.addAttribute("coaches", coachRepository.findAll());
+    public String listCoaches(Model model, ServletWebRequest request) {
+        List<PurgeStatus> purges = purgeService.jobs(PurgeService.Target.COACH);
+        if (purges.stream().allMatch(PurgeStatus::finished)
+                && tableVersions.notModified(request, TableVersions.Table.COACHES)) {
+            return null;
+        }
+        model.addAttribute("coachTable", fragmentCache.render("coaches/table", request,
+                TableVersions.Table.COACHES, () -> Map.of("coaches", coachRepository.findAllRows())));
+        model.addAttribute("purges", purges);
         return "coaches/list";
     }
 
+    /**
+     * <p>
+     * Отображает тепловую карту загрузки тренера
+     * по дням недели и часовым слотам.
+     * </p>
+     *
+     * <p>
+     * По умолчанию показываются последние {@value #OCCUPANCY_WEEKS} недель.
+     * Карта берётся из кэша {@link OccupancyService}, поэтому повторные
+     * запросы за тот же период не обращаются к базе данных.
+     * Неявки и посещаемость за период считаются {@link AttendanceService}.
+     * </p>
+     *
+     * @param id    идентификатор тренера
+     * @param from  первый день периода
+     * @param to    последний день периода
+     * @param model объект {@link Model} для передачи данных в представление
+     * @return имя HTML-шаблона тепловой карты
+     * @throws java.util.NoSuchElementException если тренер не найден
+     */
+    @GetMapping("/{id}/occupancy")
+    public String showOccupancy(@PathVariable("id") Integer id,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                Model model) {
+        Coach coach = coachRepository.findById(id).orElseThrow();
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusWeeks(OCCUPANCY_WEEKS).plusDays(1);
+        model.addAttribute("coach", coach);
+        model.addAttribute("occupancy", occupancyService.occupancy(id, start, end));
+        model.addAttribute("attendance", attendanceService.coachStats(id, start, end));
+        return "coaches/occupancy";
+    }
+
     /**
      * <p>
      * Отображает форму добавления нового тренера.
@@ -89,7 +187,7 @@ public class CoachController {
     @GetMapping("/new")
     public String showCreateForm(Model model) {
         model.addAttribute("coach", new Coach());
-        model.addAttribute("specializations", specializationRepository.findAll());
+        model.addAttribute("specializations", referenceData.specializations());
         return "coaches/form";
     }
 
@@ -113,7 +211,7 @@ public class CoachController {
     public String showUpdateForm(@PathVariable("id") Integer id, Model model) {
         Coach coach = coachRepository.findById(id).orElseThrow();
         model.addAttribute("coach", coach);
-        model.addAttribute("specializations", specializationRepository.findAll());
+        model.addAttribute("specializations", referenceData.specializations());
         return "coaches/form";
     }
 
@@ -140,10 +238,12 @@ public class CoachController {
             Model model) {
 
         if (result.hasErrors()) {
-            model.addAttribute("specializations", specializationRepository.findAll());
+            model.addAttribute("specializations", referenceData.specializations());
             return "coaches/form";
         }
         coachRepository.save(coach);
+        referenceData.evictCoaches();
+        tableVersions.touch(TableVersions.Table.COACHES);
         return "redirect:/coaches";
     }
 
@@ -153,19 +253,17 @@ public class CoachController {
      * </p>
      *
      * <p>
-     * Операция выполняется в рамках транзакции.
-     * Если тренер с указанным идентификатором найден,
-     * он будет удалён из базы данных.
+     * Тренер сразу скрывается из списков и форм, а его посещения
+     * удаляются пакетными запросами через {@link PurgeService}:
+     * небольшая история — в рамках запроса, большая — в фоне.
      * </p>
      *
      * @param id идентификатор тренера
      * @return перенаправление на страницу со списком тренеров
      */
-    @Transactional
     @GetMapping("/delete/{id}")
     public String deleteCoach(@PathVariable("id") Integer id) {
-        coachRepository.findById(id)
-                .ifPresent(coach -> coachRepository.delete(coach));
+        purgeService.delete(PurgeService.Target.COACH, id);
         return "redirect:/coaches";
     }
 }
@@ -0,0 +1,69 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.BulkImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Контроллер пакетного импорта данных из CSV-файлов.
+ *
+ * Используется для переноса истории из старой системы турникетов:
+ * клиентов, покупок абонементов и посещений.
+ */
+@Controller
+@RequestMapping("/import")
+public class ImportController {
+
+    /**
+     * Сервис пакетного импорта.
+     */
+    @Autowired
+    private BulkImportService importService;
+
+    /**
+     * Открывает форму загрузки файлов.
+     *
+     * @return страница импорта
+     */
+    @GetMapping
+    public String form() {
+        return "import/form";
+    }
+
+    /**
+     * Импортирует загруженные файлы и показывает отчёт
+     * с количеством строк и скоростью импорта.
+     *
+     * Любой из файлов можно не передавать.
+     *
+     * @param clients   файл клиентов
+     * @param purchases файл покупок
+     * @param visits    файл посещений
+     * @param model     объект для передачи данных в представление
+     * @return страница импорта с отчётом
+     * @throws IOException при ошибке чтения файла
+     */
+    @PostMapping
+    public String upload(@RequestParam(required = false) MultipartFile clients,
+                         @RequestParam(required = false) MultipartFile purchases,
+                         @RequestParam(required = false) MultipartFile visits,
+                         Model model) throws IOException {
+        try (InputStream c = open(clients); InputStream p = open(purchases); InputStream v = open(visits)) {
+            model.addAttribute("reports", importService.importAll(c, p, v));
+        }
+        return "import/form";
+    }
+
+    /**
+     * Открывает поток файла или возвращает null, если файл не передан.
+     */
+    private InputStream open(MultipartFile file) throws IOException {
+        return file == null || file.isEmpty() ? null : file.getInputStream();
+    }
+}
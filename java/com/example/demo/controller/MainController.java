@@ -1,6 +1,9 @@
 package com.example.demo.controller;
 
+import com.example.demo.service.RollupService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
 /**
@@ -12,16 +15,38 @@ import org.springframework.web.bind.annotation.GetMapping;
 @Controller
 public class MainController {
 
+    /**
+     * Количество месяцев в таблице выручки.
+     */
+    private static final int REVENUE_MONTHS = 6;
+
+    /**
+     * Количество дней в таблице посещаемости.
+     */
+    private static final int ATTENDANCE_DAYS = 7;
+
+    /**
+     * Сервис сводных показателей.
+     */
+    @Autowired
+    private RollupService rollupService;
+
     /**
      * Открывает главную страницу приложения.
      *
      * Метод обрабатывает GET-запрос по адресу "/"
-     * и возвращает страницу index.
+     * и возвращает страницу index с панелью показателей:
+     * выручкой по специализациям за последние месяцы
+     * и посещаемостью тренеров за последние дни.
+     * Показатели читаются из предрасчитанной сводки.
      *
+     * @param model объект для передачи данных в представление
      * @return имя шаблона главной страницы
      */
     @GetMapping("/")
-    public String index() {
+    public String index(Model model) {
+        model.addAttribute("revenue", rollupService.revenue(REVENUE_MONTHS));
+        model.addAttribute("attendance", rollupService.attendance(ATTENDANCE_DAYS));
         return "index";
     }
 }
@@ -1,13 +1,22 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.PurgeStatus;
 import com.example.demo.model.SeasonTicket;
 import com.example.demo.repository.SeasonTicketRepository;
-import com.example.demo.repository.SpecializationRepository;
+import com.example.demo.service.FragmentCache;
+import com.example.demo.service.PassSummaryService;
+import com.example.demo.service.PurgeService;
+import com.example.demo.service.ReferenceDataService;
+import com.example.demo.service.RollupService;
+import com.example.demo.service.TableVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Контроллер для работы с абонементами фитнес-центра.
@@ -26,23 +35,71 @@ public class SeasonTicketController {
     private SeasonTicketRepository ticketRepo;
 
     /**
-     * Репозиторий для получения списка специализаций.
+     * Сервис справочных данных для списка специализаций
+     * и сброса кэша абонементов.
+     */
+    @Autowired
+    private ReferenceDataService referenceData;
+
+    /**
+     * Сервис удаления абонементов вместе с покупками.
+     */
+    @Autowired
+    private PurgeService purgeService;
+
+    /**
+     * Сервис сводных показателей; выручка зависит
+     * от цены и специализации абонемента.
      */
     @Autowired
-    private SpecializationRepository specRepo;
+    private RollupService rollupService;
+
+    /**
+     * Версии таблиц для условных ответов {@code GET} списка.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Сервис сводки абонементов клиентов; использованные занятия
+     * зависят от количества занятий абонемента.
+     */
+    @Autowired
+    private PassSummaryService passSummaryService;
+
+    /**
+     * Кэш отрисованных фрагментов списка.
+     */
+    @Autowired
+    private FragmentCache fragmentCache;
 
     /**
      * Показывает список всех абонементов.
      *
-     * Загружает данные из базы и передаёт их
-     * на страницу со списком абонементов.
+     * Карточки абонементов отрисовываются шаблоном
+     * {@code tickets/cards} и берутся из {@link FragmentCache};
+     * абонементы вместе с названием специализации загружаются
+     * одним запросом только при промахе кэша. На страницу
+     * также передаётся ход фонового удаления абонементов.
      *
-     * @param model объект для передачи данных в представление
-     * @return страница со списком абонементов
+     * Если абонементы не менялись с прошлого запроса браузера
+     * и фоновых удалений нет, возвращается 304 без обращения
+     * к базе данных.
+     *
+     * @param model   объект для передачи данных в представление
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return страница со списком абонементов или null для ответа 304
      */
     @GetMapping
-    public String list(Model model) {
-        model.addAttribute("tickets", ticketRepo.findAll());
+    public String list(Model model, ServletWebRequest request) {
+        List<PurgeStatus> purges = purgeService.jobs(PurgeService.Target.TICKET);
+        if (purges.stream().allMatch(PurgeStatus::finished)
+                && tableVersions.notModified(request, TableVersions.Table.TICKETS)) {
+            return null;
+        }
+        model.addAttribute("ticketCards", fragmentCache.render("tickets/cards", request,
+                TableVersions.Table.TICKETS, () -> Map.of("tickets", ticketRepo.findAllRows())));
+        model.addAttribute("purges", purges);
         return "tickets/list";
     }
 
@@ -58,24 +115,22 @@ public class SeasonTicketController {
     @GetMapping("/new")
     public String create(Model model) {
         model.addAttribute("ticket", new SeasonTicket());
-        model.addAttribute("specs", specRepo.findAll());
+        model.addAttribute("specs", referenceData.specializations());
         return "tickets/form";
     }
 
     /**
      * Удаляет абонемент по его идентификатору.
      *
-     * Если абонемент найден в базе данных,
-     * он будет удалён.
+     * Абонемент сразу скрывается из списков, а его покупки
+     * удаляются пакетными запросами через {@link PurgeService}.
      *
      * @param id идентификатор абонемента
      * @return перенаправление на список абонементов
      */
-    @Transactional
     @GetMapping("/delete/{id}")
     public String delete(@PathVariable("id") Integer id) {
-        ticketRepo.findById(id)
-                .ifPresent(ticket -> ticketRepo.delete(ticket));
+        purgeService.delete(PurgeService.Target.TICKET, id);
         return "redirect:/tickets";
     }
 
@@ -90,7 +145,14 @@ public class SeasonTicketController {
      */
     @PostMapping("/save")
     public String save(@ModelAttribute SeasonTicket ticket) {
+        boolean existing = ticket.getTicketNumber() != null;
         ticketRepo.save(ticket);
+        referenceData.evictTickets();
+        tableVersions.touch(TableVersions.Table.TICKETS, TableVersions.Table.PURCHASES);
+        if (existing) {
+            rollupService.markStale();
+            passSummaryService.markAllDirty();
+        }
         return "redirect:/tickets";
     }
 }
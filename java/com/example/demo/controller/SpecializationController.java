@@ -0,0 +1,107 @@
+package com.example.demo.controller;
+
+import com.example.demo.model.Specialization;
+import com.example.demo.repository.SpecializationRepository;
+import com.example.demo.service.ReferenceDataService;
+import com.example.demo.service.TableVersions;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Контроллер специализаций тренеров и абонементов.
+ *
+ * Позволяет добавлять специализации, переименовывать их и задавать
+ * вместимость часового слота тренера. Список специализаций берётся
+ * из кэша {@link ReferenceDataService}; при сохранении сбрасываются
+ * кэши специализаций, тренеров и абонементов, так как тренеры
+ * и абонементы хранятся в кэше вместе со специализацией, а
+ * вместимость слота читается из закэшированных тренеров.
+ */
+@Controller
+@RequestMapping("/specializations")
+public class SpecializationController {
+
+    /**
+     * Репозиторий специализаций.
+     */
+    @Autowired
+    private SpecializationRepository specializationRepo;
+
+    /**
+     * Сервис справочных данных для списка специализаций и сброса кэшей.
+     */
+    @Autowired
+    private ReferenceDataService referenceData;
+
+    /**
+     * Версии таблиц для условных ответов страниц тренеров и абонементов,
+     * на которых выводится название специализации.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Показывает список специализаций.
+     *
+     * @param model объект для передачи данных в представление
+     * @return страница со списком специализаций
+     */
+    @GetMapping
+    public String list(Model model) {
+        model.addAttribute("specializations", referenceData.specializations());
+        return "specializations/list";
+    }
+
+    /**
+     * Открывает форму добавления специализации.
+     *
+     * @param model объект для передачи данных в представление
+     * @return страница формы специализации
+     */
+    @GetMapping("/new")
+    public String create(Model model) {
+        model.addAttribute("specialization", new Specialization());
+        return "specializations/form";
+    }
+
+    /**
+     * Открывает форму редактирования специализации.
+     *
+     * @param id    идентификатор специализации
+     * @param model объект для передачи данных в представление
+     * @return страница формы специализации
+     * @throws java.util.NoSuchElementException если специализация не найдена
+     */
+    @GetMapping("/edit/{id}")
+    public String edit(@PathVariable("id") Integer id, Model model) {
+        model.addAttribute("specialization", specializationRepo.findById(id).orElseThrow());
+        return "specializations/form";
+    }
+
+    /**
+     * Сохраняет специализацию и сбрасывает справочные кэши,
+     * чтобы новая вместимость слота применялась к следующей записи.
+     *
+     * @param specialization специализация с данными формы
+     * @param result         результаты валидации
+     * @return перенаправление на список специализаций или форма при ошибках
+     */
+    @PostMapping("/save")
+    public String save(@Valid @ModelAttribute("specialization") Specialization specialization,
+                       BindingResult result) {
+        if (result.hasErrors()) {
+            return "specializations/form";
+        }
+        specializationRepo.save(specialization);
+        referenceData.evictSpecializations();
+        referenceData.evictCoaches();
+        referenceData.evictTickets();
+        tableVersions.touch(TableVersions.Table.COACHES, TableVersions.Table.TICKETS,
+                TableVersions.Table.PURCHASES);
+        return "redirect:/specializations";
+    }
+}
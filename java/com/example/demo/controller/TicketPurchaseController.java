@@ -2,11 +2,19 @@ package com.example.demo.controller;
 
 import com.example.demo.model.TicketPurchase;
 import com.example.demo.repository.*;
+import com.example.demo.service.EntitlementCache;
+import com.example.demo.service.ExportService;
+import com.example.demo.service.PurchaseService;
+import com.example.demo.service.ReferenceDataService;
+import com.example.demo.service.TableVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-import java.time.LocalDate;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Контроллер для работы с покупками абонементов.
@@ -24,36 +32,85 @@ public class TicketPurchaseController {
     private TicketPurchaseRepository purchaseRepo;
 
     /**
-     * Репозиторий для получения списка клиентов.
+     * Сервис сохранения и удаления покупок.
      */
     @Autowired
-    private ClientRepository clientRepo;
+    private PurchaseService purchaseService;
 
     /**
-     * Репозиторий для получения списка абонементов.
+     * Сервис справочных данных для списка абонементов.
      */
     @Autowired
-    private SeasonTicketRepository ticketRepo;
+    private ReferenceDataService referenceData;
+
+    /**
+     * Сервис выгрузки покупок.
+     */
+    @Autowired
+    private ExportService exportService;
+
+    /**
+     * Кэш прав клиентов на посещение.
+     */
+    @Autowired
+    private EntitlementCache entitlementCache;
+
+    /**
+     * Версии таблиц для условных ответов {@code GET} списка.
+     */
+    @Autowired
+    private TableVersions tableVersions;
 
     /**
      * Показывает список всех покупок абонементов.
      *
-     * Загружает данные из базы и передаёт их на страницу со списком покупок.
+     * Загружает строки списка одним запросом вместе с именем клиента
+     * и названием абонемента и передаёт их на страницу со списком покупок.
      *
-     * @param model объект для передачи данных в представление
-     * @return страница со списком покупок
+     * Если покупки, клиенты и абонементы не менялись с прошлого
+     * запроса браузера, возвращается 304 без обращения к базе данных.
+     * Версия покупок меняется и при списании занятий.
+     *
+     * @param model   объект для передачи данных в представление
+     * @param request запрос с заголовками If-None-Match и If-Modified-Since
+     * @return страница со списком покупок или null для ответа 304
      */
     @GetMapping
-    public String list(Model model) {
-        model.addAttribute("purchases", purchaseRepo.findAll());
+    public String list(Model model, WebRequest request) {
+        if (tableVersions.notModified(request, TableVersions.Table.PURCHASES,
+                TableVersions.Table.CLIENTS, TableVersions.Table.TICKETS)) {
+            return null;
+        }
+        model.addAttribute("purchases", purchaseRepo.findAllRows());
         return "purchases/list";
     }
 
+    /**
+     * Выгружает все покупки абонементов в CSV.
+     *
+     * Строки передаются клиенту по мере чтения из базы данных,
+     * поэтому выгрузка любого объёма не загружается в память целиком.
+     *
+     * @param format формат выгрузки: csv или excel
+     * @return ответ с потоковой выгрузкой или 400, если формат неизвестен
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format) {
+        ExportService.Format f = ExportService.Format.of(format);
+        if (f == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"purchases.csv\"")
+                .contentType(ExportService.MEDIA_TYPE)
+                .body(exportService.purchases(f));
+    }
+
     /**
      * Открывает форму добавления новой покупки.
      *
-     * В форму передаётся пустой объект покупки, а также списки клиентов и абонементов
-     * для выбора.
+     * В форму передаётся пустой объект покупки и список абонементов;
+     * клиент выбирается поиском по {@code /clients/search}.
      *
      * @param model объект для передачи данных в представление
      * @return страница формы покупки
@@ -61,8 +118,7 @@ public class TicketPurchaseController {
     @GetMapping("/new")
     public String create(Model model) {
         model.addAttribute("purchase", new TicketPurchase());
-        model.addAttribute("clients", clientRepo.findAll());
-        model.addAttribute("tickets", ticketRepo.findAll());
+        model.addAttribute("tickets", referenceData.tickets());
         return "purchases/form";
     }
 
@@ -71,17 +127,25 @@ public class TicketPurchaseController {
      *
      * Если дата покупки не указана,
      * она автоматически устанавливается
-     * как текущая дата.
+     * как текущая дата. Для новой покупки остаток занятий
+     * равен количеству занятий выбранного абонемента.
+     * Покупка сохраняется через {@link PurchaseService}
+     * вместе с изменением сводной выручки.
+     *
+     * После сохранения сбрасывается запись клиента
+     * в кэше прав на посещение.
      *
      * @param purchase объект покупки с данными формы
      * @return перенаправление на список покупок
      */
     @PostMapping("/save")
     public String save(@ModelAttribute TicketPurchase purchase) {
-        if (purchase.getPurchaseDate() == null) {
-            purchase.setPurchaseDate(LocalDate.now());
+        purchaseService.save(purchase);
+        tableVersions.touch(TableVersions.Table.PURCHASES);
+        entitlementCache.evictPurchase(purchase.getPurchaseNumber());
+        if (purchase.getClient() != null) {
+            entitlementCache.evictClient(purchase.getClient().getClientNumber());
         }
-        purchaseRepo.save(purchase);
         return "redirect:/purchases";
     }
 
@@ -93,7 +157,9 @@ public class TicketPurchaseController {
      */
     @GetMapping("/delete/{id}")
     public String delete(@PathVariable Integer id) {
-        purchaseRepo.deleteById(id);
+        purchaseService.delete(id);
+        tableVersions.touch(TableVersions.Table.PURCHASES);
+        entitlementCache.evictPurchase(id);
         return "redirect:/purchases";
     }
 }
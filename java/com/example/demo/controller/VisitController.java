@@ -1,12 +1,24 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.ActivePass;
 import com.example.demo.model.*;
-import com.example.demo.repository.*;
+import com.example.demo.repository.TicketPurchaseRepository;
+import com.example.demo.service.CheckInException;
+import com.example.demo.service.CheckInService;
+import com.example.demo.service.EntitlementCache;
+import com.example.demo.service.ExportService;
+import com.example.demo.service.ReferenceDataService;
+import com.example.demo.service.VisitJournalService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Контроллер для работы с посещениями фитнес-центра.
@@ -14,51 +26,116 @@ import java.time.LocalDate;
  * Отвечает за просмотр списка посещений,
  * добавление нового посещения и удаление записей.
  *
- * Также проверяет, что у клиента есть купленный абонемент
- * и что дата посещения указана корректно.
+ * Также проверяет, что у клиента есть абонемент с оставшимися
+ * занятиями и что дата посещения указана корректно.
  */
 @Controller
 @RequestMapping("/visits")
 public class VisitController {
 
     /**
-     * Репозиторий для работы с посещениями.
+     * Сервис справочных данных для списка тренеров.
      */
     @Autowired
-    private VisitRepository visitRepo;
+    private ReferenceDataService referenceData;
 
     /**
-     * Репозиторий для получения списка тренеров.
+     * Сервис записи клиентов на занятия.
      */
     @Autowired
-    private CoachRepository coachRepo;
+    private CheckInService checkInService;
 
     /**
-     * Репозиторий для получения покупок абонементов.
+     * Сервис постраничного просмотра журнала.
+     */
+    @Autowired
+    private VisitJournalService journalService;
+
+    /**
+     * Сервис выгрузки посещений.
+     */
+    @Autowired
+    private ExportService exportService;
+
+    /**
+     * Кэш прав клиентов на посещение.
+     */
+    @Autowired
+    private EntitlementCache entitlementCache;
+
+    /**
+     * Репозиторий покупок для названия специализации абонемента.
      */
     @Autowired
     private TicketPurchaseRepository purchaseRepo;
 
     /**
-     * Показывает список всех посещений.
+     * Показывает страницу журнала посещений.
      *
-     * Загружает данные из базы данных
-     * и передаёт их на страницу со списком посещений.
+     * Журнал листается курсорами {@code before}/{@code after}
+     * (дата и номер крайнего посещения соседней страницы),
+     * поэтому на страницу загружается не больше
+     * {@link VisitJournalService#PAGE_SIZE} посещений.
+     * Список можно ограничить периодом и тренером.
      *
-     * @param model объект для передачи данных в представление
+     * @param from     начало периода
+     * @param to       конец периода
+     * @param coach    номер тренера
+     * @param before   дата посещения курсора «раньше»
+     * @param beforeId номер посещения курсора «раньше»
+     * @param after    дата посещения курсора «позже»
+     * @param afterId  номер посещения курсора «позже»
+     * @param model    объект для передачи данных в представление
      * @return страница со списком посещений
      */
     @GetMapping
-    public String list(Model model) {
-        model.addAttribute("visits", visitRepo.findAll());
+    public String list(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                       @RequestParam(required = false) Integer coach,
+                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                       @RequestParam(required = false) Integer beforeId,
+                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime after,
+                       @RequestParam(required = false) Integer afterId,
+                       Model model) {
+        model.addAttribute("page", journalService.page(from, to, coach, before, beforeId, after, afterId));
+        model.addAttribute("coaches", referenceData.coaches());
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("coach", coach);
         return "visits/list";
     }
 
+    /**
+     * Выгружает посещения за период в CSV.
+     *
+     * Строки передаются клиенту по мере чтения из базы данных,
+     * поэтому выгрузка любого объёма не загружается в память целиком.
+     *
+     * @param from   начало периода
+     * @param to     конец периода
+     * @param format формат выгрузки: csv или excel
+     * @return ответ с потоковой выгрузкой или 400, если формат неизвестен
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+        ExportService.Format f = ExportService.Format.of(format);
+        if (f == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"visits.csv\"")
+                .contentType(ExportService.MEDIA_TYPE)
+                .body(exportService.visits(from, to, f));
+    }
+
     /**
      * Открывает форму добавления нового посещения.
      *
-     * В форму передаётся пустой объект посещения,
-     * а также списки абонементов и тренеров.
+     * В форму передаётся пустой объект посещения и список тренеров;
+     * клиент выбирается поиском по {@code /clients/search}.
      *
      * @param model объект для передачи данных в представление
      * @return страница формы посещения
@@ -66,19 +143,40 @@ public class VisitController {
     @GetMapping("/new")
     public String create(Model model) {
         model.addAttribute("visit", new Visit());
-        model.addAttribute("purchases", purchaseRepo.findAll());
-        model.addAttribute("coaches", coachRepo.findAll());
+        model.addAttribute("coaches", referenceData.coaches());
         return "visits/form";
     }
 
+    /**
+     * Возвращает действующий абонемент клиента.
+     *
+     * Используется формой записи, чтобы после выбора клиента
+     * ограничить список тренеров специализацией абонемента
+     * и запретить даты раньше покупки.
+     *
+     * @param clientNumber номер клиента
+     * @return абонемент в формате JSON или 404, если действующего абонемента нет
+     */
+    @GetMapping("/pass/{clientNumber}")
+    @ResponseBody
+    public ResponseEntity<ActivePass> activePass(@PathVariable Integer clientNumber) {
+        return entitlementCache.find(clientNumber)
+                .map(e -> new ActivePass(e.purchaseDate(), purchaseRepo.findSpecializationName(e.purchaseNumber())))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     /**
      * Сохраняет данные о посещении.
      *
-     * Перед сохранением выполняются проверки:
+     * Проверка права на посещение и списание занятия
+     * выполняются в {@link CheckInService}:
      * <ul>
-     *   <li>у клиента должен быть купленный абонемент;</li>
+     *   <li>у клиента должен быть абонемент с оставшимися занятиями;</li>
      *   <li>дата посещения не может быть раньше даты покупки абонемента;</li>
-     *   <li>нельзя указывать будущую дату посещения.</li>
+     *   <li>нельзя указывать будущую дату посещения;</li>
+     *   <li>у тренера в часовом слоте посещения должно оставаться
+     *   свободное место (вместимость задаётся специализацией).</li>
      * </ul>
      *
      * Если проверка не пройдена, форма отображается повторно
@@ -90,41 +188,12 @@ public class VisitController {
      */
     @PostMapping("/save")
     public String save(@ModelAttribute Visit visit, Model model) {
-
-        TicketPurchase purchase = purchaseRepo.findAll().stream()
-                .filter(p -> p.getClient().getClientNumber()
-                        .equals(visit.getClient().getClientNumber()))
-                .findFirst()
-                .orElse(null);
-
-        if (purchase == null) {
-            model.addAttribute("error", "⚠️ У клиента нет купленного абонемента!");
+        try {
+            checkInService.checkIn(visit);
+        } catch (CheckInException e) {
+            model.addAttribute("error", e.getMessage());
             return reloadForm(model, visit);
         }
-
-        if (visit.getVisitDate() != null) {
-            LocalDate visitDate = visit.getVisitDate().toLocalDate();
-            LocalDate today = LocalDate.now();
-
-            if (visitDate.isBefore(purchase.getPurchaseDate())) {
-                model.addAttribute(
-                        "error",
-                        "⛔ Ошибка: Абонемент куплен " + purchase.getPurchaseDate()
-                                + ". Нельзя записать на более раннюю дату."
-                );
-                return reloadForm(model, visit);
-            }
-
-            if (visitDate.isAfter(today)) {
-                model.addAttribute(
-                        "error",
-                        "⛔ Ошибка: Нельзя записывать визиты на будущие даты!"
-                );
-                return reloadForm(model, visit);
-            }
-        }
-
-        visitRepo.save(visit);
         return "redirect:/visits";
     }
 
@@ -141,20 +210,20 @@ public class VisitController {
      */
     private String reloadForm(Model model, Visit visit) {
         model.addAttribute("visit", visit);
-        model.addAttribute("purchases", purchaseRepo.findAll());
-        model.addAttribute("coaches", coachRepo.findAll());
+        model.addAttribute("coaches", referenceData.coaches());
         return "visits/form";
     }
 
     /**
-     * Удаляет посещение по его идентификатору.
+     * Удаляет посещение по его идентификатору
+     * и исключает его из сводной посещаемости.
      *
      * @param id идентификатор посещения
      * @return перенаправление на список посещений
      */
     @GetMapping("/delete/{id}")
     public String delete(@PathVariable Integer id) {
-        visitRepo.deleteById(id);
+        checkInService.delete(id);
         return "redirect:/visits";
     }
 }
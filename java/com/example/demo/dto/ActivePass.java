@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Действующий абонемент клиента для формы записи на занятие.
+ *
+ * @param purchaseDate       дата покупки
+ * @param specializationName название специализации абонемента
+ */
+public record ActivePass(LocalDate purchaseDate, String specializationName) {
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Посещаемость тренера за день для панели показателей.
+ *
+ * @param coachName     имя тренера
+ * @param day           день
+ * @param visitsCount   количество записей
+ * @param attendedCount количество пришедших
+ */
+public record AttendanceCell(String coachName, LocalDate day, long visitsCount, long attendedCount) {
+}
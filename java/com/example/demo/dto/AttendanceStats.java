@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+/**
+ * Неявки и посещаемость клиента или тренера за период.
+ *
+ * @param visits  количество записей на занятия
+ * @param noShows количество записей с отметкой о неявке
+ */
+public record AttendanceStats(long visits, long noShows) {
+
+    /**
+     * Возвращает долю записей без неявки.
+     *
+     * @return посещаемость в процентах или null, если записей нет
+     */
+    public Long attendanceRate() {
+        return visits == 0 ? null : Math.round(100.0 * (visits - noShows) / visits);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Подтверждение принятой отметки турникета.
+ *
+ * Отметка подтверждается после списания занятия и записи
+ * в журнал на диске; само посещение сохраняется в базе
+ * данных позже пакетом.
+ *
+ * @param id             порядковый номер отметки в журнале
+ * @param purchaseNumber номер покупки, с которой списано занятие
+ * @param visitDate      дата и время посещения
+ */
+public record CheckInAck(long id, Integer purchaseNumber, LocalDateTime visitDate) {
+}
@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Отметка турникета, принимаемая API записи на занятия.
+ *
+ * @param clientNumber номер клиента
+ * @param coachNumber  номер тренера
+ * @param visitDate    дата и время прохода; если не указаны, используется текущее время
+ */
+public record CheckInRequest(Integer clientNumber, Integer coachNumber, LocalDateTime visitDate) {
+}
@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+/**
+ * Клиент в результатах поиска.
+ *
+ * @param clientNumber номер клиента
+ * @param fullName     ФИО клиента
+ * @param phone        телефон
+ * @param email        электронная почта
+ */
+public record ClientHit(Integer clientNumber, String fullName, String phone, String email) {
+}
@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сводка по клиенту для страницы профиля.
+ *
+ * Счётчики вычисляются одним запросом в базе данных,
+ * без загрузки посещений и покупок клиента.
+ *
+ * @param clientNumber      номер клиента
+ * @param fullName          имя клиента
+ * @param phone             телефон клиента
+ * @param email             email клиента
+ * @param totalVisits       общее количество посещений
+ * @param remainingSessions остаток занятий по всем покупкам
+ * @param lastVisit         дата и время последнего посещения или null
+ */
+public record ClientSummary(Integer clientNumber, String fullName, String phone, String email,
+                            long totalVisits, long remainingSessions, LocalDateTime lastVisit) {
+}
@@ -0,0 +1,11 @@
+package com.example.demo.dto;
+
+/**
+ * Строка списка тренеров.
+ *
+ * @param coachNumber        номер тренера
+ * @param fullName           имя тренера
+ * @param specializationName название специализации
+ */
+public record CoachRow(Integer coachNumber, String fullName, String specializationName) {
+}
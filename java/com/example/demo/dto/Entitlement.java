@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Право клиента на посещение: покупка абонемента,
+ * по которой выполняется проверка при записи на занятие.
+ *
+ * @param purchaseNumber номер покупки абонемента
+ * @param purchaseDate   дата покупки абонемента
+ */
+public record Entitlement(Integer purchaseNumber, LocalDate purchaseDate) {
+}
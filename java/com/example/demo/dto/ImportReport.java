@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+/**
+ * Результат импорта одного CSV-файла.
+ *
+ * @param entity   что импортировалось (клиенты, покупки, посещения)
+ * @param imported количество записанных строк
+ * @param skipped  количество пропущенных строк с ошибками
+ * @param millis   длительность импорта в миллисекундах
+ */
+public record ImportReport(String entity, long imported, long skipped, long millis) {
+
+    /**
+     * Возвращает скорость импорта.
+     *
+     * @return строк в секунду
+     */
+    public long rowsPerSecond() {
+        return millis == 0 ? imported : imported * 1000 / millis;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Загрузка тренера по дням недели и часовым слотам за период.
+ *
+ * Дни недели нумеруются с понедельника (0) по воскресенье (6),
+ * часы — слотами формы записи с {@value #FIRST_HOUR}
+ * по {@value #LAST_HOUR}. Посещения вне этих часов
+ * учитываются только в общем количестве.
+ *
+ * @param from   первый день периода
+ * @param to     последний день периода
+ * @param counts количество посещений [день недели][час - FIRST_HOUR]
+ * @param total  общее количество посещений за период
+ * @param max    наибольшее количество посещений в одной ячейке
+ */
+public record Occupancy(LocalDate from, LocalDate to, long[][] counts, long total, long max) {
+
+    /**
+     * Первый часовой слот.
+     */
+    public static final int FIRST_HOUR = 7;
+
+    /**
+     * Последний часовой слот.
+     */
+    public static final int LAST_HOUR = 22;
+
+    /**
+     * Строит тепловую карту из ячеек агрегатного запроса.
+     *
+     * @param from  первый день периода
+     * @param to    последний день периода
+     * @param cells ячейки с количеством посещений
+     * @return загрузка тренера
+     */
+    public static Occupancy of(LocalDate from, LocalDate to, List<OccupancyCell> cells) {
+        long[][] counts = new long[7][LAST_HOUR - FIRST_HOUR + 1];
+        long total = 0;
+        long max = 0;
+        for (OccupancyCell cell : cells) {
+            total += cell.visits();
+            if (cell.hour() < FIRST_HOUR || cell.hour() > LAST_HOUR) {
+                continue;
+            }
+            // В запросе воскресенье — 1, суббота — 7.
+            int day = (cell.dayOfWeek() + 5) % 7;
+            counts[day][cell.hour() - FIRST_HOUR] = cell.visits();
+            max = Math.max(max, cell.visits());
+        }
+        return new Occupancy(from, to, counts, total, max);
+    }
+
+    /**
+     * Возвращает количество посещений в ячейке.
+     *
+     * @param day  день недели, 0 — понедельник
+     * @param hour час слота
+     * @return количество посещений
+     */
+    public long count(int day, int hour) {
+        return counts[day][hour - FIRST_HOUR];
+    }
+
+    /**
+     * Возвращает насыщенность ячейки относительно самой загруженной.
+     *
+     * @param day  день недели, 0 — понедельник
+     * @param hour час слота
+     * @return значение от 0 до 1
+     */
+    public double intensity(int day, int hour) {
+        return max == 0 ? 0 : (double) count(day, hour) / max;
+    }
+}
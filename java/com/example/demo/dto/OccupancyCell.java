@@ -0,0 +1,11 @@
+package com.example.demo.dto;
+
+/**
+ * Количество посещений тренера в один день недели и час.
+ *
+ * @param dayOfWeek день недели: 1 — воскресенье, 7 — суббота
+ * @param hour      час начала занятия
+ * @param visits    количество посещений
+ */
+public record OccupancyCell(int dayOfWeek, int hour, long visits) {
+}
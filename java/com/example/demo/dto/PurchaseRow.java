@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Строка списка продаж абонементов.
+ *
+ * @param purchaseNumber     номер покупки
+ * @param purchaseDate       дата покупки
+ * @param clientName         имя клиента
+ * @param specializationName название специализации абонемента
+ * @param price              стоимость абонемента
+ * @param remainingSessions  остаток занятий
+ */
+public record PurchaseRow(Integer purchaseNumber, LocalDate purchaseDate, String clientName,
+                          String specializationName, BigDecimal price, Integer remainingSessions) {
+}
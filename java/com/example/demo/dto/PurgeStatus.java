@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+/**
+ * Состояние фонового удаления записи с историей.
+ *
+ * @param title    вид записи
+ * @param id       номер записи
+ * @param deleted  количество уже удалённых дочерних строк
+ * @param total    количество дочерних строк на момент запуска
+ * @param finished завершено ли удаление
+ * @param error    сообщение об ошибке или null
+ */
+public record PurgeStatus(String title, Integer id, long deleted, long total, boolean finished, String error) {
+
+    /**
+     * Возвращает процент выполнения.
+     *
+     * @return значение от 0 до 100
+     */
+    public int percent() {
+        if (finished || total == 0) {
+            return finished ? 100 : 0;
+        }
+        return (int) Math.min(100, deleted * 100 / total);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Выручка по специализации за месяц для панели показателей.
+ *
+ * @param specializationName название специализации
+ * @param month              первый день месяца
+ * @param purchasesCount     количество покупок
+ * @param revenue            выручка
+ */
+public record RevenueCell(String specializationName, LocalDate month, long purchasesCount, BigDecimal revenue) {
+}
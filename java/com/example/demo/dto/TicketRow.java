@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Карточка абонемента в списке тарифов.
+ *
+ * @param ticketNumber       номер абонемента
+ * @param specializationName название специализации
+ * @param price              стоимость абонемента
+ * @param sessionsCount      количество занятий
+ */
+public record TicketRow(Integer ticketNumber, String specializationName,
+                        BigDecimal price, Integer sessionsCount) {
+}
@@ -0,0 +1,34 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Страница журнала посещений.
+ *
+ * Посещения упорядочены от новых к старым. Курсоры для перехода
+ * к соседним страницам берутся из первой и последней строки.
+ *
+ * @param visits   посещения на странице
+ * @param hasOlder есть ли более ранние посещения
+ * @param hasNewer есть ли более поздние посещения
+ */
+public record VisitPage(List<VisitRow> visits, boolean hasOlder, boolean hasNewer) {
+
+    /**
+     * Возвращает первое (самое новое) посещение страницы.
+     *
+     * @return посещение или null для пустой страницы
+     */
+    public VisitRow first() {
+        return visits.isEmpty() ? null : visits.get(0);
+    }
+
+    /**
+     * Возвращает последнее (самое старое) посещение страницы.
+     *
+     * @return посещение или null для пустой страницы
+     */
+    public VisitRow last() {
+        return visits.isEmpty() ? null : visits.get(visits.size() - 1);
+    }
+}
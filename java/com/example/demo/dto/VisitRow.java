@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Attendance;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка журнала посещений.
+ *
+ * Заполняется одним запросом вместе с именами клиента и тренера,
+ * без загрузки связанных сущностей.
+ *
+ * @param visitNumber номер посещения
+ * @param visitDate   дата и время посещения
+ * @param clientName  имя клиента
+ * @param coachName   имя тренера
+ * @param attendance  отметка о посещении или null
+ */
+public record VisitRow(Integer visitNumber, LocalDateTime visitDate,
+                       String clientName, String coachName, Attendance attendance) {
+}
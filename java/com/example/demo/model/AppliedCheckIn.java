@@ -0,0 +1,25 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Отметка турникета, уже применённая к базе данных.
+ *
+ * Строка добавляется в той же транзакции, что и посещение отметки
+ * (или возврат занятия за повторную отметку), поэтому отметка
+ * из журнала, восстановленная после перезапуска, применяется
+ * не больше одного раза. Хранятся только номера отметок, которые
+ * ещё могут оказаться в журнале, и наибольший номер.
+ */
+@Entity
+@Table(name = "checkin_applied")
+@Data
+public class AppliedCheckIn {
+
+    /**
+     * Порядковый номер отметки в журнале.
+     */
+    @Id
+    private Long seq;
+}
@@ -0,0 +1,104 @@
+package com.example.demo.model;
+
+import java.util.Set;
+
+/**
+ * Отметка о посещении занятия.
+ *
+ * Хранится в столбце {@code visits.attendance} числовым кодом
+ * (см. {@link AttendanceConverter}), а не текстом: строка занимает
+ * меньше места, а неявки выбираются частичным индексом по коду.
+ */
+public enum Attendance {
+
+    /**
+     * Клиент не пришёл на занятие.
+     */
+    MISSED((short) 0, "Не пришел"),
+
+    /**
+     * Клиент пришёл на занятие.
+     */
+    ATTENDED((short) 1, "Пришел");
+
+    /**
+     * Тексты прежней отметки в нижнем регистре, означающие, что клиент пришёл.
+     */
+    public static final Set<String> ATTENDED_TEXTS = Set.of("пришел", "пришёл", "да", "присутствовал");
+
+    private final short code;
+
+    private final String label;
+
+    Attendance(short code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    /**
+     * Возвращает код отметки в базе данных.
+     *
+     * @return код отметки
+     */
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Возвращает название отметки для страниц и выгрузок.
+     *
+     * @return название отметки
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Проверяет, пришёл ли клиент на занятие.
+     *
+     * @return true для отметки {@link #ATTENDED}
+     */
+    public boolean isAttended() {
+        return this == ATTENDED;
+    }
+
+    /**
+     * Возвращает отметку по коду в базе данных.
+     *
+     * @param code код отметки или null
+     * @return отметка или null
+     * @throws IllegalArgumentException если код неизвестен
+     */
+    public static Attendance ofCode(Short code) {
+        if (code == null) {
+            return null;
+        }
+        for (Attendance attendance : values()) {
+            if (attendance.code == code) {
+                return attendance;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный код отметки о посещении: " + code);
+    }
+
+    /**
+     * Разбирает отметку из текста: имени константы, названия
+     * или прежней текстовой отметки ("Да", "присутствовал").
+     * Любой другой непустой текст считается неявкой.
+     *
+     * @param text текст отметки или null
+     * @return отметка или null для пустого текста
+     */
+    public static Attendance parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String value = text.trim();
+        for (Attendance attendance : values()) {
+            if (attendance.name().equalsIgnoreCase(value)) {
+                return attendance;
+            }
+        }
+        return ATTENDED_TEXTS.contains(value.toLowerCase()) ? ATTENDED : MISSED;
+    }
+}
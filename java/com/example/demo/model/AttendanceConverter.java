@@ -0,0 +1,24 @@
+package com.example.demo.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Преобразует отметку о посещении в числовой код столбца и обратно.
+ *
+ * Код задаётся явно в {@link Attendance}, поэтому перестановка
+ * констант не меняет значения в базе данных.
+ */
+@Converter(autoApply = true)
+public class AttendanceConverter implements AttributeConverter<Attendance, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(Attendance attendance) {
+        return attendance == null ? null : attendance.getCode();
+    }
+
+    @Override
+    public Attendance convertToEntityAttribute(Short code) {
+        return Attendance.ofCode(code);
+    }
+}
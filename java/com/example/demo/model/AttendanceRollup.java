@@ -0,0 +1,52 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Предрасчитанная посещаемость тренера за день.
+ *
+ * Обновляется инкрементально при сохранении и удалении посещений
+ * и полностью пересчитывается заданием восстановления.
+ */
+@Entity
+@Table(name = "attendance_rollups")
+@IdClass(AttendanceRollup.Key.class)
+@Data
+public class AttendanceRollup {
+
+    /**
+     * Номер тренера.
+     */
+    @Id
+    @Column(name = "coach_number")
+    private Integer coachNumber;
+
+    /**
+     * День посещений.
+     */
+    @Id
+    private LocalDate day;
+
+    /**
+     * Количество записей на занятия за день.
+     */
+    private long visitsCount;
+
+    /**
+     * Количество записей с отметкой о присутствии.
+     */
+    private long attendedCount;
+
+    /**
+     * Составной ключ: тренер и день.
+     */
+    @Data
+    public static class Key implements Serializable {
+        private Integer coachNumber;
+        private LocalDate day;
+    }
+}
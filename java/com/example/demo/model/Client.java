@@ -2,6 +2,8 @@ package com.example.demo.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -47,12 +49,27 @@ public class Client {
      */
     private String email;
 
+    /**
+     * Признак удаления клиента.
+     *
+     * Устанавливается сразу при удалении: клиент скрывается
+     * из списков и форм, а его строка и связанные записи удаляются
+     * пакетными запросами, см. {@link com.example.demo.service.PurgeService}.
+     */
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean deleted;
+
     /**
      * Список посещений клиента.
      *
      * Связь "один клиент — много посещений".
      * При удалении клиента все его посещения удаляются.
+     * Коллекция загружается целиком, поэтому для отображения
+     * истории используются постраничные запросы
+     * {@link com.example.demo.repository.VisitRepository}.
      */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(
             mappedBy = "client",
             cascade = CascadeType.ALL,
@@ -66,7 +83,11 @@ public class Client {
      * Связь "один клиент — много покупок".
      * При удалении клиента все связанные покупки
      * удаляются автоматически.
+     * Для отображения истории используются постраничные запросы
+     * {@link com.example.demo.repository.TicketPurchaseRepository}.
      */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(
             mappedBy = "client",
             cascade = CascadeType.ALL,
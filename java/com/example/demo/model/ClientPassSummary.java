@@ -0,0 +1,69 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Предрасчитанное состояние абонементов клиента.
+ *
+ * Одна узкая строка на клиента: действующая покупка, использованные
+ * и оставшиеся занятия и дата последнего посещения. Пересчитывается
+ * заданием {@link com.example.demo.service.PassSummaryService}
+ * только для клиентов, чьи покупки или посещения изменились.
+ */
+@Entity
+@Table(name = "client_pass_summary")
+@Data
+public class ClientPassSummary {
+
+    /**
+     * Номер клиента.
+     */
+    @Id
+    @Column(name = "client_number")
+    private Integer clientNumber;
+
+    /**
+     * Номер действующей покупки: самой ранней покупки
+     * с оставшимися занятиями, или null, если её нет.
+     */
+    @Column(name = "purchase_number")
+    private Integer purchaseNumber;
+
+    /**
+     * Дата действующей покупки.
+     */
+    private LocalDate purchaseDate;
+
+    /**
+     * Количество использованных занятий по всем покупкам клиента.
+     */
+    private long sessionsUsed;
+
+    /**
+     * Количество оставшихся занятий по всем покупкам клиента.
+     */
+    private long sessionsLeft;
+
+    /**
+     * Дата и время последнего посещения.
+     */
+    private LocalDateTime lastVisit;
+
+    /**
+     * Время последнего пересчёта строки.
+     */
+    private LocalDateTime refreshedAt;
+
+    /**
+     * Проверяет, есть ли у клиента действующая покупка.
+     *
+     * @return true, если остались занятия по какой-либо покупке
+     */
+    public boolean isActive() {
+        return purchaseNumber != null;
+    }
+}
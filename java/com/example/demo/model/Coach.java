@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import java.util.List;
 
 /**
@@ -14,7 +16,10 @@ import java.util.List;
  * а также список проведённых посещений.
  */
 @Entity
-@Table(name = "coaches")
+@Table(
+        name = "coaches",
+        indexes = @Index(name = "idx_coaches_specialization", columnList = "specialization_number")
+)
 @Data
 public class Coach {
 
@@ -39,7 +44,7 @@ public class Coach {
      *
      * Связь "многие тренеры — одна специализация".
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "specialization_number")
     private Specialization specialization;
 
@@ -54,6 +59,16 @@ public class Coach {
      */
     private String email;
 
+    /**
+     * Признак удаления тренера.
+     *
+     * Устанавливается сразу при удалении: тренер скрывается
+     * из списков и форм, а его строка и связанные записи удаляются
+     * пакетными запросами, см. {@link com.example.demo.service.PurgeService}.
+     */
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean deleted;
+
     /**
      * Список посещений, которые проводит тренер.
      *
@@ -61,6 +76,8 @@ public class Coach {
      * При удалении тренера все связанные посещения
      * также удаляются.
      */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(
             mappedBy = "coach",
             cascade = CascadeType.ALL,
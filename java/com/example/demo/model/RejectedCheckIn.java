@@ -0,0 +1,57 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Отметка турникета, посещение которой не удалось сохранить.
+ *
+ * Отметка переносится сюда после постоянной ошибки записи (например,
+ * клиент или тренер удалён, пока отметка ждала в очереди), а списанное
+ * за неё занятие возвращается в той же транзакции. Ссылок на клиента
+ * и тренера нет, чтобы строку можно было сохранить и после их удаления.
+ */
+@Entity
+@Table(name = "checkin_rejected")
+@Data
+public class RejectedCheckIn {
+
+    /**
+     * Порядковый номер отметки в журнале.
+     */
+    @Id
+    private Long seq;
+
+    /**
+     * Номер клиента.
+     */
+    private Integer clientNumber;
+
+    /**
+     * Номер тренера.
+     */
+    private Integer coachNumber;
+
+    /**
+     * Дата и время посещения.
+     */
+    private LocalDateTime visitDate;
+
+    /**
+     * Номер покупки, по которой было списано занятие.
+     */
+    private Integer purchaseNumber;
+
+    /**
+     * Сообщение об ошибке записи.
+     */
+    @Column(length = 1000)
+    private String error;
+
+    /**
+     * Дата и время отклонения отметки.
+     */
+    private LocalDateTime rejectedAt;
+}
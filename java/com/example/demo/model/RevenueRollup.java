@@ -0,0 +1,54 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Предрасчитанная выручка по специализации за месяц.
+ *
+ * Обновляется инкрементально при сохранении и удалении покупок
+ * и полностью пересчитывается заданием восстановления.
+ */
+@Entity
+@Table(name = "revenue_rollups")
+@IdClass(RevenueRollup.Key.class)
+@Data
+public class RevenueRollup {
+
+    /**
+     * Номер специализации абонемента.
+     */
+    @Id
+    @Column(name = "specialization_number")
+    private Integer specializationNumber;
+
+    /**
+     * Первый день месяца.
+     */
+    @Id
+    private LocalDate month;
+
+    /**
+     * Количество покупок за месяц.
+     */
+    private long purchasesCount;
+
+    /**
+     * Сумма стоимости купленных абонементов.
+     */
+    @Column(precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    /**
+     * Составной ключ: специализация и месяц.
+     */
+    @Data
+    public static class Key implements Serializable {
+        private Integer specializationNumber;
+        private LocalDate month;
+    }
+}
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -14,7 +16,10 @@ import java.util.List;
  * количестве доступных занятий и стоимости абонемента.
  */
 @Entity
-@Table(name = "season_tickets")
+@Table(
+        name = "season_tickets",
+        indexes = @Index(name = "idx_season_tickets_specialization", columnList = "specialization_number")
+)
 @Data
 public class SeasonTicket {
 
@@ -34,7 +39,7 @@ public class SeasonTicket {
      * Например: йога, плавание и т.д.
      * Один абонемент относится к одной специализации.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "specialization_number", nullable = false)
     private Specialization specialization;
 
@@ -55,6 +60,16 @@ public class SeasonTicket {
     @NotNull
     private BigDecimal price;
 
+    /**
+     * Признак удаления абонемента.
+     *
+     * Устанавливается сразу при удалении: абонемент скрывается
+     * из списков и форм, а его строка и связанные записи удаляются
+     * пакетными запросами, см. {@link com.example.demo.service.PurgeService}.
+     */
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean deleted;
+
     /**
      * Список покупок данного абонемента.
      *
@@ -62,6 +77,8 @@ public class SeasonTicket {
      * При удалении абонемента все связанные покупки
      * также удаляются.
      */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @OneToMany(
             mappedBy = "seasonTicket",
             cascade = CascadeType.ALL,
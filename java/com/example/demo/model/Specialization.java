@@ -1,6 +1,8 @@
 package com.example.demo.model;
 
 import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 
 /**
@@ -26,6 +28,17 @@ public class Specialization {
      *
      * Обязательное поле.
      */
+    @NotBlank(message = "Название специализации обязательно")
     @Column(nullable = false)
     private String name;
+
+    /**
+     * Наибольшее количество клиентов у одного тренера
+     * этой специализации в одном часовом слоте.
+     *
+     * Если не указано, количество клиентов в слоте не ограничено.
+     * Задаётся на странице специализаций.
+     */
+    @Min(value = 1, message = "Вместимость слота должна быть больше 0")
+    private Integer slotCapacity;
 }
@@ -10,7 +10,13 @@ import java.time.LocalDate;
  * Содержит информацию о клиенте, абонементе и дате покупки.
  */
 @Entity
-@Table(name = "ticket_purchases")
+@Table(
+        name = "ticket_purchases",
+        indexes = {
+                @Index(name = "idx_ticket_purchases_client_date", columnList = "client_number, purchase_date"),
+                @Index(name = "idx_ticket_purchases_ticket", columnList = "ticket_number")
+        }
+)
 @Data
 public class TicketPurchase {
 
@@ -29,7 +35,7 @@ public class TicketPurchase {
      *
      * Связь "много покупок — один клиент".
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_number")
     private Client client;
 
@@ -38,7 +44,7 @@ public class TicketPurchase {
      *
      * Связь "много покупок — один абонемент".
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ticket_number")
     private SeasonTicket seasonTicket;
 
@@ -46,4 +52,12 @@ public class TicketPurchase {
      * Дата покупки абонемента.
      */
     private LocalDate purchaseDate;
+
+    /**
+     * Количество оставшихся занятий.
+     *
+     * При покупке равно количеству занятий абонемента
+     * и уменьшается на единицу при каждой записи на занятие.
+     */
+    private Integer remainingSessions;
 }
@@ -12,7 +12,14 @@ import java.time.LocalDateTime;
  * дате и времени посещения, а также отметку о присутствии.
  */
 @Entity
-@Table(name = "visits")
+@Table(
+        name = "visits",
+        indexes = {
+                @Index(name = "idx_visits_date_number", columnList = "visit_date, visit_number"),
+                @Index(name = "idx_visits_coach_date_number", columnList = "coach_number, visit_date, visit_number"),
+                @Index(name = "idx_visits_client_date_number", columnList = "client_number, visit_date, visit_number")
+        }
+)
 @Data
 public class Visit {
 
@@ -31,7 +38,7 @@ public class Visit {
      *
      * Связь "много посещений — один клиент".
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_number")
     private Client client;
 
@@ -40,7 +47,7 @@ public class Visit {
      *
      * Связь "много посещений — один тренер".
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "coach_number")
     private Coach coach;
 
@@ -53,7 +60,37 @@ public class Visit {
     private LocalDateTime visitDate;
 
     /**
-     * Отметка о посещении (например, "присутствовал" или "отсутствовал").
+     * Отметка о посещении: пришёл клиент или нет.
+     *
+     * Хранится числовым кодом в столбце {@code attendance}.
+     * Прежний текстовый столбец {@code attended} переводится в него
+     * в фоне, см. {@link com.example.demo.service.AttendanceMigrationService}.
+     */
+    @Column(name = "attendance")
+    private Attendance attendance;
+
+    /**
+     * Начало часового слота занятия.
+     *
+     * Вместе с клиентом и тренером входит в уникальный ключ,
+     * который не даёт записать клиента на одно занятие дважды.
+     * Ключ создаётся не по сущности, а при запуске, так как
+     * у секционированной таблицы он есть только в секциях,
+     * см. {@link com.example.demo.service.VisitPartitionService}.
+     * У импортированных посещений не заполняется.
+     */
+    @Column(name = "slot_start")
+    private LocalDateTime slotStart;
+
+    /**
+     * Номер отметки турникета в журнале API записи на занятия.
+     *
+     * Не заполняется у посещений, записанных через форму.
+     * Повторное сохранение отметки при восстановлении журнала
+     * после сбоя отсекается таблицей {@code checkin_applied}.
+     * Индекс по номеру, как и ключ слота, создаётся при запуске,
+     * см. {@link com.example.demo.service.VisitPartitionService}.
      */
-    private String attended;
+    @Column(name = "checkin_seq")
+    private Long checkinSeq;
 }
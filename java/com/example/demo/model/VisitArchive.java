@@ -0,0 +1,40 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Посещения одного месяца, перенесённые в архив.
+ *
+ * Сами посещения хранятся частями в {@link VisitArchiveChunk}
+ * и не участвуют в запросах журнала, отчётов и записи на занятия.
+ */
+@Entity
+@Table(name = "visit_archives")
+@Data
+public class VisitArchive {
+
+    /**
+     * Первый день архивного месяца.
+     */
+    @Id
+    private LocalDate month;
+
+    /**
+     * Количество посещений в архиве.
+     */
+    private long rowsCount;
+
+    /**
+     * Количество частей архива.
+     */
+    private Integer chunksCount;
+
+    /**
+     * Дата и время переноса в архив.
+     */
+    private LocalDateTime archivedAt;
+}
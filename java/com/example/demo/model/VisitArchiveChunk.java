@@ -0,0 +1,52 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Часть архива посещений одного месяца.
+ *
+ * Каждая часть — самостоятельный CSV с заголовком в кодировке UTF-8,
+ * сжатый gzip, поэтому части можно читать и распаковывать по одной.
+ */
+@Entity
+@Table(name = "visit_archive_chunks")
+@IdClass(VisitArchiveChunk.Key.class)
+@Data
+public class VisitArchiveChunk {
+
+    /**
+     * Первый день архивного месяца.
+     */
+    @Id
+    private LocalDate month;
+
+    /**
+     * Порядковый номер части, начиная с нуля.
+     */
+    @Id
+    private Integer chunk;
+
+    /**
+     * Количество посещений в части.
+     */
+    private int rowsCount;
+
+    /**
+     * Посещения части: CSV в кодировке UTF-8, сжатый gzip.
+     */
+    @Basic(fetch = FetchType.LAZY)
+    private byte[] data;
+
+    /**
+     * Составной ключ: месяц и номер части.
+     */
+    @Data
+    public static class Key implements Serializable {
+        private LocalDate month;
+        private Integer chunk;
+    }
+}
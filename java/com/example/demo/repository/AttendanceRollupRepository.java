@@ -0,0 +1,76 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.AttendanceCell;
+import com.example.demo.model.AttendanceRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Интерфейс репозитория для сводной посещаемости тренеров.
+ */
+@Repository
+public interface AttendanceRollupRepository extends JpaRepository<AttendanceRollup, AttendanceRollup.Key> {
+
+    /**
+     * Прибавляет к посещаемости тренера за день одно посещение или вычитает его.
+     *
+     * @param coachNumber номер тренера
+     * @param day         день посещения
+     * @param visits      изменение количества записей
+     * @param attended    изменение количества пришедших
+     * @return количество изменённых строк
+     */
+    @Modifying
+    @Query(value = "insert into attendance_rollups (coach_number, day, visits_count, attended_count) "
+            + "values (:coachNumber, :day, :visits, :attended) "
+            + "on conflict (coach_number, day) do update set "
+            + "visits_count = attendance_rollups.visits_count + excluded.visits_count, "
+            + "attended_count = attendance_rollups.attended_count + excluded.attended_count", nativeQuery = true)
+    int add(@Param("coachNumber") Integer coachNumber, @Param("day") LocalDate day,
+            @Param("visits") int visits, @Param("attended") int attended);
+
+    /**
+     * Удаляет всю сводную посещаемость перед пересчётом.
+     */
+    @Modifying
+    @Query(value = "delete from attendance_rollups", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Пересчитывает сводную посещаемость по всем посещениям.
+     *
+     * @return количество созданных строк
+     */
+    @Modifying
+    @Query(value = "insert into attendance_rollups (coach_number, day, visits_count, attended_count) "
+            + "select v.coach_number, cast(v.visit_date as date), count(*), "
+            + "count(*) filter (where v.attendance = 1) "
+            + "from visits v where v.coach_number is not null and v.visit_date is not null "
+            + "group by v.coach_number, cast(v.visit_date as date)", nativeQuery = true)
+    int rebuild();
+
+    /**
+     * Блокирует таблицу от инкрементальных обновлений до конца транзакции.
+     */
+    @Modifying
+    @Query(value = "lock table attendance_rollups in exclusive mode", nativeQuery = true)
+    void lockTable();
+
+    /**
+     * Возвращает посещаемость тренеров по дням начиная с указанного.
+     *
+     * @param since самый ранний день
+     * @return посещаемость от новых дней к старым
+     */
+    @Query("select new com.example.demo.dto.AttendanceCell(co.fullName, r.day, r.visitsCount, r.attendedCount) "
+            + "from AttendanceRollup r, Coach co "
+            + "where co.coachNumber = r.coachNumber and r.day >= :since "
+            + "order by r.day desc, co.fullName")
+    List<AttendanceCell> findCells(@Param("since") LocalDate since);
+}
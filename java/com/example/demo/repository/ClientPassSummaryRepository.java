@@ -0,0 +1,93 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.ClientPassSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * Интерфейс репозитория для сводки абонементов клиентов.
+ *
+ * Сводка пересчитывается одним INSERT ... SELECT на группу клиентов:
+ * действующая покупка и остатки берутся по индексу покупок клиента,
+ * последнее посещение — по индексу посещений клиента. Строки,
+ * значения которых не изменились, не перезаписываются.
+ */
+@Repository
+public interface ClientPassSummaryRepository extends JpaRepository<ClientPassSummary, Integer> {
+
+    /**
+     * Вычисление строк сводки; условие отбора клиентов добавляется запросом.
+     */
+    String SELECT = "insert into client_pass_summary (client_number, purchase_number, purchase_date, "
+            + "sessions_used, sessions_left, last_visit, refreshed_at) "
+            + "select c.client_number, a.purchase_number, a.purchase_date, "
+            + "coalesce(s.used, 0), coalesce(s.remaining, 0), "
+            + "(select max(v.visit_date) from visits v where v.client_number = c.client_number), now() "
+            + "from clients c "
+            + "left join lateral (select p.purchase_number, p.purchase_date from ticket_purchases p "
+            + "where p.client_number = c.client_number and p.remaining_sessions > 0 "
+            + "order by p.purchase_date, p.purchase_number limit 1) a on true "
+            + "left join lateral (select sum(coalesce(t.sessions_count - p.remaining_sessions, 0)) as used, "
+            + "sum(coalesce(p.remaining_sessions, 0)) as remaining from ticket_purchases p "
+            + "left join season_tickets t on t.ticket_number = p.ticket_number "
+            + "where p.client_number = c.client_number) s on true "
+            + "where c.deleted = false ";
+
+    /**
+     * Обновление существующей строки, если её значения изменились.
+     */
+    String UPSERT = "on conflict (client_number) do update set "
+            + "purchase_number = excluded.purchase_number, purchase_date = excluded.purchase_date, "
+            + "sessions_used = excluded.sessions_used, sessions_left = excluded.sessions_left, "
+            + "last_visit = excluded.last_visit, refreshed_at = excluded.refreshed_at "
+            + "where (client_pass_summary.purchase_number, client_pass_summary.purchase_date, "
+            + "client_pass_summary.sessions_used, client_pass_summary.sessions_left, client_pass_summary.last_visit) "
+            + "is distinct from (excluded.purchase_number, excluded.purchase_date, "
+            + "excluded.sessions_used, excluded.sessions_left, excluded.last_visit)";
+
+    /**
+     * Пересчитывает сводку указанных клиентов.
+     *
+     * @param clients номера клиентов
+     * @return количество созданных и изменённых строк
+     */
+    @Modifying
+    @Query(value = SELECT + "and c.client_number in (:clients) " + UPSERT, nativeQuery = true)
+    int refresh(@Param("clients") Collection<Integer> clients);
+
+    /**
+     * Пересчитывает сводку всех клиентов.
+     *
+     * @return количество созданных и изменённых строк
+     */
+    @Modifying
+    @Query(value = SELECT + UPSERT, nativeQuery = true)
+    int refreshAll();
+
+    /**
+     * Удаляет строки указанных клиентов, если клиент удалён или скрыт.
+     *
+     * @param clients номера клиентов
+     * @return количество удалённых строк
+     */
+    @Modifying
+    @Query(value = "delete from client_pass_summary s where s.client_number in (:clients) "
+            + "and not exists (select 1 from clients c "
+            + "where c.client_number = s.client_number and c.deleted = false)", nativeQuery = true)
+    int deleteRemoved(@Param("clients") Collection<Integer> clients);
+
+    /**
+     * Удаляет строки всех удалённых и скрытых клиентов.
+     *
+     * @return количество удалённых строк
+     */
+    @Modifying
+    @Query(value = "delete from client_pass_summary s where not exists (select 1 from clients c "
+            + "where c.client_number = s.client_number and c.deleted = false)", nativeQuery = true)
+    int deleteAllRemoved();
+}
@@ -1,8 +1,17 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.ClientHit;
+import com.example.demo.dto.ClientSummary;
 import com.example.demo.model.Client;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Интерфейс репозитория для сущности Client.
@@ -10,4 +19,52 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Integer> {
-}
\ No newline at end of file
+
+    /**
+     * Возвращает поля клиентов, по которым выполняется поиск.
+     *
+     * @return все клиенты без связанных коллекций
+     */
+    @Query("select new com.example.demo.dto.ClientHit(c.clientNumber, c.fullName, c.phone, c.email) "
+            + "from Client c where c.deleted = false")
+    List<ClientHit> findAllHits();
+
+    /**
+     * Возвращает клиентов, не помеченных на удаление.
+     *
+     * @return клиенты в порядке номеров
+     */
+    @Transactional(readOnly = true)
+    @Query("select c from Client c where c.deleted = false order by c.clientNumber")
+    List<Client> findAllVisible();
+
+    /**
+     * Возвращает сводку по клиенту для страницы профиля.
+     *
+     * Количество и дата последнего посещения читаются по индексу
+     * (client_number, visit_date, visit_number), остаток занятий —
+     * по индексу покупок клиента; коллекции посещений и покупок
+     * не загружаются.
+     *
+     * @param id номер клиента
+     * @return сводка или пустое значение, если клиент не найден или удалён
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.example.demo.dto.ClientSummary(c.clientNumber, c.fullName, c.phone, c.email, "
+            + "(select count(v) from Visit v where v.client = c), "
+            + "(select coalesce(sum(p.remainingSessions), 0) from TicketPurchase p where p.client = c), "
+            + "(select max(v.visitDate) from Visit v where v.client = c)) "
+            + "from Client c where c.clientNumber = :id and c.deleted = false")
+    Optional<ClientSummary> findSummary(@Param("id") Integer id);
+
+    /**
+     * Скрывает клиента до его окончательного удаления.
+     *
+     * @param id номер клиента
+     * @return количество изменённых строк
+     */
+    @Transactional
+    @Modifying
+    @Query("update Client c set c.deleted = true where c.clientNumber = :id")
+    int hide(@Param("id") Integer id);
+}
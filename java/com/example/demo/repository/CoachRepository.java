@@ -1,12 +1,53 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.CoachRow;
 import com.example.demo.model.Coach;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * Интерфейс репозитория для сущности Coach.
  */
 @Repository
 public interface CoachRepository extends JpaRepository<Coach, Integer> {
-}
\ No newline at end of file
+
+    /**
+     * Возвращает строки списка тренеров вместе с названием специализации.
+     *
+     * @return строки списка тренеров
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.example.demo.dto.CoachRow(c.coachNumber, c.fullName, s.name) "
+            + "from Coach c left join c.specialization s "
+            + "where c.deleted = false "
+            + "order by c.coachNumber")
+    List<CoachRow> findAllRows();
+
+    /**
+     * Возвращает тренеров с загруженной специализацией
+     * для выпадающих списков форм.
+     *
+     * @return тренеры с загруженной специализацией
+     */
+    @EntityGraph(attributePaths = "specialization")
+    @Query("select c from Coach c where c.deleted = false")
+    List<Coach> findAllWithSpecialization();
+
+    /**
+     * Скрывает тренера до его окончательного удаления.
+     *
+     * @param id номер тренера
+     * @return количество изменённых строк
+     */
+    @Transactional
+    @Modifying
+    @Query("update Coach c set c.deleted = true where c.coachNumber = :id")
+    int hide(@Param("id") Integer id);
+}
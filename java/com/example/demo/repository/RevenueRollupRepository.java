@@ -0,0 +1,80 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.RevenueCell;
+import com.example.demo.model.RevenueRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Интерфейс репозитория для сводной выручки по специализациям.
+ */
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollup, RevenueRollup.Key> {
+
+    /**
+     * Прибавляет к выручке месяца покупку абонемента или вычитает её.
+     *
+     * Специализация и цена берутся из абонемента одним
+     * INSERT ... ON CONFLICT, поэтому одновременные покупки
+     * не теряют обновлений друг друга.
+     *
+     * @param ticketNumber номер абонемента
+     * @param month        первый день месяца покупки
+     * @param sign         1 при добавлении покупки, -1 при удалении
+     * @return количество изменённых строк
+     */
+    @Modifying
+    @Query(value = "insert into revenue_rollups (specialization_number, month, purchases_count, revenue) "
+            + "select t.specialization_number, :month, :sign, :sign * coalesce(t.price, 0) "
+            + "from season_tickets t where t.ticket_number = :ticketNumber and t.specialization_number is not null "
+            + "on conflict (specialization_number, month) do update set "
+            + "purchases_count = revenue_rollups.purchases_count + excluded.purchases_count, "
+            + "revenue = revenue_rollups.revenue + excluded.revenue", nativeQuery = true)
+    int add(@Param("ticketNumber") Integer ticketNumber, @Param("month") LocalDate month, @Param("sign") int sign);
+
+    /**
+     * Удаляет всю сводную выручку перед пересчётом.
+     */
+    @Modifying
+    @Query(value = "delete from revenue_rollups", nativeQuery = true)
+    void deleteAllRows();
+
+    /**
+     * Пересчитывает сводную выручку по всем покупкам.
+     *
+     * @return количество созданных строк
+     */
+    @Modifying
+    @Query(value = "insert into revenue_rollups (specialization_number, month, purchases_count, revenue) "
+            + "select t.specialization_number, cast(date_trunc('month', p.purchase_date) as date), "
+            + "count(*), coalesce(sum(t.price), 0) "
+            + "from ticket_purchases p join season_tickets t on t.ticket_number = p.ticket_number "
+            + "where p.purchase_date is not null and t.specialization_number is not null "
+            + "group by t.specialization_number, cast(date_trunc('month', p.purchase_date) as date)", nativeQuery = true)
+    int rebuild();
+
+    /**
+     * Блокирует таблицу от инкрементальных обновлений до конца транзакции.
+     */
+    @Modifying
+    @Query(value = "lock table revenue_rollups in exclusive mode", nativeQuery = true)
+    void lockTable();
+
+    /**
+     * Возвращает выручку по месяцам начиная с указанного.
+     *
+     * @param since первый день самого раннего месяца
+     * @return выручка от новых месяцев к старым
+     */
+    @Query("select new com.example.demo.dto.RevenueCell(s.name, r.month, r.purchasesCount, r.revenue) "
+            + "from RevenueRollup r, Specialization s "
+            + "where s.specializationNumber = r.specializationNumber and r.month >= :since "
+            + "order by r.month desc, s.name")
+    List<RevenueCell> findCells(@Param("since") LocalDate since);
+}
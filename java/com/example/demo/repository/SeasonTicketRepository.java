@@ -1,12 +1,53 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.TicketRow;
 import com.example.demo.model.SeasonTicket;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * Интерфейс репозитория для сущности SeasonTicket.
  */
 @Repository
 public interface SeasonTicketRepository extends JpaRepository<SeasonTicket, Integer> {
-}
\ No newline at end of file
+
+    /**
+     * Возвращает карточки абонементов вместе с названием специализации.
+     *
+     * @return карточки абонементов
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.example.demo.dto.TicketRow(t.ticketNumber, s.name, t.price, t.sessionsCount) "
+            + "from SeasonTicket t left join t.specialization s "
+            + "where t.deleted = false "
+            + "order by t.ticketNumber")
+    List<TicketRow> findAllRows();
+
+    /**
+     * Возвращает абонементы с загруженной специализацией
+     * для выпадающих списков форм.
+     *
+     * @return абонементы с загруженной специализацией
+     */
+    @EntityGraph(attributePaths = "specialization")
+    @Query("select t from SeasonTicket t where t.deleted = false")
+    List<SeasonTicket> findAllWithSpecialization();
+
+    /**
+     * Скрывает абонемент до его окончательного удаления.
+     *
+     * @param id номер абонемента
+     * @return количество изменённых строк
+     */
+    @Transactional
+    @Modifying
+    @Query("update SeasonTicket t set t.deleted = true where t.ticketNumber = :id")
+    int hide(@Param("id") Integer id);
+}
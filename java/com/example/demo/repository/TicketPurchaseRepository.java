@@ -1,12 +1,159 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.Entitlement;
+import com.example.demo.dto.PurchaseRow;
 import com.example.demo.model.TicketPurchase;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Интерфейс репозитория для сущности TicketPurchase.
  */
 @Repository
 public interface TicketPurchaseRepository extends JpaRepository<TicketPurchase, Integer> {
-}
\ No newline at end of file
+
+    /**
+     * Возвращает покупки клиента, по которым ещё остались занятия,
+     * в порядке даты покупки.
+     *
+     * Запрос выбирает только номер и дату покупки и использует
+     * индекс по (client_number, purchase_date), поэтому не загружает
+     * ни клиента, ни абонемент. Клиент проверяется только по первичному
+     * ключу: у скрытого (удаляемого) клиента прав на посещение нет.
+     * Для получения действующей покупки достаточно передать
+     * {@code PageRequest.of(0, 1)}.
+     *
+     * @param clientNumber номер клиента
+     * @param pageable     ограничение количества строк
+     * @return права клиента на посещение
+     */
+    @Query("select new com.example.demo.dto.Entitlement(p.purchaseNumber, p.purchaseDate) "
+            + "from TicketPurchase p "
+            + "where p.client.clientNumber = :clientNumber and p.client.deleted = false "
+            + "and p.remainingSessions > 0 "
+            + "order by p.purchaseDate, p.purchaseNumber")
+    List<Entitlement> findEntitlements(@Param("clientNumber") Integer clientNumber, Pageable pageable);
+
+    /**
+     * Возвращает название специализации купленного абонемента.
+     *
+     * @param purchaseNumber номер покупки
+     * @return название специализации
+     */
+    @Query("select s.name from TicketPurchase p join p.seasonTicket t join t.specialization s "
+            + "where p.purchaseNumber = :purchaseNumber")
+    String findSpecializationName(@Param("purchaseNumber") Integer purchaseNumber);
+
+    /**
+     * Проверяет, покупал ли клиент хотя бы один абонемент.
+     *
+     * @param clientNumber номер клиента
+     * @return true, если у клиента есть покупки
+     */
+    boolean existsByClientClientNumber(Integer clientNumber);
+
+    /**
+     * Списывает одно занятие с покупки.
+     *
+     * Списание выполняется одним условным UPDATE, поэтому два
+     * одновременных списания не могут оба пройти по последнему
+     * занятию: второе увидит уже уменьшенный остаток и не изменит строку.
+     *
+     * @param purchaseNumber номер покупки
+     * @return 1, если занятие списано, или 0, если занятий не осталось
+     */
+    @Transactional
+    @Modifying
+    @Query("update TicketPurchase p set p.remainingSessions = p.remainingSessions - 1 "
+            + "where p.purchaseNumber = :purchaseNumber and p.remainingSessions > 0")
+    int consumeSession(@Param("purchaseNumber") Integer purchaseNumber);
+
+    /**
+     * Заполняет остаток занятий у покупок, созданных до появления
+     * этого поля, за вычетом уже сделанных посещений.
+     *
+     * Посещения не ссылаются на покупку, поэтому они распределяются
+     * по покупкам клиента в том же порядке, в каком списываются
+     * занятия при записи: от ранней покупки к поздней. Покупка получает
+     * остаток {@code max(0, min(занятий, занятий нарастающим итогом
+     * по клиенту - посещений клиента))}: ранние покупки исчерпываются
+     * первыми, а занятия сверх всех покупок ни с одной не списываются.
+     *
+     * @return количество обновлённых покупок
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update ticket_purchases p set remaining_sessions = ("
+            + "select case when x.sessions_count is null then null else greatest(0, least(x.sessions_count, "
+            + "x.total - (select count(*) from visits v where v.client_number = x.client_number))) end "
+            + "from (select tp.purchase_number, tp.client_number, t.sessions_count, "
+            + "sum(t.sessions_count) over (partition by tp.client_number "
+            + "order by tp.purchase_date, tp.purchase_number) as total "
+            + "from ticket_purchases tp join season_tickets t on t.ticket_number = tp.ticket_number) x "
+            + "where x.purchase_number = p.purchase_number) "
+            + "where p.remaining_sessions is null", nativeQuery = true)
+    int initRemainingSessions();
+
+    /**
+     * Возвращает строки списка продаж, от новых к старым.
+     *
+     * Клиент, абонемент и специализация присоединяются
+     * в том же запросе, поэтому страница выполняет один SELECT.
+     *
+     * @return строки списка продаж
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.example.demo.dto.PurchaseRow("
+            + "p.purchaseNumber, p.purchaseDate, c.fullName, s.name, t.price, p.remainingSessions) "
+            + "from TicketPurchase p left join p.client c left join p.seasonTicket t left join t.specialization s "
+            + "order by p.purchaseDate desc, p.purchaseNumber desc")
+    List<PurchaseRow> findAllRows();
+
+    /**
+     * Возвращает страницу покупок клиента, от новых к старым.
+     *
+     * Страница читается по индексу (client_number, purchase_date)
+     * без подсчёта общего количества покупок.
+     *
+     * @param clientNumber номер клиента
+     * @param pageable     номер и размер страницы
+     * @return страница строк списка продаж
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.example.demo.dto.PurchaseRow("
+            + "p.purchaseNumber, p.purchaseDate, c.fullName, s.name, t.price, p.remainingSessions) "
+            + "from TicketPurchase p left join p.client c left join p.seasonTicket t left join t.specialization s "
+            + "where p.client.clientNumber = :clientNumber "
+            + "order by p.purchaseDate desc, p.purchaseNumber desc")
+    Slice<PurchaseRow> findClientRows(@Param("clientNumber") Integer clientNumber, Pageable pageable);
+
+    /**
+     * Возвращает все покупки потоком для выгрузки.
+     *
+     * Строки читаются курсором по 1000 штук, поэтому поток нужно
+     * обрабатывать внутри транзакции и закрывать после использования.
+     *
+     * @return поток строк списка продаж в порядке номеров покупок
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.example.demo.dto.PurchaseRow("
+            + "p.purchaseNumber, p.purchaseDate, c.fullName, s.name, t.price, p.remainingSessions) "
+            + "from TicketPurchase p left join p.client c left join p.seasonTicket t left join t.specialization s "
+            + "order by p.purchaseNumber")
+    Stream<PurchaseRow> streamRows();
+}
@@ -1,12 +1,261 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.OccupancyCell;
+import com.example.demo.dto.VisitRow;
 import com.example.demo.model.Visit;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * Интерфейс репозитория для сущности Visit.
+ *
+ * Методы постраничного просмотра журнала используют keyset-пагинацию
+ * по паре (visitDate, visitNumber): страница начинается строго после
+ * курсора, поэтому стоимость запроса не зависит от глубины листания.
+ * Условие {@code visitDate <= :cursorDate} дублирует курсор, чтобы
+ * PostgreSQL использовал его как границу диапазона индекса.
+ *
+ * Страницы журнала возвращаются как {@link VisitRow}: имена клиента
+ * и тренера выбираются соединением в том же запросе.
  */
 @Repository
 public interface VisitRepository extends JpaRepository<Visit, Integer> {
-}
\ No newline at end of file
+
+    /**
+     * Выражение выборки строки журнала.
+     */
+    String ROW = "new com.example.demo.dto.VisitRow("
+            + "v.visitNumber, v.visitDate, c.fullName, co.fullName, v.attendance) ";
+
+    /**
+     * Возвращает посещения, более ранние чем курсор,
+     * от новых к старым.
+     *
+     * @param from       начало периода (включительно)
+     * @param to         конец периода (не включительно)
+     * @param cursorDate дата посещения курсора
+     * @param cursorId   номер посещения курсора
+     * @param limit      размер страницы
+     * @return страница посещений
+     */
+    @Query("select " + ROW + "from Visit v left join v.client c left join v.coach co "
+            + "where v.visitDate >= :from and v.visitDate < :to "
+            + "and v.visitDate <= :cursorDate "
+            + "and (v.visitDate < :cursorDate or v.visitNumber < :cursorId) "
+            + "order by v.visitDate desc, v.visitNumber desc")
+    List<VisitRow> findPageBefore(@Param("from") LocalDateTime from,
+                               @Param("to") LocalDateTime to,
+                               @Param("cursorDate") LocalDateTime cursorDate,
+                               @Param("cursorId") Integer cursorId,
+                               Pageable limit);
+
+    /**
+     * Возвращает посещения, более поздние чем курсор,
+     * от старых к новым.
+     *
+     * @param from       начало периода (включительно)
+     * @param to         конец периода (не включительно)
+     * @param cursorDate дата посещения курсора
+     * @param cursorId   номер посещения курсора
+     * @param limit      размер страницы
+     * @return страница посещений
+     */
+    @Query("select " + ROW + "from Visit v left join v.client c left join v.coach co "
+            + "where v.visitDate >= :from and v.visitDate < :to "
+            + "and v.visitDate >= :cursorDate "
+            + "and (v.visitDate > :cursorDate or v.visitNumber > :cursorId) "
+            + "order by v.visitDate asc, v.visitNumber asc")
+    List<VisitRow> findPageAfter(@Param("from") LocalDateTime from,
+                              @Param("to") LocalDateTime to,
+                              @Param("cursorDate") LocalDateTime cursorDate,
+                              @Param("cursorId") Integer cursorId,
+                              Pageable limit);
+
+    /**
+     * Возвращает посещения тренера, более ранние чем курсор,
+     * от новых к старым.
+     *
+     * @param coachNumber номер тренера
+     * @param from        начало периода (включительно)
+     * @param to          конец периода (не включительно)
+     * @param cursorDate  дата посещения курсора
+     * @param cursorId    номер посещения курсора
+     * @param limit       размер страницы
+     * @return страница посещений
+     */
+    @Query("select " + ROW + "from Visit v left join v.client c left join v.coach co "
+            + "where v.coach.coachNumber = :coachNumber "
+            + "and v.visitDate >= :from and v.visitDate < :to "
+            + "and v.visitDate <= :cursorDate "
+            + "and (v.visitDate < :cursorDate or v.visitNumber < :cursorId) "
+            + "order by v.visitDate desc, v.visitNumber desc")
+    List<VisitRow> findCoachPageBefore(@Param("coachNumber") Integer coachNumber,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    @Param("cursorDate") LocalDateTime cursorDate,
+                                    @Param("cursorId") Integer cursorId,
+                                    Pageable limit);
+
+    /**
+     * Возвращает посещения тренера, более поздние чем курсор,
+     * от старых к новым.
+     *
+     * @param coachNumber номер тренера
+     * @param from        начало периода (включительно)
+     * @param to          конец периода (не включительно)
+     * @param cursorDate  дата посещения курсора
+     * @param cursorId    номер посещения курсора
+     * @param limit       размер страницы
+     * @return страница посещений
+     */
+    @Query("select " + ROW + "from Visit v left join v.client c left join v.coach co "
+            + "where v.coach.coachNumber = :coachNumber "
+            + "and v.visitDate >= :from and v.visitDate < :to "
+            + "and v.visitDate >= :cursorDate "
+            + "and (v.visitDate > :cursorDate or v.visitNumber > :cursorId) "
+            + "order by v.visitDate asc, v.visitNumber asc")
+    List<VisitRow> findCoachPageAfter(@Param("coachNumber") Integer coachNumber,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to,
+                                   @Param("cursorDate") LocalDateTime cursorDate,
+                                   @Param("cursorId") Integer cursorId,
+                                   Pageable limit);
+
+    /**
+     * Возвращает посещения клиента, более ранние чем курсор,
+     * от новых к старым.
+     *
+     * Читает только отрезок индекса (client_number, visit_date, visit_number),
+     * поэтому стоимость страницы не зависит от длины истории клиента.
+     *
+     * @param clientNumber номер клиента
+     * @param cursorDate   дата посещения курсора
+     * @param cursorId     номер посещения курсора
+     * @param limit        размер страницы
+     * @return страница посещений
+     */
+    @Query("select " + ROW + "from Visit v left join v.client c left join v.coach co "
+            + "where v.client.clientNumber = :clientNumber "
+            + "and v.visitDate <= :cursorDate "
+            + "and (v.visitDate < :cursorDate or v.visitNumber < :cursorId) "
+            + "order by v.visitDate desc, v.visitNumber desc")
+    List<VisitRow> findClientPageBefore(@Param("clientNumber") Integer clientNumber,
+                                        @Param("cursorDate") LocalDateTime cursorDate,
+                                        @Param("cursorId") Integer cursorId,
+                                        Pageable limit);
+
+    /**
+     * Возвращает количество записей клиента за период.
+     *
+     * @param clientNumber номер клиента
+     * @param from         начало периода (включительно)
+     * @param to           конец периода (не включительно)
+     * @return количество записей
+     */
+    @Query("select count(v) from Visit v where v.client.clientNumber = :clientNumber "
+            + "and v.visitDate >= :from and v.visitDate < :to")
+    long countClientVisits(@Param("clientNumber") Integer clientNumber,
+                           @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to);
+
+    /**
+     * Возвращает количество неявок клиента за период.
+     *
+     * Читает частичный индекс {@code idx_visits_client_no_show},
+     * в который попадают только неявки.
+     *
+     * @param clientNumber номер клиента
+     * @param from         начало периода (включительно)
+     * @param to           конец периода (не включительно)
+     * @return количество неявок
+     */
+    @Query("select count(v) from Visit v where v.client.clientNumber = :clientNumber "
+            + "and v.attendance = com.example.demo.model.Attendance.MISSED "
+            + "and v.visitDate >= :from and v.visitDate < :to")
+    long countClientNoShows(@Param("clientNumber") Integer clientNumber,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to);
+
+    /**
+     * Возвращает количество записей к тренеру за период.
+     *
+     * @param coachNumber номер тренера
+     * @param from        начало периода (включительно)
+     * @param to          конец периода (не включительно)
+     * @return количество записей
+     */
+    @Query("select count(v) from Visit v where v.coach.coachNumber = :coachNumber "
+            + "and v.visitDate >= :from and v.visitDate < :to")
+    long countCoachVisits(@Param("coachNumber") Integer coachNumber,
+                          @Param("from") LocalDateTime from,
+                          @Param("to") LocalDateTime to);
+
+    /**
+     * Возвращает количество неявок на занятия тренера за период.
+     *
+     * Читает частичный индекс {@code idx_visits_coach_no_show},
+     * в который попадают только неявки.
+     *
+     * @param coachNumber номер тренера
+     * @param from        начало периода (включительно)
+     * @param to          конец периода (не включительно)
+     * @return количество неявок
+     */
+    @Query("select count(v) from Visit v where v.coach.coachNumber = :coachNumber "
+            + "and v.attendance = com.example.demo.model.Attendance.MISSED "
+            + "and v.visitDate >= :from and v.visitDate < :to")
+    long countCoachNoShows(@Param("coachNumber") Integer coachNumber,
+                           @Param("from") LocalDateTime from,
+                           @Param("to") LocalDateTime to);
+
+    /**
+     * Возвращает посещения за период потоком для выгрузки.
+     *
+     * Строки читаются курсором по 1000 штук, поэтому поток нужно
+     * обрабатывать внутри транзакции и закрывать после использования.
+     *
+     * @param from начало периода (включительно)
+     * @param to   конец периода (не включительно)
+     * @return поток строк журнала от старых к новым
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select " + ROW + "from Visit v left join v.client c left join v.coach co "
+            + "where v.visitDate >= :from and v.visitDate < :to "
+            + "order by v.visitDate, v.visitNumber")
+    Stream<VisitRow> streamRows(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Возвращает количество посещений тренера по дням недели и часам.
+     *
+     * Группировка выполняется в базе данных, а условие по тренеру
+     * и диапазону дат читает только нужный отрезок индекса
+     * (coach_number, visit_date, visit_number), поэтому время запроса
+     * зависит от загрузки тренера за период, а не от размера журнала.
+     *
+     * @param coachNumber номер тренера
+     * @param from        начало периода (включительно)
+     * @param to          конец периода (не включительно)
+     * @return ячейки загрузки; пустые ячейки не возвращаются
+     */
+    @Query("select new com.example.demo.dto.OccupancyCell("
+            + "extract(day of week from v.visitDate), extract(hour from v.visitDate), count(v)) "
+            + "from Visit v "
+            + "where v.coach.coachNumber = :coachNumber and v.visitDate >= :from and v.visitDate < :to "
+            + "group by extract(day of week from v.visitDate), extract(hour from v.visitDate)")
+    List<OccupancyCell> countByWeekdayAndHour(@Param("coachNumber") Integer coachNumber,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to);
+}
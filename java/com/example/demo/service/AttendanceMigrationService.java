@@ -0,0 +1,191 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Attendance;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Перевод текстовой отметки о посещении в числовую.
+ *
+ * До появления {@link Attendance} отметка хранилась текстом
+ * в столбце {@code visits.attended}. Если этот столбец есть,
+ * после запуска приложения фоновый поток переводит его значения
+ * в столбец {@code attendance} порциями по
+ * {@code fitness.visits.attendance-migration.chunk-rows} номеров
+ * посещений, каждая порция — отдельной короткой транзакцией.
+ * Переведённый текст очищается, а когда непереведённых строк
+ * не остаётся, столбец {@code attended} удаляется и сводная
+ * посещаемость пересчитывается. Прерванный перевод продолжается
+ * при следующем запуске.
+ *
+ * В PostgreSQL также создаются частичные индексы неявок
+ * по клиенту и по тренеру: в них попадают только строки
+ * с отметкой {@link Attendance#MISSED}.
+ */
+@Service
+public class AttendanceMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttendanceMigrationService.class);
+
+    /**
+     * Прежний текстовый столбец отметки.
+     */
+    private static final String LEGACY_COLUMN = "attended";
+
+    /**
+     * Шаблон JDBC для перевода порций и DDL.
+     */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /**
+     * Сервис сводных показателей, пересчитываемых после перевода.
+     */
+    @Autowired
+    private RollupService rollupService;
+
+    /**
+     * Количество номеров посещений в одной порции перевода.
+     */
+    @Value("${fitness.visits.attendance-migration.chunk-rows:10000}")
+    private int chunkRows;
+
+    /**
+     * Пауза между порциями, чтобы перевод не вытеснял рабочую нагрузку.
+     */
+    @Value("${fitness.visits.attendance-migration.pause:PT0.05S}")
+    private Duration pause;
+
+    /**
+     * Поток фонового перевода.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "attendance-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Создаёт индексы неявок и запускает перевод, если остался
+     * прежний столбец. Выполняется после секционирования посещений.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (isPostgres()) {
+            jdbc.execute("create index if not exists idx_visits_client_no_show "
+                    + "on visits (client_number, visit_date) where attendance = 0");
+            jdbc.execute("create index if not exists idx_visits_coach_no_show "
+                    + "on visits (coach_number, visit_date) where attendance = 0");
+        }
+        if (hasLegacyColumn("visits")) {
+            executor.submit(this::migrate);
+        }
+    }
+
+    /**
+     * Останавливает фоновый перевод; он продолжится при следующем запуске.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Переводит текстовые отметки таблицы или секции посещений.
+     *
+     * Используется фоновым переводом и архивированием секций,
+     * чтобы в архив не попали непереведённые отметки.
+     *
+     * @param table таблица или секция посещений
+     * @return количество переведённых строк или -1, если перевод прерван
+     */
+    public long convert(String table) {
+        if (!hasLegacyColumn(table)) {
+            return 0;
+        }
+        String attendedTexts = Stream.concat(Attendance.ATTENDED_TEXTS.stream(),
+                        Stream.of(Attendance.ATTENDED.name().toLowerCase()))
+                .map(text -> "'" + text + "'")
+                .collect(Collectors.joining(", "));
+        String sql = "update " + table + " set attendance = case when lower(trim(" + LEGACY_COLUMN + ")) in ("
+                + attendedTexts + ") then " + Attendance.ATTENDED.getCode()
+                + " when trim(" + LEGACY_COLUMN + ") <> '' then " + Attendance.MISSED.getCode() + " end, "
+                + LEGACY_COLUMN + " = null "
+                + "where visit_number > ? and visit_number <= ? and " + LEGACY_COLUMN + " is not null";
+
+        Long from = jdbc.queryForObject("select min(visit_number) - 1 from " + table
+                + " where " + LEGACY_COLUMN + " is not null", Long.class);
+        Long to = jdbc.queryForObject("select max(visit_number) from " + table
+                + " where " + LEGACY_COLUMN + " is not null", Long.class);
+        if (from == null || to == null) {
+            return 0;
+        }
+        long converted = 0;
+        for (long start = from; start < to; start += chunkRows) {
+            if (Thread.currentThread().isInterrupted()) {
+                return -1;
+            }
+            converted += jdbc.update(sql, start, Math.min(start + chunkRows, to));
+            if (!pause.isZero()) {
+                try {
+                    Thread.sleep(pause.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+            }
+        }
+        return converted;
+    }
+
+    /**
+     * Переводит все посещения, удаляет прежний столбец
+     * и пересчитывает сводную посещаемость.
+     */
+    private void migrate() {
+        long started = System.currentTimeMillis();
+        try {
+            long converted = convert("visits");
+            if (converted < 0) {
+                return;
+            }
+            Long left = jdbc.queryForObject("select count(*) from visits where " + LEGACY_COLUMN + " is not null",
+                    Long.class);
+            if (left != null && left > 0) {
+                log.warn("Отметки о посещении переведены не полностью: осталось {} строк", left);
+                return;
+            }
+            jdbc.execute("alter table visits drop column " + LEGACY_COLUMN);
+            rollupService.rebuild();
+            log.info("Отметки о посещении переведены в числовой столбец: {} строк за {} мс",
+                    converted, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.error("Не удалось перевести отметки о посещении", e);
+        }
+    }
+
+    private boolean hasLegacyColumn(String table) {
+        Integer columns = jdbc.queryForObject("select count(*) from information_schema.columns "
+                + "where lower(table_name) = ? and lower(column_name) = ?", Integer.class, table, LEGACY_COLUMN);
+        return columns != null && columns > 0;
+    }
+
+    private boolean isPostgres() {
+        String product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+}
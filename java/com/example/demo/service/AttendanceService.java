@@ -0,0 +1,61 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AttendanceStats;
+import com.example.demo.repository.VisitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Сервис неявок и посещаемости клиентов и тренеров.
+ *
+ * Количество записей считается по индексам (client_number, visit_date, ...)
+ * и (coach_number, visit_date, ...), неявки — по частичным индексам,
+ * содержащим только строки с отметкой {@code MISSED}. Оба запроса
+ * читают лишь отрезок индекса за период и не обращаются к тексту
+ * отметок, поэтому не зависят от размера таблицы посещений.
+ */
+@Service
+public class AttendanceService {
+
+    /**
+     * Репозиторий для работы с посещениями.
+     */
+    @Autowired
+    private VisitRepository visitRepo;
+
+    /**
+     * Возвращает неявки и посещаемость клиента за период.
+     *
+     * @param clientNumber номер клиента
+     * @param from         первый день периода или null
+     * @param to           последний день периода или null
+     * @return записи и неявки клиента
+     */
+    @Transactional(readOnly = true)
+    public AttendanceStats clientStats(Integer clientNumber, LocalDate from, LocalDate to) {
+        LocalDateTime start = VisitJournalService.startOf(from);
+        LocalDateTime end = VisitJournalService.endOf(to);
+        return new AttendanceStats(visitRepo.countClientVisits(clientNumber, start, end),
+                visitRepo.countClientNoShows(clientNumber, start, end));
+    }
+
+    /**
+     * Возвращает неявки и посещаемость занятий тренера за период.
+     *
+     * @param coachNumber номер тренера
+     * @param from        первый день периода или null
+     * @param to          последний день периода или null
+     * @return записи и неявки на занятия тренера
+     */
+    @Transactional(readOnly = true)
+    public AttendanceStats coachStats(Integer coachNumber, LocalDate from, LocalDate to) {
+        LocalDateTime start = VisitJournalService.startOf(from);
+        LocalDateTime end = VisitJournalService.endOf(to);
+        return new AttendanceStats(visitRepo.countCoachVisits(coachNumber, start, end),
+                visitRepo.countCoachNoShows(coachNumber, start, end));
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ImportReport;
+import com.example.demo.model.Attendance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервис пакетного импорта клиентов, покупок и посещений из CSV.
+ *
+ * Файлы читаются потоково по одной записи и записываются
+ * пакетами JDBC по {@value #BATCH_SIZE} строк в обход Hibernate:
+ * при {@code GenerationType.IDENTITY} Hibernate выполняет
+ * отдельный INSERT на каждую сущность.
+ *
+ * Номера новых клиентов заранее выделяются из последовательности
+ * столбца идентичности одним запросом на пакет, поэтому соответствие
+ * «старый номер → новый номер» известно до вставки и используется
+ * при импорте покупок и посещений. В памяти хранится только эта
+ * карта и битовые множества существующих номеров; объём памяти
+ * не зависит от количества покупок и посещений в файлах.
+ *
+ * Все файлы импортируются в одной транзакции: если вставка пакета
+ * не удалась, не сохраняется ничего, и импорт можно повторить
+ * с теми же файлами. Строки с ошибками в данных пропускаются
+ * и не прерывают импорт.
+ *
+ * Ожидаемые столбцы (порядок произвольный, заголовок обязателен):
+ * <ul>
+ *   <li>клиенты: {@code id, full_name, birth_date, phone, email};</li>
+ *   <li>покупки: {@code client_id | client_number, ticket_number, purchase_date[, remaining_sessions]};</li>
+ *   <li>посещения: {@code client_id | client_number, coach_number, visit_date, attended}.</li>
+ * </ul>
+ * Отметка {@code attended} разбирается {@link Attendance#parse(String)}:
+ * "Пришел", "Да" и "присутствовал" означают, что клиент пришёл.
+ * Значение {@code client_id} — старый номер клиента из файла клиентов
+ * этого же запуска; строка с номером, которого в файле не было,
+ * пропускается, так как старый номер может совпасть с номером
+ * другого, уже существующего клиента. На существующего клиента
+ * строка ссылается явно, столбцом {@code client_number}.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImportService.class);
+
+    /**
+     * Количество строк в одном пакете вставки.
+     */
+    public static final int BATCH_SIZE = 1_000;
+
+    /**
+     * Сколько ошибочных строк подробно записывать в журнал на один файл.
+     */
+    private static final int LOGGED_ERRORS = 20;
+
+    /**
+     * Шаблон JDBC для пакетной вставки.
+     */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /**
+     * Шаблон транзакций для импорта всех файлов целиком.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Кэш прав клиентов на посещение, сбрасывается после импорта.
+     */
+    @Autowired
+    private EntitlementCache entitlementCache;
+
+    /**
+     * Индекс поиска клиентов, перестраиваемый после импорта.
+     */
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
+    /**
+     * Сервис сводных показателей, пересчитываемых после импорта.
+     */
+    @Autowired
+    private RollupService rollupService;
+
+    /**
+     * Сервис тепловой карты загрузки тренеров.
+     */
+    @Autowired
+    private OccupancyService occupancyService;
+
+    /**
+     * Версии таблиц для условных ответов страниц списков.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Сервис сводки абонементов клиентов.
+     */
+    @Autowired
+    private PassSummaryService passSummaryService;
+
+    /**
+     * Учёт занятых мест у тренеров по слотам.
+     */
+    @Autowired
+    private SlotReservations slotReservations;
+
+    /**
+     * Импортирует переданные файлы в порядке «клиенты → покупки → посещения».
+     *
+     * @param clients   файл клиентов или null
+     * @param purchases файл покупок или null
+     * @param visits    файл посещений или null
+     * @return отчёты по каждому импортированному файлу
+     * @throws IOException при ошибке чтения файла
+     */
+    public List<ImportReport> importAll(InputStream clients, InputStream purchases, InputStream visits)
+            throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return importFiles(clients, purchases, visits);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            entitlementCache.clear();
+            searchIndex.rebuild();
+            rollupService.markStale();
+            passSummaryService.markAllDirty();
+            occupancyService.evictAll();
+            slotReservations.evictAll();
+            tableVersions.touch(TableVersions.Table.values());
+        }
+    }
+
+    /**
+     * Импортирует файлы внутри транзакции.
+     */
+    private List<ImportReport> importFiles(InputStream clients, InputStream purchases, InputStream visits)
+            throws IOException {
+        Map<String, Integer> clientIds = new HashMap<>();
+        List<ImportReport> reports = new ArrayList<>();
+        if (clients != null) {
+            reports.add(importClients(clients, clientIds));
+        }
+        if (purchases != null || visits != null) {
+            BitSet knownClients = loadIds("select client_number from clients");
+            if (purchases != null) {
+                reports.add(importPurchases(purchases, clientIds, knownClients));
+            }
+            if (visits != null) {
+                reports.add(importVisits(visits, clientIds, knownClients));
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Импортирует клиентов.
+     */
+    private ImportReport importClients(InputStream in, Map<String, Integer> clientIds) throws IOException {
+        long started = System.currentTimeMillis();
+        long imported = 0;
+        long skipped = 0;
+        List<String> legacyIds = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        String sql = "insert into clients (client_number, full_name, birth_date, phone, email) values (?, ?, ?, ?, ?)";
+
+        try (CsvReader csv = new CsvReader(in)) {
+            int id = csv.column("id");
+            int fullName = csv.column("full_name");
+            int birthDate = csv.column("birth_date");
+            int phone = csv.column("phone");
+            int email = csv.column("email");
+
+            String[] row;
+            while ((row = csv.next()) != null) {
+                try {
+                    String birth = CsvReader.value(row, birthDate);
+                    batch.add(new Object[]{null, CsvReader.value(row, fullName),
+                            birth != null ? Date.valueOf(LocalDate.parse(birth)) : null,
+                            CsvReader.value(row, phone), CsvReader.value(row, email)});
+                    legacyIds.add(CsvReader.value(row, id));
+                } catch (RuntimeException e) {
+                    skipped = skip("клиенты", csv.lineNumber(), e, skipped);
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    imported += insertClients(sql, batch, legacyIds, clientIds);
+                }
+            }
+            imported += insertClients(sql, batch, legacyIds, clientIds);
+        }
+        return report("клиенты", imported, skipped, started);
+    }
+
+    /**
+     * Выделяет номера для пакета клиентов, запоминает соответствие
+     * старых номеров новым и вставляет пакет.
+     */
+    private int insertClients(String sql, List<Object[]> batch, List<String> legacyIds,
+                              Map<String, Integer> clientIds) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Integer> ids = reserveIds("clients", "client_number", batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i)[0] = ids.get(i);
+            if (legacyIds.get(i) != null) {
+                clientIds.put(legacyIds.get(i), ids.get(i));
+            }
+        }
+        return flush(sql, batch, legacyIds);
+    }
+
+    /**
+     * Импортирует покупки абонементов.
+     */
+    private ImportReport importPurchases(InputStream in, Map<String, Integer> clientIds, BitSet knownClients)
+            throws IOException {
+        long started = System.currentTimeMillis();
+        long imported = 0;
+        long skipped = 0;
+        Map<Integer, Integer> ticketSessions = new HashMap<>();
+        jdbc.query("select ticket_number, sessions_count from season_tickets",
+                rs -> {
+                    ticketSessions.put(rs.getInt(1), rs.getInt(2));
+                });
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        String sql = "insert into ticket_purchases "
+                + "(client_number, ticket_number, purchase_date, remaining_sessions) values (?, ?, ?, ?)";
+
+        try (CsvReader csv = new CsvReader(in)) {
+            int client = csv.column("client_id");
+            int existing = csv.column("client_number");
+            int ticket = csv.column("ticket_number");
+            int purchaseDate = csv.column("purchase_date");
+            int remaining = csv.column("remaining_sessions");
+
+            String[] row;
+            while ((row = csv.next()) != null) {
+                try {
+                    Integer clientNumber = resolveClient(CsvReader.value(row, client),
+                            CsvReader.value(row, existing), clientIds, knownClients);
+                    Integer ticketNumber = Integer.valueOf(CsvReader.value(row, ticket));
+                    Integer sessions = ticketSessions.get(ticketNumber);
+                    if (sessions == null) {
+                        throw new IllegalArgumentException("Неизвестный абонемент: " + ticketNumber);
+                    }
+                    String left = CsvReader.value(row, remaining);
+                    batch.add(new Object[]{clientNumber, ticketNumber,
+                            Date.valueOf(LocalDate.parse(CsvReader.value(row, purchaseDate))),
+                            left != null ? Integer.valueOf(left) : sessions});
+                } catch (RuntimeException e) {
+                    skipped = skip("покупки", csv.lineNumber(), e, skipped);
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    imported += flush(sql, batch, null);
+                }
+            }
+            imported += flush(sql, batch, null);
+        }
+        return report("покупки", imported, skipped, started);
+    }
+
+    /**
+     * Импортирует посещения.
+     */
+    private ImportReport importVisits(InputStream in, Map<String, Integer> clientIds, BitSet knownClients)
+            throws IOException {
+        long started = System.currentTimeMillis();
+        long imported = 0;
+        long skipped = 0;
+        BitSet knownCoaches = loadIds("select coach_number from coaches");
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        String sql = "insert into visits (client_number, coach_number, visit_date, attendance) values (?, ?, ?, ?)";
+
+        try (CsvReader csv = new CsvReader(in)) {
+            int client = csv.column("client_id");
+            int existing = csv.column("client_number");
+            int coach = csv.column("coach_number");
+            int visitDate = csv.column("visit_date");
+            int attended = csv.column("attended");
+
+            String[] row;
+            while ((row = csv.next()) != null) {
+                try {
+                    Integer clientNumber = resolveClient(CsvReader.value(row, client),
+                            CsvReader.value(row, existing), clientIds, knownClients);
+                    Integer coachNumber = Integer.valueOf(CsvReader.value(row, coach));
+                    if (!knownCoaches.get(coachNumber)) {
+                        throw new IllegalArgumentException("Неизвестный тренер: " + coachNumber);
+                    }
+                    LocalDateTime date = LocalDateTime.parse(CsvReader.value(row, visitDate).replace(' ', 'T'));
+                    Attendance attendance = Attendance.parse(CsvReader.value(row, attended));
+                    batch.add(new Object[]{clientNumber, coachNumber, Timestamp.valueOf(date),
+                            attendance == null ? null : attendance.getCode()});
+                } catch (RuntimeException e) {
+                    skipped = skip("посещения", csv.lineNumber(), e, skipped);
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    imported += flush(sql, batch, null);
+                }
+            }
+            imported += flush(sql, batch, null);
+        }
+        return report("посещения", imported, skipped, started);
+    }
+
+    /**
+     * Находит номер клиента строки: по старому номеру из файла клиентов
+     * или по явно указанному номеру существующего клиента.
+     */
+    private Integer resolveClient(String legacyId, String number, Map<String, Integer> clientIds,
+                                  BitSet knownClients) {
+        if (legacyId != null) {
+            Integer clientNumber = clientIds.get(legacyId);
+            if (clientNumber == null) {
+                throw new IllegalArgumentException("Клиента " + legacyId + " нет в файле клиентов");
+            }
+            return clientNumber;
+        }
+        if (number == null) {
+            throw new IllegalArgumentException("Не указан клиент");
+        }
+        Integer clientNumber = Integer.valueOf(number);
+        if (!knownClients.get(clientNumber)) {
+            throw new IllegalArgumentException("Неизвестный клиент: " + number);
+        }
+        return clientNumber;
+    }
+
+    /**
+     * Выделяет номера из последовательности столбца идентичности.
+     *
+     * @param table  таблица
+     * @param column столбец идентичности
+     * @param count  количество номеров
+     * @return выделенные номера
+     */
+    private List<Integer> reserveIds(String table, String column, int count) {
+        return jdbc.queryForList(
+                "select nextval(pg_get_serial_sequence(?, ?)) from generate_series(1, ?)",
+                Integer.class, table, column, count);
+    }
+
+    /**
+     * Загружает множество номеров из запроса с одним целочисленным столбцом.
+     */
+    private BitSet loadIds(String sql) {
+        BitSet ids = new BitSet();
+        jdbc.query(sql, rs -> {
+            ids.set(rs.getInt(1));
+        });
+        return ids;
+    }
+
+    /**
+     * Выполняет пакетную вставку и очищает пакет.
+     *
+     * @return количество вставленных строк
+     */
+    private int flush(String sql, List<Object[]> batch, List<String> companion) {
+        int size = batch.size();
+        if (size > 0) {
+            jdbc.batchUpdate(sql, batch);
+            batch.clear();
+        }
+        if (companion != null) {
+            companion.clear();
+        }
+        return size;
+    }
+
+    /**
+     * Учитывает пропущенную строку.
+     */
+    private long skip(String entity, long line, RuntimeException e, long skipped) {
+        if (skipped < LOGGED_ERRORS) {
+            log.warn("Импорт ({}): строка {} пропущена: {}", entity, line, e.getMessage());
+        }
+        return skipped + 1;
+    }
+
+    /**
+     * Формирует отчёт и записывает его в журнал.
+     */
+    private ImportReport report(String entity, long imported, long skipped, long started) {
+        ImportReport report = new ImportReport(entity, imported, skipped, System.currentTimeMillis() - started);
+        log.info("Импорт ({}): {} строк, пропущено {}, {} строк/с",
+                entity, report.imported(), report.skipped(), report.rowsPerSecond());
+        return report;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+/**
+ * Исключение, сообщающее о том, что запись на занятие невозможна.
+ *
+ * Сообщение исключения предназначено для показа пользователю.
+ */
+public class CheckInException extends RuntimeException {
+
+    /**
+     * Создаёт исключение с сообщением для пользователя.
+     *
+     * @param message текст ошибки
+     */
+    public CheckInException(String message) {
+        super(message);
+    }
+}
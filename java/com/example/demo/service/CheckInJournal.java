@@ -0,0 +1,229 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Attendance;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал принятых отметок турникетов на локальном диске.
+ *
+ * Каждая отметка дописывается в конец файла одной строкой
+ * с контрольной суммой и (если включено {@code fitness.checkin.journal-fsync})
+ * сбрасывается на диск до ответа турникету. Если приложение
+ * остановится раньше, чем отметки будут сохранены в базе данных,
+ * они восстанавливаются из журнала при следующем запуске.
+ * Недописанная при сбое последняя строка и строки с неверной
+ * контрольной суммой пропускаются.
+ *
+ * Журнал очищается, когда все принятые отметки сохранены.
+ */
+@Component
+public class CheckInJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckInJournal.class);
+
+    /**
+     * Отметка турникета, записанная в журнал.
+     *
+     * @param seq            порядковый номер отметки
+     * @param clientNumber   номер клиента
+     * @param coachNumber    номер тренера
+     * @param visitDate      дата и время посещения
+     * @param attendance     отметка о присутствии
+     * @param purchaseNumber номер покупки, с которой списано занятие
+     */
+    public record Entry(long seq, Integer clientNumber, Integer coachNumber, LocalDateTime visitDate,
+                        Attendance attendance, Integer purchaseNumber) {
+    }
+
+    /**
+     * Путь к файлу журнала.
+     */
+    @Value("${fitness.checkin.journal:data/checkins.journal}")
+    private Path path;
+
+    /**
+     * Сбрасывать ли каждую отметку на диск до ответа турникету.
+     */
+    @Value("${fitness.checkin.journal-fsync:true}")
+    private boolean fsync;
+
+    private FileChannel channel;
+
+    private long nextSeq;
+
+    /**
+     * Читает отметки, оставшиеся в журнале после прошлого запуска,
+     * и открывает журнал для записи.
+     *
+     * @param lastSavedSeq наибольший номер отметки, уже сохранённой в базе данных
+     * @return отметки из журнала в порядке записи
+     */
+    public synchronized List<Entry> open(long lastSavedSeq) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            List<Entry> entries = Files.exists(path) ? read() : List.of();
+            long last = lastSavedSeq;
+            for (Entry entry : entries) {
+                last = Math.max(last, entry.seq());
+            }
+            nextSeq = last + 1;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            return entries;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал отметок " + path, e);
+        }
+    }
+
+    /**
+     * Дописывает отметку в журнал.
+     *
+     * @param clientNumber   номер клиента
+     * @param coachNumber    номер тренера
+     * @param visitDate      дата и время посещения
+     * @param attendance     отметка о присутствии
+     * @param purchaseNumber номер покупки, с которой списано занятие
+     * @return записанная отметка с присвоенным номером
+     */
+    public synchronized Entry append(Integer clientNumber, Integer coachNumber, LocalDateTime visitDate,
+                                     Attendance attendance, Integer purchaseNumber) {
+        Entry entry = new Entry(nextSeq, clientNumber, coachNumber, visitDate, attendance, purchaseNumber);
+        String body = entry.seq() + "\t" + clientNumber + "\t" + coachNumber + "\t" + visitDate
+                + "\t" + attendance + "\t" + purchaseNumber;
+        ByteBuffer line = ByteBuffer.wrap((body + "\t" + crc(body) + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать отметку в журнал " + path, e);
+        }
+        nextSeq++;
+        return entry;
+    }
+
+    /**
+     * Очищает журнал, если все отметки из него сохранены.
+     *
+     * Условие проверяется под блокировкой журнала, поэтому
+     * между проверкой и очисткой новая отметка не появится.
+     *
+     * @param saved проверка, что несохранённых отметок нет
+     * @return true, если журнал очищен
+     */
+    public synchronized boolean truncateIf(BooleanSupplier saved) {
+        if (!saved.getAsBoolean()) {
+            return false;
+        }
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            return true;
+        } catch (IOException e) {
+            log.warn("Не удалось очистить журнал отметок {}", path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает размер журнала.
+     *
+     * @return размер файла журнала в байтах
+     */
+    public synchronized long size() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Закрывает файл журнала.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть журнал отметок {}", path, e);
+        }
+    }
+
+    private List<Entry> read() throws IOException {
+        String content = Files.readString(path, StandardCharsets.UTF_8);
+        List<Entry> entries = new ArrayList<>();
+        int skipped = 0;
+        int start = 0;
+        for (int end = content.indexOf('\n'); end >= 0; start = end + 1, end = content.indexOf('\n', start)) {
+            Entry entry = parse(content.substring(start, end));
+            if (entry != null) {
+                entries.add(entry);
+            } else {
+                skipped++;
+            }
+        }
+        if (start < content.length()) {
+            skipped++;
+        }
+        if (skipped > 0) {
+            log.warn("В журнале отметок {} пропущено повреждённых строк: {}", path, skipped);
+        }
+        return entries;
+    }
+
+    private static Entry parse(String line) {
+        int at = line.lastIndexOf('\t');
+        if (at < 0 || !line.substring(at + 1).equals(crc(line.substring(0, at)))) {
+            return null;
+        }
+        String[] fields = line.substring(0, at).split("\t", -1);
+        if (fields.length != 6) {
+            return null;
+        }
+        try {
+            return new Entry(Long.parseLong(fields[0]), number(fields[1]), number(fields[2]),
+                    LocalDateTime.parse(fields[3]), "null".equals(fields[4]) ? null : Attendance.parse(fields[4]),
+                    number(fields[5]));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Integer number(String value) {
+        return "null".equals(value) ? null : Integer.valueOf(value);
+    }
+
+    private static String crc(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+}
@@ -0,0 +1,619 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CheckInAck;
+import com.example.demo.dto.CheckInRequest;
+import com.example.demo.dto.Entitlement;
+import com.example.demo.model.Attendance;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь отметок турникетов с отложенной пакетной записью посещений.
+ *
+ * Отметка принимается так:
+ * <ol>
+ *   <li>занимается место в очереди; если очередь заполнена дольше
+ *   {@code fitness.checkin.enqueue-timeout}, отметка отклоняется
+ *   и турникет должен повторить её позже;</li>
+ *   <li>в одной транзакции проверяется право клиента на посещение,
+ *   списывается занятие и занимается место в слоте тренера
+ *   (если мест нет, отметка отклоняется);</li>
+ *   <li>после фиксации транзакции отметка записывается в журнал на диске
+ *   (если записать не удалось, занятие возвращается, а место освобождается);</li>
+ *   <li>отметка ставится в очередь, и турникет получает подтверждение.</li>
+ * </ol>
+ * Отдельный поток забирает отметки из очереди пакетами до
+ * {@code fitness.checkin.batch-size} и сохраняет посещения одним
+ * пакетным INSERT вместе с изменением сводной посещаемости. Если база
+ * данных недоступна или ошибка временная, пакет повторяется, а очередь
+ * заполняется и начинает отклонять новые отметки. При другой ошибке
+ * отметки пакета сохраняются по одной, и отметка, которую сохранить
+ * не удалось, переносится в таблицу {@code checkin_rejected}: занятие
+ * за неё возвращается, а место в слоте освобождается. Место в слоте
+ * подтверждается после записи посещения; отметки, восстановленные
+ * из журнала при запуске, учитываются без проверки вместимости,
+ * так как турникет их уже пропустил.
+ *
+ * Номер каждой сохранённой отметки записывается в таблицу
+ * {@code checkin_applied} в той же транзакции, что и посещение или
+ * возврат занятия за повторную отметку. При запуске отметки из журнала,
+ * номеров которых там нет, сохраняются до приёма новых отметок; уже
+ * применённые отметки пропускаются, поэтому ни посещение, ни возврат
+ * занятия не выполняются дважды. После очистки журнала старые номера
+ * из таблицы удаляются. Отметка из журнала, которую не удалось
+ * ни сохранить, ни отклонить, записывается в лог и не мешает запуску;
+ * журнал тогда не очищается, чтобы она была повторена при следующем
+ * запуске.
+ */
+@Service
+public class CheckInQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckInQueue.class);
+
+    /**
+     * Учёт применённой отметки; не вставляет ничего, если отметка
+     * уже была применена до перезапуска.
+     */
+    private static final String APPLY_SQL = "insert into checkin_applied (seq) "
+            + "select ? where not exists (select 1 from checkin_applied where seq = ?)";
+
+    /**
+     * Вставка посещения, пропускающая отметку, посещение которой
+     * уже сохранено (в том числе до появления {@code checkin_applied}),
+     * и повторную запись на то же занятие.
+     *
+     * Условия по {@code visit_date} ограничивают проверки одной
+     * секцией, если таблица посещений секционирована.
+     */
+    private static final String INSERT_SQL = "insert into visits "
+            + "(client_number, coach_number, visit_date, attendance, slot_start, checkin_seq) "
+            + "select ?, ?, ?, ?, ?, ? "
+            + "where not exists (select 1 from visits where checkin_seq = ? and visit_date = ?) "
+            + "and not exists (select 1 from visits where client_number = ? and coach_number = ? and slot_start = ? "
+            + "and visit_date >= ? and visit_date < ?)";
+
+    /**
+     * Возврат занятия, списанного за пропущенную повторную отметку.
+     */
+    private static final String REFUND_SKIPPED_SQL = "update ticket_purchases "
+            + "set remaining_sessions = remaining_sessions + 1 where purchase_number = ? "
+            + "and not exists (select 1 from visits where checkin_seq = ? and visit_date = ?)";
+
+    /**
+     * Возврат занятия за отметку, которую не удалось записать в журнал.
+     */
+    private static final String REFUND_SQL = "update ticket_purchases "
+            + "set remaining_sessions = remaining_sessions + 1 where purchase_number = ?";
+
+    /**
+     * Перенос отметки, которую не удалось сохранить, в отклонённые.
+     */
+    private static final String REJECT_SQL = "insert into checkin_rejected "
+            + "(seq, client_number, coach_number, visit_date, purchase_number, error, rejected_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Наибольшая длина сообщения об ошибке отклонённой отметки.
+     */
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    /**
+     * Пауза перед повтором пакета после ошибки записи.
+     */
+    private static final long RETRY_DELAY_MS = 1000;
+
+    /**
+     * Шаблон JDBC для пакетной записи посещений.
+     */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /**
+     * Шаблон транзакций для списания занятия и записи пакета.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Журнал принятых отметок.
+     */
+    @Autowired
+    private CheckInJournal journal;
+
+    /**
+     * Сервис проверки права на посещение и списания занятий.
+     */
+    @Autowired
+    private CheckInService checkInService;
+
+    /**
+     * Сервис справочных данных для проверки тренера.
+     */
+    @Autowired
+    private ReferenceDataService referenceData;
+
+    /**
+     * Кэш прав клиентов на посещение.
+     */
+    @Autowired
+    private EntitlementCache entitlementCache;
+
+    /**
+     * Версии таблиц для условных ответов страниц списков.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Сервис сводных показателей.
+     */
+    @Autowired
+    private RollupService rollupService;
+
+    /**
+     * Сервис тепловой карты загрузки тренеров.
+     */
+    @Autowired
+    private OccupancyService occupancyService;
+
+    /**
+     * Сервис сводки абонементов клиентов.
+     */
+    @Autowired
+    private PassSummaryService passSummaryService;
+
+    /**
+     * Учёт занятых мест у тренеров по слотам.
+     */
+    @Autowired
+    private SlotReservations slotReservations;
+
+    /**
+     * Реестр метрик для публикации длины очереди.
+     */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Наибольшее количество принятых, но не сохранённых отметок.
+     */
+    @Value("${fitness.checkin.queue-capacity:10000}")
+    private int capacity;
+
+    /**
+     * Наибольшее количество посещений в одном пакете.
+     */
+    @Value("${fitness.checkin.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Сколько ждать следующей отметки перед записью неполного пакета.
+     */
+    @Value("${fitness.checkin.flush-interval:200ms}")
+    private Duration flushInterval;
+
+    /**
+     * Сколько ждать места в заполненной очереди перед отказом.
+     */
+    @Value("${fitness.checkin.enqueue-timeout:50ms}")
+    private Duration enqueueTimeout;
+
+    /**
+     * Размер журнала, после которого он очищается при пустой очереди.
+     */
+    @Value("${fitness.checkin.journal-max-size:16MB}")
+    private DataSize journalMaxSize;
+
+    private final LinkedBlockingQueue<CheckInJournal.Entry> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Свободные места в очереди; место освобождается после
+     * сохранения посещения, а не при выборке из очереди.
+     */
+    private Semaphore permits;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    /**
+     * Сохраняет отметки, оставшиеся в журнале, и запускает
+     * поток записи посещений.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Long lastApplied = jdbc.queryForObject("select max(seq) from checkin_applied", Long.class);
+        Long lastSaved = jdbc.queryForObject("select max(checkin_seq) from visits", Long.class);
+        List<CheckInJournal.Entry> pending = journal.open(Math.max(
+                lastApplied != null ? lastApplied : 0, lastSaved != null ? lastSaved : 0));
+        boolean kept = false;
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<CheckInJournal.Entry> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(batch, false));
+                continue;
+            } catch (RuntimeException e) {
+                log.warn("Не удалось сохранить {} отметок из журнала, отметки сохраняются по одной",
+                        batch.size(), e);
+            }
+            for (CheckInJournal.Entry entry : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> save(List.of(entry), false));
+                } catch (RuntimeException e) {
+                    kept |= !reject(entry, false, e);
+                }
+            }
+        }
+        if (!kept && journal.truncateIf(() -> true)) {
+            pruneApplied();
+        }
+        if (!pending.isEmpty()) {
+            log.info("Из журнала отметок восстановлено {} отметок", pending.size());
+        }
+
+        permits = new Semaphore(capacity);
+        Gauge.builder("fitness.checkin.queue", queue, LinkedBlockingQueue::size)
+                .description("Принятые отметки турникетов, ожидающие записи")
+                .register(meterRegistry);
+        running = true;
+        writer = new Thread(this::run, "checkin-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Принимает отметку турникета.
+     *
+     * @param request отметка турникета
+     * @return подтверждение или пустое значение, если очередь заполнена
+     * или ещё не запущена
+     * @throws CheckInException если клиент не может пройти на занятие
+     */
+    public Optional<CheckInAck> accept(CheckInRequest request) {
+        Integer coachNumber = request.coachNumber();
+        if (coachNumber == null || !referenceData.coachesByNumber().containsKey(coachNumber)) {
+            throw new CheckInException("⚠️ Тренер не найден!");
+        }
+        LocalDateTime visitDate = request.visitDate() != null
+                ? request.visitDate() : LocalDateTime.now().withNano(0);
+
+        if (!running || !tryAcquire()) {
+            return Optional.empty();
+        }
+        try {
+            Entitlement purchase = transactionTemplate.execute(status -> {
+                Entitlement consumed = checkInService.consumeSession(request.clientNumber(), coachNumber, visitDate);
+                slotReservations.hold(coachNumber, visitDate);
+                return consumed;
+            });
+            CheckInJournal.Entry entry;
+            try {
+                entry = journal.append(request.clientNumber(), coachNumber, visitDate,
+                        Attendance.ATTENDED, purchase.purchaseNumber());
+            } catch (RuntimeException e) {
+                refund(purchase.purchaseNumber(), request.clientNumber());
+                slotReservations.cancel(coachNumber, visitDate);
+                throw e;
+            }
+            queue.add(entry);
+            return Optional.of(new CheckInAck(entry.seq(), entry.purchaseNumber(), entry.visitDate()));
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Останавливает приём отметок и дожидается записи очереди.
+     * Не записанные отметки останутся в журнале.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(flushInterval.toMillis() + RETRY_DELAY_MS * 5);
+        }
+    }
+
+    private boolean tryAcquire() {
+        try {
+            return permits.tryAcquire(enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Забирает отметки пакетами и сохраняет посещения.
+     */
+    private void run() {
+        List<CheckInJournal.Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                CheckInJournal.Entry first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (!flush(batch)) {
+                    return;
+                }
+                permits.release(batch.size());
+                batch.clear();
+
+                if (queue.isEmpty() && journal.size() > journalMaxSize.toBytes()
+                        && journal.truncateIf(() -> permits.availablePermits() == capacity)) {
+                    pruneApplied();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Сохраняет пакет. Если пакет отклонён не из-за временной ошибки,
+     * отметки сохраняются по одной, а не сохранённые отклоняются.
+     *
+     * @return true, если все отметки пакета сохранены или отклонены
+     */
+    private boolean flush(List<CheckInJournal.Entry> batch) throws InterruptedException {
+        try {
+            return saveRetrying(batch);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сохранить {} отметок турникетов, отметки сохраняются по одной",
+                    batch.size(), e);
+        }
+        for (CheckInJournal.Entry entry : batch) {
+            try {
+                if (!saveRetrying(List.of(entry))) {
+                    return false;
+                }
+            } catch (RuntimeException e) {
+                reject(entry, true, e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Сохраняет отметки в одной транзакции, повторяя её после временных
+     * ошибок до успеха или остановки приложения.
+     *
+     * @return true, если отметки сохранены
+     * @throws RuntimeException если ошибка записи не временная
+     */
+    private boolean saveRetrying(List<CheckInJournal.Entry> entries) throws InterruptedException {
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(entries, true));
+                return true;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                log.error("Не удалось сохранить {} отметок турникетов, повтор через {} мс",
+                        entries.size(), RETRY_DELAY_MS, e);
+                if (!running) {
+                    return false;
+                }
+                Thread.sleep(RETRY_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что ошибка временная: соединение с базой данных
+     * недоступно или транзакция отклонена из-за блокировки
+     * и может пройти при повторе.
+     */
+    private static boolean isTransient(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                    || e instanceof DataAccessResourceFailureException
+                    || e instanceof CannotCreateTransactionException
+                    || e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+                return true;
+            }
+            // Класс состояния 08 — ошибки соединения
+            if (e instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Переносит отметку, которую не удалось сохранить, в таблицу
+     * {@code checkin_rejected} и возвращает списанное за неё занятие
+     * в одной транзакции; отметка учитывается как применённая.
+     * Если и это не удалось, отметка остаётся в журнале и только
+     * записывается в лог. Занятое при приёме место освобождается
+     * в обоих случаях.
+     *
+     * @param entry отметка
+     * @param held  занято ли место отметки при приёме
+     * @param error ошибка записи посещения
+     * @return true, если отметка перенесена
+     */
+    private boolean reject(CheckInJournal.Entry entry, boolean held, RuntimeException error) {
+        log.error("Отметка турникета {} (клиент {}, тренер {}, {}) не сохранена и отклонена",
+                entry.seq(), entry.clientNumber(), entry.coachNumber(), entry.visitDate(), error);
+        if (held) {
+            slotReservations.cancel(entry.coachNumber(), entry.visitDate());
+        }
+        String message = String.valueOf(NestedExceptionUtils.getMostSpecificCause(error).getMessage());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbc.update(REJECT_SQL, entry.seq(), entry.clientNumber(), entry.coachNumber(),
+                        Timestamp.valueOf(entry.visitDate()), entry.purchaseNumber(),
+                        message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message,
+                        Timestamp.valueOf(LocalDateTime.now()));
+                jdbc.update(APPLY_SQL, entry.seq(), entry.seq());
+                jdbc.update(REFUND_SQL, entry.purchaseNumber());
+            });
+        } catch (RuntimeException e) {
+            log.error("Не удалось отклонить отметку турникета {}, она остаётся в журнале", entry.seq(), e);
+            return false;
+        }
+        entitlementCache.evictClient(entry.clientNumber());
+        tableVersions.touch(TableVersions.Table.PURCHASES);
+        passSummaryService.markDirty(entry.clientNumber());
+        return true;
+    }
+
+    /**
+     * Сохраняет посещения пакета и учитывает их в сводной посещаемости
+     * в текущей транзакции; сводка абонементов клиентов пакета
+     * помечается устаревшей.
+     *
+     * Отметки, уже применённые до перезапуска, пропускаются.
+     * Повторная запись на занятие, не отсеянная в памяти (например,
+     * после перезапуска), пропускается, а списанное за неё занятие
+     * возвращается.
+     *
+     * @param all  отметки пакета
+     * @param held заняты ли места отметок при приёме; места подтверждаются
+     *             или освобождаются после фиксации транзакции. Отметки
+     *             из журнала учитываются в слотах без проверки вместимости
+     */
+    private void save(List<CheckInJournal.Entry> all, boolean held) {
+        int[][] applied = jdbc.batchUpdate(APPLY_SQL, all, all.size(), (ps, entry) -> {
+            ps.setLong(1, entry.seq());
+            ps.setLong(2, entry.seq());
+        });
+        List<CheckInJournal.Entry> batch = new ArrayList<>(all.size());
+        for (int i = 0; i < all.size(); i++) {
+            if (applied[0][i] != 0) {
+                batch.add(all.get(i));
+            } else if (held) {
+                slotReservations.cancel(all.get(i).coachNumber(), all.get(i).visitDate());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        int[][] counts = jdbc.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, entry) -> {
+            LocalDateTime slot = RecentCheckIns.slotOf(entry.visitDate());
+            Timestamp visitDate = Timestamp.valueOf(entry.visitDate());
+            ps.setObject(1, entry.clientNumber());
+            ps.setObject(2, entry.coachNumber());
+            ps.setTimestamp(3, visitDate);
+            ps.setObject(4, entry.attendance() == null ? null : entry.attendance().getCode(), Types.SMALLINT);
+            ps.setTimestamp(5, Timestamp.valueOf(slot));
+            ps.setLong(6, entry.seq());
+            ps.setLong(7, entry.seq());
+            ps.setTimestamp(8, visitDate);
+            ps.setObject(9, entry.clientNumber());
+            ps.setObject(10, entry.coachNumber());
+            ps.setTimestamp(11, Timestamp.valueOf(slot));
+            ps.setTimestamp(12, Timestamp.valueOf(slot));
+            ps.setTimestamp(13, Timestamp.valueOf(slot.plusHours(1)));
+        });
+
+        List<CheckInJournal.Entry> skipped = new ArrayList<>();
+        Map<Integer, Map<LocalDate, int[]>> attendance = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            CheckInJournal.Entry entry = batch.get(i);
+            if (counts[0][i] == 0) {
+                skipped.add(entry);
+                if (held) {
+                    slotReservations.cancel(entry.coachNumber(), entry.visitDate());
+                }
+                continue;
+            }
+            if (entry.coachNumber() == null) {
+                continue;
+            }
+            if (held) {
+                slotReservations.confirm(entry.coachNumber(), entry.visitDate());
+            } else {
+                slotReservations.added(entry.coachNumber(), entry.visitDate());
+            }
+            int[] day = attendance.computeIfAbsent(entry.coachNumber(), c -> new HashMap<>())
+                    .computeIfAbsent(entry.visitDate().toLocalDate(), d -> new int[2]);
+            day[0]++;
+            if (entry.attendance() == Attendance.ATTENDED) {
+                day[1]++;
+            }
+        }
+        if (!skipped.isEmpty()) {
+            jdbc.batchUpdate(REFUND_SKIPPED_SQL, skipped, skipped.size(), (ps, entry) -> {
+                ps.setObject(1, entry.purchaseNumber());
+                ps.setLong(2, entry.seq());
+                ps.setTimestamp(3, Timestamp.valueOf(entry.visitDate()));
+            });
+            skipped.forEach(entry -> entitlementCache.evictClient(entry.clientNumber()));
+            tableVersions.touch(TableVersions.Table.PURCHASES);
+            log.info("Пропущено повторных отметок турникетов: {}", skipped.size());
+        }
+        passSummaryService.markDirty(batch.stream().map(CheckInJournal.Entry::clientNumber).toList());
+        attendance.forEach((coachNumber, days) -> {
+            days.forEach((day, c) -> rollupService.visitsAdded(coachNumber, day, c[0], c[1]));
+            occupancyService.evictCoach(coachNumber);
+        });
+    }
+
+    /**
+     * Возвращает занятие, списанное за отметку, которая не была принята.
+     */
+    private void refund(Integer purchaseNumber, Integer clientNumber) {
+        try {
+            jdbc.update(REFUND_SQL, purchaseNumber);
+            entitlementCache.evictClient(clientNumber);
+            tableVersions.touch(TableVersions.Table.PURCHASES);
+            passSummaryService.markDirty(clientNumber);
+        } catch (RuntimeException e) {
+            log.error("Не удалось вернуть занятие по покупке {} после ошибки журнала отметок",
+                    purchaseNumber, e);
+        }
+    }
+
+    /**
+     * Удаляет номера применённых отметок, которых больше нет в журнале,
+     * кроме наибольшего: по нему продолжается нумерация.
+     */
+    private void pruneApplied() {
+        try {
+            jdbc.update("delete from checkin_applied where seq < (select max(seq) from checkin_applied)");
+        } catch (RuntimeException e) {
+            log.warn("Не удалось удалить номера применённых отметок турникетов", e);
+        }
+    }
+}
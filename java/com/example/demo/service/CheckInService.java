@@ -0,0 +1,268 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.Entitlement;
+import com.example.demo.model.Visit;
+import com.example.demo.repository.TicketPurchaseRepository;
+import com.example.demo.repository.VisitRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Сервис записи клиентов на занятия.
+ *
+ * Проверяет право клиента на посещение, списывает занятие
+ * с действующего абонемента и сохраняет посещение
+ * в одной транзакции.
+ */
+@Service
+public class CheckInService {
+
+    /**
+     * Сообщение о повторной записи на то же занятие.
+     */
+    static final String DUPLICATE = "⚠️ Клиент уже записан к этому тренеру на это время!";
+
+    /**
+     * Ключ записи на занятие в несекционированной таблице посещений.
+     */
+    static final String SLOT_KEY = "uk_visits_client_coach_slot";
+
+    /**
+     * Окончание имени ключа записи на занятие в месячной секции,
+     * см. {@link VisitPartitionService}.
+     */
+    static final String PARTITION_SLOT_KEY = "_slot_key";
+
+    /**
+     * Репозиторий для работы с посещениями.
+     */
+    @Autowired
+    private VisitRepository visitRepo;
+
+    /**
+     * Репозиторий для списания занятий с покупок.
+     */
+    @Autowired
+    private TicketPurchaseRepository purchaseRepo;
+
+    /**
+     * Кэш прав клиентов на посещение.
+     */
+    @Autowired
+    private EntitlementCache entitlementCache;
+
+    /**
+     * Сервис сводных показателей.
+     */
+    @Autowired
+    private RollupService rollupService;
+
+    /**
+     * Сервис тепловой карты загрузки тренеров.
+     */
+    @Autowired
+    private OccupancyService occupancyService;
+
+    /**
+     * Недавние записи для отсева повторных отметок.
+     */
+    @Autowired
+    private RecentCheckIns recentCheckIns;
+
+    /**
+     * Версии таблиц для условных ответов страниц списков.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Сервис сводки абонементов клиентов.
+     */
+    @Autowired
+    private PassSummaryService passSummaryService;
+
+    /**
+     * Учёт занятых мест у тренеров по слотам.
+     */
+    @Autowired
+    private SlotReservations slotReservations;
+
+    /**
+     * Записывает клиента на занятие.
+     *
+     * Выполняемые проверки:
+     * <ul>
+     *   <li>у клиента должен быть абонемент с оставшимися занятиями;</li>
+     *   <li>дата посещения не может быть раньше даты покупки абонемента;</li>
+     *   <li>нельзя указывать будущую дату посещения;</li>
+     *   <li>клиент не может быть записан к тому же тренеру
+     *   в том же часовом слоте дважды;</li>
+     *   <li>у тренера в часовом слоте должно оставаться свободное
+     *   место, см. {@link SlotReservations}.</li>
+     * </ul>
+     *
+     * Занятие списывается условным UPDATE без чтения остатка в Java.
+     * Если другой запрос успел списать последнее занятие, запись
+     * клиента сбрасывается в кэше и списание повторяется по следующей
+     * действующей покупке клиента. Если сохранение посещения
+     * не удалось, списание откатывается вместе с транзакцией.
+     * В той же транзакции посещение учитывается в сводной
+     * посещаемости тренера.
+     *
+     * @param visit посещение с данными формы
+     * @return сохранённое посещение
+     * @throws CheckInException если запись на занятие невозможна
+     */
+    @Transactional
+    public Visit checkIn(Visit visit) {
+        Integer clientNumber = visit.getClient() != null ? visit.getClient().getClientNumber() : null;
+        Integer coachNumber = visit.getCoach() != null ? visit.getCoach().getCoachNumber() : null;
+        consume(clientNumber, coachNumber, visit.getVisitDate());
+        slotReservations.reserve(coachNumber, visit.getVisitDate());
+
+        visit.setSlotStart(RecentCheckIns.slotOf(visit.getVisitDate()));
+        Visit saved;
+        try {
+            saved = visitRepo.save(visit);
+        } catch (DataIntegrityViolationException e) {
+            if (isSlotKeyViolation(e)) {
+                throw new CheckInException(DUPLICATE);
+            }
+            throw e;
+        }
+        if (saved.getCoach() != null) {
+            rollupService.visitAdded(saved.getCoach().getCoachNumber(), saved.getVisitDate(), saved.getAttendance());
+            occupancyService.evictCoach(saved.getCoach().getCoachNumber());
+        }
+        return saved;
+    }
+
+    /**
+     * Проверяет право клиента на посещение и списывает занятие,
+     * не сохраняя само посещение.
+     *
+     * Используется API турникетов: посещение записывается позже
+     * пакетом, а списание должно произойти до ответа турникету,
+     * чтобы одно занятие нельзя было использовать дважды.
+     *
+     * @param clientNumber номер клиента
+     * @param coachNumber  номер тренера
+     * @param visitDate    дата и время посещения
+     * @return покупка, с которой списано занятие
+     * @throws CheckInException если запись на занятие невозможна
+     */
+    @Transactional
+    public Entitlement consumeSession(Integer clientNumber, Integer coachNumber, LocalDateTime visitDate) {
+        return consume(clientNumber, coachNumber, visitDate);
+    }
+
+    /**
+     * Удаляет посещение, исключает его из сводной посещаемости
+     * и тепловой карты тренера и освобождает место в слоте;
+     * сводка абонементов клиента помечается устаревшей.
+     *
+     * @param visitNumber номер посещения
+     */
+    @Transactional
+    public void delete(Integer visitNumber) {
+        visitRepo.findById(visitNumber).ifPresent(visit -> {
+            visitRepo.delete(visit);
+            if (visit.getCoach() != null) {
+                recentCheckIns.remove(visit.getClient() != null ? visit.getClient().getClientNumber() : null,
+                        visit.getCoach().getCoachNumber(), visit.getVisitDate());
+                rollupService.visitRemoved(visit.getCoach().getCoachNumber(), visit.getVisitDate(), visit.getAttendance());
+                slotReservations.released(visit.getCoach().getCoachNumber(), visit.getVisitDate());
+                occupancyService.evictCoach(visit.getCoach().getCoachNumber());
+            }
+            if (visit.getClient() != null) {
+                passSummaryService.markDirty(visit.getClient().getClientNumber());
+            }
+        });
+    }
+
+    /**
+     * Списывает занятие с действующей покупки клиента.
+     *
+     * Занятие списывается условным UPDATE без чтения остатка в Java.
+     * Если другой запрос успел списать последнее занятие, запись
+     * клиента сбрасывается в кэше и списание повторяется по следующей
+     * действующей покупке клиента.
+     *
+     * Повторная запись на то же занятие отклоняется по недавним
+     * записям в памяти до списания занятия.
+     */
+    private Entitlement consume(Integer clientNumber, Integer coachNumber, LocalDateTime visitDate) {
+        Entitlement purchase = findEntitlement(clientNumber);
+        validateDate(visitDate, purchase);
+        if (!recentCheckIns.add(clientNumber, coachNumber, visitDate)) {
+            throw new CheckInException(DUPLICATE);
+        }
+
+        while (purchaseRepo.consumeSession(purchase.purchaseNumber()) == 0) {
+            entitlementCache.evictClient(clientNumber);
+            purchase = findEntitlement(clientNumber);
+            validateDate(visitDate, purchase);
+        }
+        tableVersions.touch(TableVersions.Table.PURCHASES);
+        passSummaryService.markDirty(clientNumber);
+        return purchase;
+    }
+
+    /**
+     * Находит действующую покупку клиента.
+     *
+     * @param clientNumber номер клиента
+     * @return действующая покупка
+     * @throws CheckInException если действующей покупки нет
+     */
+    private Entitlement findEntitlement(Integer clientNumber) {
+        return entitlementCache.find(clientNumber).orElseThrow(() -> new CheckInException(
+                clientNumber != null && purchaseRepo.existsByClientClientNumber(clientNumber)
+                        ? "⚠️ У клиента закончились занятия по абонементу!"
+                        : "⚠️ У клиента нет купленного абонемента!"
+        ));
+    }
+
+    /**
+     * Проверяет дату посещения относительно даты покупки и текущей даты.
+     *
+     * @param visitDateTime дата и время посещения
+     * @param purchase      действующая покупка
+     * @throws CheckInException если дата посещения недопустима
+     */
+    private void validateDate(LocalDateTime visitDateTime, Entitlement purchase) {
+        if (visitDateTime == null) {
+            return;
+        }
+        LocalDate visitDate = visitDateTime.toLocalDate();
+
+        if (visitDate.isBefore(purchase.purchaseDate())) {
+            throw new CheckInException("⛔ Ошибка: Абонемент куплен " + purchase.purchaseDate()
+                    + ". Нельзя записать на более раннюю дату.");
+        }
+        if (visitDate.isAfter(LocalDate.now())) {
+            throw new CheckInException("⛔ Ошибка: Нельзя записывать визиты на будущие даты!");
+        }
+    }
+
+    /**
+     * Проверяет, нарушен ли ключ записи на занятие, а не другое
+     * ограничение (например, внешний ключ на удаляемого клиента).
+     */
+    private static boolean isSlotKeyViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                String name = violation.getConstraintName().toLowerCase(Locale.ROOT);
+                return name.contains(SLOT_KEY) || name.endsWith(PARTITION_SLOT_KEY);
+            }
+        }
+        return false;
+    }
+}
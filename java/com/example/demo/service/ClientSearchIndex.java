@@ -0,0 +1,377 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ClientHit;
+import com.example.demo.model.Client;
+import com.example.demo.repository.ClientRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс поиска клиентов по имени, телефону и email.
+ *
+ * Для каждого клиента строится нормализованный текст: имя и email
+ * в нижнем регистре (ё заменяется на е) и цифры телефона. Индекс
+ * хранит для каждой триграммы текста отсортированный массив номеров
+ * клиентов. Запрос из трёх и более символов пересекает массивы своих
+ * триграмм, начиная с самого короткого, и проверяет оставшихся
+ * кандидатов подстрочным сравнением, поэтому поиск находит
+ * и префиксы, и подстроки, не просматривая всех клиентов.
+ * Запросы короче трёх символов не выполняются: по ним пришлось бы
+ * перебирать всех клиентов, а подсказок было бы слишком много.
+ *
+ * Индекс загружается при запуске приложения и обновляется
+ * точечно при сохранении и удалении клиентов. Изменения, сделанные
+ * во время полной перестройки, запоминаются и применяются к новому
+ * индексу, поэтому не теряются. Индекс хранится в памяти одного
+ * экземпляра приложения.
+ */
+@Component
+public class ClientSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientSearchIndex.class);
+
+    /**
+     * Длина n-граммы индекса.
+     */
+    private static final int GRAM = 3;
+
+    /**
+     * Наименьшая длина запроса после нормализации.
+     */
+    public static final int MIN_QUERY = GRAM;
+
+    /**
+     * Разделитель полей в нормализованном тексте;
+     * триграммы, содержащие его, не индексируются.
+     */
+    private static final char SEPARATOR = '\n';
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Репозиторий клиентов.
+     */
+    @Autowired
+    private ClientRepository clientRepo;
+
+    /**
+     * Клиенты по номеру.
+     */
+    private final Map<Integer, ClientHit> clients = new HashMap<>();
+
+    /**
+     * Нормализованный текст клиентов по номеру.
+     */
+    private final Map<Integer, String> texts = new HashMap<>();
+
+    /**
+     * Отсортированные номера клиентов по триграмме.
+     */
+    private final Map<String, int[]> postings = new HashMap<>();
+
+    /**
+     * Изменения клиентов, сделанные во время перестройки индекса:
+     * данные клиента или null для удалённого. Равно null,
+     * когда перестройка не выполняется.
+     */
+    private Map<Integer, ClientHit> changedDuringRebuild;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Загружает всех клиентов в индекс.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<ClientHit> all;
+        try {
+            all = clientRepo.findAllHits();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Map<String, List<Integer>> grams = new HashMap<>();
+        Map<Integer, String> allTexts = new HashMap<>(all.size() * 2);
+        for (ClientHit hit : all) {
+            String text = text(hit);
+            allTexts.put(hit.clientNumber(), text);
+            for (String gram : grams(text)) {
+                grams.computeIfAbsent(gram, g -> new ArrayList<>()).add(hit.clientNumber());
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            clients.clear();
+            texts.clear();
+            postings.clear();
+            for (ClientHit hit : all) {
+                clients.put(hit.clientNumber(), hit);
+            }
+            texts.putAll(allTexts);
+            grams.forEach((gram, ids) -> {
+                int[] sorted = ids.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+                postings.put(gram, sorted);
+            });
+            changedDuringRebuild.forEach((clientNumber, hit) -> {
+                removeLocked(clientNumber);
+                if (hit != null) {
+                    putLocked(hit);
+                }
+            });
+            changedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс поиска клиентов построен: {} клиентов, {} триграмм за {} мс",
+                all.size(), grams.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Добавляет клиента в индекс или обновляет его данные.
+     *
+     * @param client сохранённый клиент
+     */
+    public void put(Client client) {
+        if (client.getClientNumber() == null) {
+            return;
+        }
+        ClientHit hit = new ClientHit(client.getClientNumber(), client.getFullName(),
+                client.getPhone(), client.getEmail());
+        lock.writeLock().lock();
+        try {
+            removeLocked(hit.clientNumber());
+            putLocked(hit);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(hit.clientNumber(), hit);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет клиента из индекса.
+     *
+     * @param clientNumber номер клиента
+     */
+    public void remove(Integer clientNumber) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(clientNumber);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(clientNumber, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет клиентов по части имени, телефона или email.
+     *
+     * Сначала возвращаются клиенты, у которых с запроса начинается
+     * имя, слово имени, email или телефон, затем остальные совпадения;
+     * внутри каждой группы — по имени.
+     *
+     * @param query строка поиска
+     * @param limit наибольшее количество результатов
+     * @return найденные клиенты; для запроса короче {@value #MIN_QUERY}
+     *         символов — пустой список
+     */
+    public List<ClientHit> search(String query, int limit) {
+        String q = normalizeQuery(query);
+        if (q.length() < MIN_QUERY || limit <= 0) {
+            return List.of();
+        }
+        List<ClientHit> prefixed = new ArrayList<>();
+        List<ClientHit> others = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (int id : candidates(q)) {
+                String text = texts.get(id);
+                int at = text.indexOf(q);
+                if (at < 0) {
+                    continue;
+                }
+                if (at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1))) {
+                    prefixed.add(clients.get(id));
+                } else {
+                    others.add(clients.get(id));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<ClientHit> byName = Comparator.comparing(
+                (ClientHit h) -> h.fullName() == null ? "" : h.fullName(), String.CASE_INSENSITIVE_ORDER);
+        List<ClientHit> result = new ArrayList<>(limit);
+        prefixed.stream().sorted(byName).limit(limit).forEach(result::add);
+        others.stream().sorted(byName).limit(limit - result.size()).forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Возвращает номера клиентов, содержащих все триграммы запроса.
+     */
+    private Iterable<Integer> candidates(String q) {
+        int[][] lists = grams(q).stream()
+                .map(gram -> postings.getOrDefault(gram, EMPTY))
+                .sorted(Comparator.comparingInt(list -> list.length))
+                .toArray(int[][]::new);
+        int[] result = lists[0];
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = intersect(result, lists[i]);
+        }
+        return Arrays.stream(result).boxed().toList();
+    }
+
+    private void putLocked(ClientHit hit) {
+        String text = text(hit);
+        clients.put(hit.clientNumber(), hit);
+        texts.put(hit.clientNumber(), text);
+        for (String gram : grams(text)) {
+            postings.put(gram, insert(postings.getOrDefault(gram, EMPTY), hit.clientNumber()));
+        }
+    }
+
+    private void removeLocked(Integer clientNumber) {
+        String old = texts.remove(clientNumber);
+        clients.remove(clientNumber);
+        if (old == null) {
+            return;
+        }
+        for (String gram : grams(old)) {
+            int[] list = postings.get(gram);
+            if (list == null) {
+                continue;
+            }
+            int[] updated = delete(list, clientNumber);
+            if (updated.length == 0) {
+                postings.remove(gram);
+            } else {
+                postings.put(gram, updated);
+            }
+        }
+    }
+
+    /**
+     * Строит нормализованный текст клиента.
+     */
+    private static String text(ClientHit hit) {
+        return normalize(hit.fullName()) + SEPARATOR + normalize(hit.email()) + SEPARATOR + digits(hit.phone());
+    }
+
+    /**
+     * Нормализует запрос; запрос, похожий на номер телефона,
+     * сводится к цифрам.
+     */
+    private static String normalizeQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        String q = query.strip();
+        if (!q.isEmpty() && q.chars().anyMatch(Character::isDigit)
+                && q.chars().allMatch(c -> Character.isDigit(c) || "+-() ".indexOf(c) >= 0)) {
+            return digits(q);
+        }
+        return normalize(q).replace(String.valueOf(SEPARATOR), "");
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.strip().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private static String digits(String value) {
+        return value == null ? "" : value.replaceAll("\\D", "");
+    }
+
+    /**
+     * Возвращает различные триграммы текста, не пересекающие границы полей.
+     */
+    private static Set<String> grams(String text) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            String gram = text.substring(i, i + GRAM);
+            if (gram.indexOf(SEPARATOR) < 0) {
+                result.add(gram);
+            }
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] insert(int[] list, int value) {
+        int at = Arrays.binarySearch(list, value);
+        if (at >= 0) {
+            return list;
+        }
+        at = -at - 1;
+        int[] result = new int[list.length + 1];
+        System.arraycopy(list, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(list, at, result, at + 1, list.length - at);
+        return result;
+    }
+
+    private static int[] delete(int[] list, int value) {
+        int at = Arrays.binarySearch(list, value);
+        if (at < 0) {
+            return list;
+        }
+        int[] result = new int[list.length - 1];
+        System.arraycopy(list, 0, result, 0, at);
+        System.arraycopy(list, at + 1, result, at, list.length - at - 1);
+        return result;
+    }
+}
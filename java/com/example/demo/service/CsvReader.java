@@ -0,0 +1,169 @@
+package com.example.demo.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение CSV-файла по одной записи.
+ *
+ * Поддерживает поля в кавычках (в том числе с разделителями,
+ * удвоенными кавычками и переводами строк внутри). Разделитель
+ * определяется по строке заголовка: точка с запятой, если она
+ * там встречается (так сохраняет CSV Excel), иначе запятая.
+ * В памяти одновременно находится только текущая запись.
+ */
+public class CsvReader implements Closeable {
+
+    private final BufferedReader reader;
+
+    private final char delimiter;
+
+    private final String[] header;
+
+    /**
+     * Номер последней прочитанной строки файла.
+     */
+    private long lineNumber;
+
+    /**
+     * Открывает файл и читает строку заголовка.
+     *
+     * @param in поток с содержимым файла в UTF-8
+     * @throws IOException при ошибке чтения
+     */
+    public CsvReader(InputStream in) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        String first = reader.readLine();
+        lineNumber = 1;
+        if (first != null && first.startsWith("\uFEFF")) {
+            first = first.substring(1);
+        }
+        this.delimiter = first != null && first.indexOf(';') >= 0 ? ';' : ',';
+        this.header = first == null ? new String[0] : parse(first);
+    }
+
+    /**
+     * Возвращает названия столбцов из строки заголовка.
+     *
+     * @return названия столбцов
+     */
+    public String[] header() {
+        return header;
+    }
+
+    /**
+     * Возвращает позицию столбца по названию из заголовка.
+     *
+     * @param name название столбца (без учёта регистра)
+     * @return позиция столбца или -1, если столбца нет
+     */
+    public int column(String name) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Возвращает значение поля записи.
+     *
+     * @param row    запись
+     * @param column позиция столбца
+     * @return значение или null, если поле отсутствует или пустое
+     */
+    public static String value(String[] row, int column) {
+        if (column < 0 || column >= row.length || row[column].isEmpty()) {
+            return null;
+        }
+        return row[column];
+    }
+
+    /**
+     * Возвращает номер последней прочитанной строки файла.
+     *
+     * @return номер строки
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Читает следующую запись. Пустые строки пропускаются.
+     *
+     * @return значения полей или null, если файл закончился
+     * @throws IOException при ошибке чтения
+     */
+    public String[] next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+        return parse(line);
+    }
+
+    /**
+     * Разбирает запись, дочитывая следующие строки,
+     * если поле в кавычках содержит перевод строки.
+     */
+    private String[] parse(String line) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                String continuation = reader.readLine();
+                if (continuation == null) {
+                    break;
+                }
+                lineNumber++;
+                field.append('\n');
+                line = continuation;
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
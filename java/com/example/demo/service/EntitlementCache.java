@@ -0,0 +1,236 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.Entitlement;
+import com.example.demo.repository.TicketPurchaseRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кэш прав клиентов на посещение.
+ *
+ * Хранит для каждого клиента действующую покупку абонемента,
+ * то есть самую раннюю покупку с оставшимися занятиями
+ * (или отметку об её отсутствии), чтобы проверка при записи
+ * на занятие не обращалась к базе данных повторно.
+ *
+ * Сам остаток занятий в кэше не хранится: он списывается
+ * в базе данных атомарно, см. {@link TicketPurchaseRepository#consumeSession}.
+ *
+ * Кэш ограничен {@code fitness.cache.entitlements.max-size} клиентами.
+ * Найденная покупка хранится {@code fitness.cache.entitlements.ttl},
+ * отметка об отсутствии покупки — {@code fitness.cache.entitlements.negative-ttl}.
+ * Запрос к базе данных выполняется без блокировки кэша. Если во время
+ * запроса запись клиента была сброшена, результат не сохраняется:
+ * он мог быть прочитан до фиксации изменения, вызвавшего сброс.
+ *
+ * Кэш поддерживается в актуальном состоянии контроллерами,
+ * которые изменяют покупки абонементов и клиентов.
+ */
+@Component
+public class EntitlementCache {
+
+    /**
+     * Отметка о том, что у клиента нет действующей покупки.
+     */
+    private static final Entitlement NONE = new Entitlement(null, null);
+
+    /**
+     * Количество счётчиков сбросов; клиент выбирает счётчик по номеру.
+     */
+    private static final int GENERATIONS = 1024;
+
+    /**
+     * Репозиторий для поиска покупок абонементов.
+     */
+    @Autowired
+    private TicketPurchaseRepository purchaseRepo;
+
+    /**
+     * Реестр метрик для статистики кэша.
+     */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Наибольшее количество клиентов в кэше.
+     */
+    @Value("${fitness.cache.entitlements.max-size:100000}")
+    private long maxSize;
+
+    /**
+     * Время жизни найденной покупки.
+     */
+    @Value("${fitness.cache.entitlements.ttl:10m}")
+    private Duration ttl;
+
+    /**
+     * Время жизни отметки об отсутствии покупки.
+     */
+    @Value("${fitness.cache.entitlements.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    /**
+     * Права на посещение по номеру клиента.
+     */
+    private Cache<Integer, Entitlement> entries;
+
+    /**
+     * Номер клиента по номеру закэшированной покупки.
+     * Содержит только покупки, которые есть в {@link #entries}.
+     */
+    private final Map<Integer, Integer> owners = new ConcurrentHashMap<>();
+
+    /**
+     * Счётчики сбросов записей клиентов.
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+
+    /**
+     * Счётчик полных очисток кэша.
+     */
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * Создаёт кэш и регистрирует его метрики.
+     */
+    @PostConstruct
+    public void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<Integer, Entitlement>() {
+                    @Override
+                    public long expireAfterCreate(Integer key, Entitlement value, long currentTime) {
+                        return (value == NONE ? negativeTtl : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer key, Entitlement value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer key, Entitlement value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .evictionListener((Integer clientNumber, Entitlement value, RemovalCause cause) ->
+                        forget(clientNumber, value))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "entitlements");
+    }
+
+    /**
+     * Возвращает право клиента на посещение.
+     *
+     * При отсутствии записи в кэше выполняется один индексный
+     * запрос к таблице покупок.
+     *
+     * @param clientNumber номер клиента
+     * @return право на посещение или пустое значение, если абонемент не куплен
+     */
+    public Optional<Entitlement> find(Integer clientNumber) {
+        if (clientNumber == null) {
+            return Optional.empty();
+        }
+        Entitlement entitlement = entries.getIfPresent(clientNumber);
+        if (entitlement == null) {
+            long startEpoch = epoch.get();
+            long startGeneration = generations.get(slot(clientNumber));
+            Entitlement loaded = load(clientNumber);
+            entries.asMap().compute(clientNumber, (key, current) -> {
+                if (current != null || epoch.get() != startEpoch
+                        || generations.get(slot(clientNumber)) != startGeneration) {
+                    return current;
+                }
+                if (loaded.purchaseNumber() != null) {
+                    owners.put(loaded.purchaseNumber(), clientNumber);
+                }
+                return loaded;
+            });
+            entitlement = loaded;
+        }
+        return entitlement == NONE ? Optional.empty() : Optional.of(entitlement);
+    }
+
+    /**
+     * Сбрасывает запись клиента.
+     *
+     * @param clientNumber номер клиента
+     */
+    public void evictClient(Integer clientNumber) {
+        if (clientNumber != null) {
+            entries.asMap().compute(clientNumber, (key, current) -> {
+                generations.incrementAndGet(slot(clientNumber));
+                forget(clientNumber, current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Сбрасывает запись, которая ссылается на указанную покупку.
+     *
+     * @param purchaseNumber номер покупки
+     */
+    public void evictPurchase(Integer purchaseNumber) {
+        if (purchaseNumber != null) {
+            evictClient(owners.get(purchaseNumber));
+        }
+    }
+
+    /**
+     * Полностью очищает кэш.
+     *
+     * Используется при каскадном удалении покупок,
+     * когда затронутые клиенты заранее неизвестны.
+     */
+    public void clear() {
+        epoch.incrementAndGet();
+        entries.asMap().keySet().forEach(this::evictClient);
+    }
+
+    /**
+     * Загружает действующую покупку клиента из базы данных.
+     *
+     * @param clientNumber номер клиента
+     * @return право на посещение или {@link #NONE}
+     */
+    private Entitlement load(Integer clientNumber) {
+        List<Entitlement> found = purchaseRepo.findEntitlements(clientNumber, PageRequest.of(0, 1));
+        return found.isEmpty() ? NONE : found.get(0);
+    }
+
+    /**
+     * Удаляет покупку записи из индекса владельцев.
+     * Вызывается при удалении записи, под блокировкой её ключа.
+     */
+    private void forget(Integer clientNumber, Entitlement value) {
+        if (value != null && value.purchaseNumber() != null) {
+            owners.remove(value.purchaseNumber(), clientNumber);
+        }
+    }
+
+    private static int slot(Integer clientNumber) {
+        return Math.floorMod(clientNumber, GENERATIONS);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PurchaseRow;
+import com.example.demo.dto.VisitRow;
+import com.example.demo.repository.TicketPurchaseRepository;
+import com.example.demo.repository.VisitRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Сервис потоковой выгрузки посещений и покупок в CSV.
+ *
+ * Строки читаются из базы данных курсором (fetch size задан
+ * в запросах репозиториев) и сразу записываются в ответ,
+ * поэтому выгрузка не материализует таблицу в памяти
+ * и начинает отдавать данные немедленно. Каждые
+ * {@value #CHUNK_ROWS} строк буфер сбрасывается клиенту,
+ * а контекст персистентности очищается.
+ *
+ * Формат {@link Format#EXCEL} отличается разделителем «;»
+ * и меткой порядка байтов UTF-8: так файл корректно
+ * открывается в Excel с русской локалью. Текстовые значения,
+ * начинающиеся с «=», «+», «-» или «@», в этом формате
+ * предваряются апострофом, чтобы Excel не выполнил их как формулы.
+ */
+@Service
+public class ExportService {
+
+    /**
+     * Количество строк между сбросами буфера и контекста персистентности.
+     */
+    private static final int CHUNK_ROWS = 5_000;
+
+    /**
+     * Тип содержимого выгрузки.
+     */
+    public static final MediaType MEDIA_TYPE = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    /**
+     * Формат выгрузки.
+     */
+    public enum Format {
+        CSV(','),
+        EXCEL(';');
+
+        private final char delimiter;
+
+        Format(char delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Возвращает формат по имени без учёта регистра.
+         *
+         * @param name имя формата: csv или excel
+         * @return формат или null, если формат неизвестен
+         */
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Репозиторий посещений.
+     */
+    @Autowired
+    private VisitRepository visitRepo;
+
+    /**
+     * Репозиторий покупок абонементов.
+     */
+    @Autowired
+    private TicketPurchaseRepository purchaseRepo;
+
+    /**
+     * Шаблон транзакций; выгрузка выполняется в отдельном потоке,
+     * поэтому транзакция открывается явно.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Контекст персистентности, очищаемый по ходу выгрузки.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Возвращает выгрузку посещений за период.
+     *
+     * @param from   первый день периода или null
+     * @param to     последний день периода или null
+     * @param format формат выгрузки
+     * @return тело ответа, записывающее выгрузку
+     */
+    public StreamingResponseBody visits(LocalDate from, LocalDate to, Format format) {
+        LocalDateTime start = VisitJournalService.startOf(from);
+        LocalDateTime end = VisitJournalService.endOf(to);
+        return out -> export(out, format,
+                new String[]{"visit_number", "visit_date", "client", "coach", "attended"},
+                () -> visitRepo.streamRows(start, end),
+                (VisitRow v) -> new Object[]{v.visitNumber(), v.visitDate(), v.clientName(), v.coachName(),
+                        v.attendance() == null ? null : v.attendance().getLabel()});
+    }
+
+    /**
+     * Возвращает выгрузку всех покупок абонементов.
+     *
+     * @param format формат выгрузки
+     * @return тело ответа, записывающее выгрузку
+     */
+    public StreamingResponseBody purchases(Format format) {
+        return out -> export(out, format,
+                new String[]{"purchase_number", "purchase_date", "client", "specialization", "price", "remaining_sessions"},
+                () -> purchaseRepo.streamRows(),
+                (PurchaseRow p) -> new Object[]{p.purchaseNumber(), p.purchaseDate(), p.clientName(),
+                        p.specializationName(), p.price(), p.remainingSessions()});
+    }
+
+    /**
+     * Записывает строки запроса в поток ответа внутри транзакции
+     * только для чтения, которая держит открытым курсор.
+     */
+    private <T> void export(OutputStream out, Format format, String[] header,
+                            Supplier<Stream<T>> query,
+                            Function<T, Object[]> columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        if (format == Format.EXCEL) {
+            writer.write('\uFEFF');
+        }
+        writeRow(writer, format, header);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        try {
+            readOnly.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get()) {
+                    Iterator<T> it = rows.iterator();
+                    long count = 0;
+                    while (it.hasNext()) {
+                        writeRow(writer, format, columns.apply(it.next()));
+                        if (++count % CHUNK_ROWS == 0) {
+                            writer.flush();
+                            entityManager.clear();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Записывает одну строку CSV, экранируя значения при необходимости.
+     */
+    private void writeRow(Writer writer, Format format, Object[] values) throws IOException {
+        char delimiter = format.delimiter;
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(delimiter);
+            }
+            String value = values[i] == null ? "" : values[i].toString();
+            if (format == Format.EXCEL && values[i] instanceof CharSequence && isFormula(value)) {
+                value = "'" + value;
+            }
+            if (value.indexOf(delimiter) >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Проверяет, будет ли Excel разбирать значение как формулу.
+     */
+    private static boolean isFormula(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        char first = value.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@';
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Кэш отрисованных фрагментов страниц списков.
+ *
+ * Фрагмент (отдельный шаблон с частью страницы) отрисовывается
+ * один раз и хранится готовой строкой HTML, пока не изменятся
+ * таблицы, которые он показывает: в ключ входит версия таблиц
+ * из {@link TableVersions}, поэтому сохранение или удаление
+ * записи делает старые фрагменты недоступными, и они вытесняются.
+ * Общий размер кэша ограничен {@code fitness.cache.fragments.max-size}.
+ * Статистика публикуется как метрика {@code cache.gets} кэша
+ * {@code fragments}.
+ */
+@Component
+public class FragmentCache {
+
+    /**
+     * Шаблонизатор Thymeleaf.
+     */
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    /**
+     * Версии таблиц, входящие в ключ фрагмента.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Реестр метрик.
+     */
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Наибольший суммарный размер отрисованных фрагментов.
+     */
+    @Value("${fitness.cache.fragments.max-size:16MB}")
+    private DataSize maxSize;
+
+    private Cache<String, String> fragments;
+
+    private volatile JakartaServletWebApplication application;
+
+    /**
+     * Создаёт кэш и регистрирует его метрики.
+     */
+    @PostConstruct
+    public void init() {
+        fragments = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, String html) -> 2 * (key.length() + html.length()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, fragments, "fragments");
+    }
+
+    /**
+     * Возвращает отрисованный фрагмент из кэша или отрисовывает его.
+     *
+     * @param template  шаблон фрагмента
+     * @param request   текущий запрос, нужный для построения ссылок
+     * @param table     таблица, которую показывает фрагмент
+     * @param variables загрузка данных фрагмента; вызывается только при промахе
+     * @param params    параметры запроса, от которых зависит фрагмент
+     * @return HTML фрагмента
+     */
+    public String render(String template, ServletWebRequest request, TableVersions.Table table,
+                         Supplier<Map<String, Object>> variables, Object... params) {
+        HttpServletRequest servletRequest = request.getRequest();
+        String key = template + "@" + tableVersions.version(table)
+                + ":" + servletRequest.getContextPath() + ":" + request.getLocale()
+                + (params.length > 0 ? ":" + Arrays.toString(params) : "");
+        return fragments.get(key, k -> {
+            WebContext context = new WebContext(application(servletRequest)
+                    .buildExchange(servletRequest, request.getResponse()), request.getLocale(), variables.get());
+            return templateEngine.process(template, context);
+        });
+    }
+
+    private JakartaServletWebApplication application(HttpServletRequest request) {
+        if (application == null) {
+            application = JakartaServletWebApplication.buildApplication(request.getServletContext());
+        }
+        return application;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.Occupancy;
+import com.example.demo.repository.VisitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+
+/**
+ * Сервис тепловой карты загрузки тренеров.
+ *
+ * Карта считается агрегатным запросом по индексу
+ * (coach_number, visit_date) и кэшируется по тренеру и периоду
+ * в кэше {@value #CACHE}. При изменении посещений сбрасываются
+ * только записи тренера, которого они касаются, и только после
+ * фиксации транзакции, чтобы кэш не заполнился данными
+ * до изменения.
+ */
+@Service
+public class OccupancyService {
+
+    /**
+     * Имя кэша тепловых карт.
+     */
+    public static final String CACHE = "occupancy";
+
+    /**
+     * Репозиторий посещений.
+     */
+    @Autowired
+    private VisitRepository visitRepo;
+
+    /**
+     * Менеджер кэшей для точечного сброса записей тренера.
+     */
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Возвращает загрузку тренера за период.
+     *
+     * @param coachNumber номер тренера
+     * @param from        первый день периода
+     * @param to          последний день периода
+     * @return загрузка по дням недели и часам
+     */
+    @Cacheable(cacheNames = CACHE, key = "#coachNumber + ':' + #from + ':' + #to")
+    public Occupancy occupancy(Integer coachNumber, LocalDate from, LocalDate to) {
+        return Occupancy.of(from, to, visitRepo.countByWeekdayAndHour(
+                coachNumber, from.atStartOfDay(), to.plusDays(1).atStartOfDay()));
+    }
+
+    /**
+     * Сбрасывает закэшированные карты тренера после фиксации
+     * текущей транзакции или сразу, если транзакции нет.
+     *
+     * @param coachNumber номер тренера
+     */
+    public void evictCoach(Integer coachNumber) {
+        if (coachNumber == null) {
+            return;
+        }
+        String prefix = coachNumber + ":";
+        afterCommit(() -> nativeCache().asMap().keySet()
+                .removeIf(key -> key.toString().startsWith(prefix)));
+    }
+
+    /**
+     * Сбрасывает все закэшированные карты, например после
+     * каскадного удаления посещений клиента или импорта.
+     */
+    public void evictAll() {
+        afterCommit(() -> nativeCache().invalidateAll());
+    }
+
+    @SuppressWarnings("unchecked")
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache() {
+        Cache cache = cacheManager.getCache(CACHE);
+        return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ClientPassSummary;
+import com.example.demo.repository.ClientPassSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис сводки абонементов клиентов.
+ *
+ * Поддерживает таблицу {@code client_pass_summary}: для каждого клиента
+ * действующая покупка, использованные и оставшиеся занятия и последнее
+ * посещение. Код, изменяющий покупки и посещения, помечает затронутых
+ * клиентов изменёнными; задание по расписанию пересчитывает сводку
+ * только этих клиентов, группами по {@code fitness.pass-summary.batch-size}
+ * одним запросом на группу. Изменения, затрагивающие неизвестный набор
+ * клиентов (каскадные удаления, изменение абонемента, импорт),
+ * помечают изменённой всю сводку, и она пересчитывается целиком.
+ * Кроме того, сводка полностью пересчитывается раз в сутки.
+ *
+ * Сводка отстаёт от покупок и посещений не больше чем на период
+ * задания, поэтому используется для отображения. Право на посещение
+ * при записи проверяется по {@link EntitlementCache} и атомарному
+ * списанию занятия.
+ */
+@Service
+public class PassSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(PassSummaryService.class);
+
+    /**
+     * Репозиторий сводки абонементов.
+     */
+    @Autowired
+    private ClientPassSummaryRepository summaryRepo;
+
+    /**
+     * Шаблон транзакций для пересчёта групп клиентов.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Версии таблиц: список клиентов показывает сводку.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Включено ли ведение сводки.
+     */
+    @Value("${fitness.pass-summary.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Количество клиентов, пересчитываемых одним запросом.
+     */
+    @Value("${fitness.pass-summary.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Номера клиентов, сводка которых устарела.
+     */
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Признак того, что устарела вся сводка.
+     */
+    private final AtomicBoolean allDirty = new AtomicBoolean();
+
+    /**
+     * Помечает сводку клиента устаревшей.
+     *
+     * Внутри транзакции клиент помечается после её фиксации,
+     * чтобы задание не пересчитало сводку по незафиксированным данным.
+     *
+     * @param clientNumber номер клиента
+     */
+    public void markDirty(Integer clientNumber) {
+        if (enabled && clientNumber != null) {
+            afterCommit(() -> dirty.add(clientNumber));
+        }
+    }
+
+    /**
+     * Помечает сводку группы клиентов устаревшей.
+     *
+     * @param clientNumbers номера клиентов
+     */
+    public void markDirty(Collection<Integer> clientNumbers) {
+        if (enabled && !clientNumbers.isEmpty()) {
+            List<Integer> copy = clientNumbers.stream().filter(Objects::nonNull).toList();
+            afterCommit(() -> dirty.addAll(copy));
+        }
+    }
+
+    /**
+     * Помечает всю сводку устаревшей после изменений,
+     * затронутые клиенты которых неизвестны.
+     */
+    public void markAllDirty() {
+        if (enabled) {
+            afterCommit(() -> allDirty.set(true));
+        }
+    }
+
+    /**
+     * Возвращает сводку клиента.
+     *
+     * @param clientNumber номер клиента
+     * @return сводка или пустое значение, если она ещё не рассчитана
+     */
+    @Transactional(readOnly = true)
+    public Optional<ClientPassSummary> find(Integer clientNumber) {
+        return clientNumber == null ? Optional.empty() : summaryRepo.findById(clientNumber);
+    }
+
+    /**
+     * Возвращает сводку всех клиентов.
+     *
+     * @return сводка по номеру клиента
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, ClientPassSummary> byClient() {
+        return summaryRepo.findAll().stream()
+                .collect(Collectors.toMap(ClientPassSummary::getClientNumber, Function.identity()));
+    }
+
+    /**
+     * Помечает всю сводку устаревшей при первом запуске,
+     * когда таблица сводки ещё пуста.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIfEmpty() {
+        if (enabled && summaryRepo.count() == 0) {
+            allDirty.set(true);
+        }
+    }
+
+    /**
+     * Пересчитывает сводку клиентов, помеченных устаревшими.
+     *
+     * Если группу пересчитать не удалось, её клиенты остаются
+     * помеченными и пересчитываются при следующем запуске.
+     */
+    @Scheduled(fixedDelayString = "${fitness.pass-summary.refresh-delay:PT5S}")
+    public synchronized void refreshDirty() {
+        if (!enabled) {
+            return;
+        }
+        if (allDirty.getAndSet(false)) {
+            dirty.clear();
+            rebuild();
+            return;
+        }
+        int rows = 0;
+        List<Integer> batch = new ArrayList<>(batchSize);
+        for (Iterator<Integer> it = dirty.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+            if (batch.size() == batchSize) {
+                rows += refresh(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            rows += refresh(batch);
+        }
+        if (rows > 0) {
+            tableVersions.touch(TableVersions.Table.CLIENTS);
+        }
+    }
+
+    /**
+     * Полностью пересчитывает сводку по покупкам и посещениям.
+     */
+    @Scheduled(cron = "${fitness.pass-summary.rebuild-cron:0 45 3 * * *}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        int rows = transactionTemplate.execute(status -> summaryRepo.deleteAllRemoved() + summaryRepo.refreshAll());
+        if (rows > 0) {
+            tableVersions.touch(TableVersions.Table.CLIENTS);
+        }
+        log.info("Сводка абонементов пересчитана: изменено {} строк за {} мс",
+                rows, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Пересчитывает сводку группы клиентов в одной транзакции.
+     *
+     * @return количество изменённых строк
+     */
+    private int refresh(List<Integer> clients) {
+        try {
+            return transactionTemplate.execute(status ->
+                    summaryRepo.deleteRemoved(clients) + summaryRepo.refresh(clients));
+        } catch (RuntimeException e) {
+            dirty.addAll(clients);
+            log.warn("Не удалось пересчитать сводку абонементов {} клиентов", clients.size(), e);
+            return 0;
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
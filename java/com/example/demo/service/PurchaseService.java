@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import com.example.demo.model.TicketPurchase;
+import com.example.demo.repository.TicketPurchaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Сервис продажи абонементов.
+ *
+ * Сохраняет и удаляет покупки вместе с изменением сводной
+ * выручки в одной транзакции, поэтому сводка не расходится
+ * с покупками при сбоях и одновременном пересчёте.
+ * Сводка абонементов клиента покупки помечается устаревшей.
+ */
+@Service
+public class PurchaseService {
+
+    /**
+     * Репозиторий покупок абонементов.
+     */
+    @Autowired
+    private TicketPurchaseRepository purchaseRepo;
+
+    /**
+     * Сервис сводных показателей.
+     */
+    @Autowired
+    private RollupService rollupService;
+
+    /**
+     * Сервис сводки абонементов клиентов.
+     */
+    @Autowired
+    private PassSummaryService passSummaryService;
+
+    /**
+     * Сохраняет покупку абонемента.
+     *
+     * Если дата покупки не указана, она устанавливается
+     * как текущая дата. Для новой покупки остаток занятий
+     * равен количеству занятий выбранного абонемента.
+     *
+     * @param purchase покупка с данными формы
+     * @return сохранённая покупка
+     */
+    @Transactional
+    public TicketPurchase save(TicketPurchase purchase) {
+        if (purchase.getPurchaseDate() == null) {
+            purchase.setPurchaseDate(LocalDate.now());
+        }
+        if (purchase.getRemainingSessions() == null && purchase.getSeasonTicket() != null) {
+            purchase.setRemainingSessions(purchase.getSeasonTicket().getSessionsCount());
+        }
+        boolean existing = purchase.getPurchaseNumber() != null;
+        TicketPurchase saved = purchaseRepo.save(purchase);
+        if (existing) {
+            rollupService.markStale();
+            passSummaryService.markAllDirty();
+        } else if (saved.getSeasonTicket() != null) {
+            rollupService.purchaseAdded(saved.getSeasonTicket().getTicketNumber(), saved.getPurchaseDate());
+        }
+        if (!existing && saved.getClient() != null) {
+            passSummaryService.markDirty(saved.getClient().getClientNumber());
+        }
+        return saved;
+    }
+
+    /**
+     * Удаляет покупку абонемента.
+     *
+     * @param purchaseNumber номер покупки
+     * @return удалённая покупка или пустое значение, если её не было
+     */
+    @Transactional
+    public Optional<TicketPurchase> delete(Integer purchaseNumber) {
+        Optional<TicketPurchase> purchase = purchaseRepo.findById(purchaseNumber);
+        purchase.ifPresent(p -> {
+            purchaseRepo.delete(p);
+            if (p.getSeasonTicket() != null) {
+                rollupService.purchaseRemoved(p.getSeasonTicket().getTicketNumber(), p.getPurchaseDate());
+            }
+            if (p.getClient() != null) {
+                passSummaryService.markDirty(p.getClient().getClientNumber());
+            }
+        });
+        return purchase;
+    }
+}
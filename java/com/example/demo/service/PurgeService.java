@@ -0,0 +1,416 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PurgeStatus;
+import com.example.demo.repository.ClientRepository;
+import com.example.demo.repository.CoachRepository;
+import com.example.demo.repository.SeasonTicketRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис удаления клиентов, тренеров и абонементов вместе с историей.
+ *
+ * Удаление через {@code delete(entity)} заставляет Hibernate загрузить
+ * все посещения и покупки из каскадных коллекций и удалить их по одной.
+ * Вместо этого запись сразу помечается удалённой (и пропадает из списков
+ * и форм), а дочерние строки удаляются пакетными DELETE в порядке
+ * зависимостей:
+ * <ul>
+ *   <li>если дочерних строк не больше {@code fitness.purge.inline-rows},
+ *   всё удаляется в одной транзакции в рамках запроса;</li>
+ *   <li>иначе удаление выполняется в фоне порциями по
+ *   {@code fitness.purge.chunk-rows} строк, каждая в своей транзакции,
+ *   а остаток и сама запись удаляются одной завершающей транзакцией.
+ *   Ход удаления отображается на странице списка.</li>
+ * </ul>
+ * Записи, помеченные удалёнными, но не удалённые до остановки
+ * приложения, дочищаются при следующем запуске.
+ */
+@Service
+public class PurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurgeService.class);
+
+    /**
+     * Дочерняя таблица удаляемой записи.
+     *
+     * @param table  таблица
+     * @param id     первичный ключ таблицы
+     * @param parent столбец ссылки на удаляемую запись
+     */
+    private record Child(String table, String id, String parent) {
+    }
+
+    /**
+     * Вид удаляемой записи.
+     */
+    public enum Target {
+        CLIENT("Клиент", "clients", "client_number",
+                List.of(new Child("visits", "visit_number", "client_number"),
+                        new Child("ticket_purchases", "purchase_number", "client_number"))),
+        COACH("Тренер", "coaches", "coach_number",
+                List.of(new Child("visits", "visit_number", "coach_number"))),
+        TICKET("Абонемент", "season_tickets", "ticket_number",
+                List.of(new Child("ticket_purchases", "purchase_number", "ticket_number")));
+
+        private final String title;
+        private final String table;
+        private final String id;
+        private final List<Child> children;
+
+        Target(String title, String table, String id, List<Child> children) {
+            this.title = title;
+            this.table = table;
+            this.id = id;
+            this.children = children;
+        }
+
+        /**
+         * Возвращает название вида записи для страницы.
+         *
+         * @return название
+         */
+        public String title() {
+            return title;
+        }
+    }
+
+    /**
+     * Удаление одной записи.
+     */
+    private static final class Job {
+        private final Target target;
+        private final Integer id;
+        private final long total;
+        private final AtomicLong deleted = new AtomicLong();
+        private volatile boolean finished;
+        private volatile String error;
+
+        private Job(Target target, Integer id, long total) {
+            this.target = target;
+            this.id = id;
+            this.total = total;
+        }
+
+        private PurgeStatus status() {
+            return new PurgeStatus(target.title(), id, deleted.get(), total, finished, error);
+        }
+    }
+
+    /**
+     * Сколько завершённых фоновых удалений показывать на страницах.
+     */
+    private static final int KEPT_FINISHED = 20;
+
+    /**
+     * Шаблон JDBC для пакетных DELETE.
+     */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /**
+     * Шаблон транзакций для удаления в одной транзакции.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Репозиторий клиентов.
+     */
+    @Autowired
+    private ClientRepository clientRepo;
+
+    /**
+     * Репозиторий тренеров.
+     */
+    @Autowired
+    private CoachRepository coachRepo;
+
+    /**
+     * Репозиторий абонементов.
+     */
+    @Autowired
+    private SeasonTicketRepository ticketRepo;
+
+    /**
+     * Кэш прав клиентов на посещение.
+     */
+    @Autowired
+    private EntitlementCache entitlementCache;
+
+    /**
+     * Сервис справочных данных для списков тренеров и абонементов.
+     */
+    @Autowired
+    private ReferenceDataService referenceData;
+
+    /**
+     * Индекс поиска клиентов.
+     */
+    @Autowired
+    private ClientSearchIndex searchIndex;
+
+    /**
+     * Сервис сводных показателей, пересчитываемых после удаления.
+     */
+    @Autowired
+    private RollupService rollupService;
+
+    /**
+     * Сервис тепловой карты загрузки тренеров.
+     */
+    @Autowired
+    private OccupancyService occupancyService;
+
+    /**
+     * Версии таблиц для условных ответов страниц списков.
+     */
+    @Autowired
+    private TableVersions tableVersions;
+
+    /**
+     * Сервис сводки абонементов клиентов.
+     */
+    @Autowired
+    private PassSummaryService passSummaryService;
+
+    /**
+     * Учёт занятых мест у тренеров по слотам.
+     */
+    @Autowired
+    private SlotReservations slotReservations;
+
+    /**
+     * Наибольшее количество дочерних строк для удаления в рамках запроса.
+     */
+    @Value("${fitness.purge.inline-rows:10000}")
+    private long inlineRows;
+
+    /**
+     * Количество строк в одной порции фонового удаления.
+     */
+    @Value("${fitness.purge.chunk-rows:5000}")
+    private int chunkRows;
+
+    /**
+     * Фоновые удаления по ключу «вид:номер».
+     */
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Поток фоновых удалений; удаления выполняются по очереди,
+     * чтобы не конкурировать за блокировки одних и тех же таблиц.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Удаляет запись вместе с посещениями и покупками.
+     *
+     * Запись сразу скрывается; её строки удаляются сразу
+     * или в фоне в зависимости от объёма истории.
+     *
+     * @param target вид записи
+     * @param id     номер записи
+     * @return true, если удаление продолжается в фоне
+     */
+    public boolean delete(Target target, Integer id) {
+        if (hide(target, id) == 0) {
+            return false;
+        }
+        afterHide(target, id);
+
+        long total = countChildren(target, id);
+        if (total <= inlineRows) {
+            transactionTemplate.executeWithoutResult(status -> deleteAll(target, id));
+            afterPurge(target, id);
+            return false;
+        }
+        submit(new Job(target, id, total));
+        return true;
+    }
+
+    /**
+     * Возвращает состояние фоновых удалений записей указанного вида.
+     *
+     * @param target вид записи
+     * @return удаления в порядке номеров записей
+     */
+    public List<PurgeStatus> jobs(Target target) {
+        List<PurgeStatus> result = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job.target == target) {
+                result.add(job.status());
+            }
+        }
+        result.sort(Comparator.comparing(PurgeStatus::id));
+        return result;
+    }
+
+    /**
+     * Дочищает записи, помеченные удалёнными до остановки приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        for (Target target : Target.values()) {
+            List<Integer> ids = jdbc.queryForList(
+                    "select " + target.id + " from " + target.table + " where deleted = true", Integer.class);
+            for (Integer id : ids) {
+                submit(new Job(target, id, countChildren(target, id)));
+            }
+        }
+    }
+
+    /**
+     * Останавливает фоновые удаления; незавершённые будут
+     * продолжены при следующем запуске.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void submit(Job job) {
+        jobs.put(job.target + ":" + job.id, job);
+        forgetFinished();
+        executor.submit(() -> run(job));
+    }
+
+    /**
+     * Удаляет дочерние строки порциями, затем остаток и саму запись.
+     */
+    private void run(Job job) {
+        long started = System.currentTimeMillis();
+        try {
+            for (Child child : job.target.children) {
+                String sql = "delete from " + child.table() + " where " + child.id() + " in ("
+                        + "select " + child.id() + " from " + child.table()
+                        + " where " + child.parent() + " = ? limit ?)";
+                int deleted;
+                do {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    deleted = jdbc.update(sql, job.id, chunkRows);
+                    job.deleted.addAndGet(deleted);
+                } while (deleted > 0);
+            }
+            transactionTemplate.executeWithoutResult(status -> deleteAll(job.target, job.id));
+            afterPurge(job.target, job.id);
+            log.info("{} {} удалён: {} строк за {} мс", job.target.title(), job.id,
+                    job.deleted.get(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            job.error = e.getMessage();
+            log.error("Не удалось удалить {} {}", job.target.title(), job.id, e);
+        } finally {
+            job.finished = true;
+        }
+    }
+
+    /**
+     * Удаляет дочерние строки и саму запись в текущей транзакции.
+     */
+    private void deleteAll(Target target, Integer id) {
+        for (Child child : target.children) {
+            jdbc.update("delete from " + child.table() + " where " + child.parent() + " = ?", id);
+        }
+        jdbc.update("delete from " + target.table + " where " + target.id + " = ?", id);
+    }
+
+    private long countChildren(Target target, Integer id) {
+        long total = 0;
+        for (Child child : target.children) {
+            Long count = jdbc.queryForObject(
+                    "select count(*) from " + child.table() + " where " + child.parent() + " = ?", Long.class, id);
+            total += count != null ? count : 0;
+        }
+        return total;
+    }
+
+    private int hide(Target target, Integer id) {
+        return switch (target) {
+            case CLIENT -> clientRepo.hide(id);
+            case COACH -> coachRepo.hide(id);
+            case TICKET -> ticketRepo.hide(id);
+        };
+    }
+
+    /**
+     * Убирает скрытую запись из кэшей списков и форм.
+     */
+    private void afterHide(Target target, Integer id) {
+        touch(target);
+        switch (target) {
+            case CLIENT -> {
+                searchIndex.remove(id);
+                entitlementCache.evictClient(id);
+                passSummaryService.markDirty(id);
+            }
+            case COACH -> referenceData.evictCoaches();
+            case TICKET -> referenceData.evictTickets();
+        }
+    }
+
+    /**
+     * Сбрасывает кэши и сводки, зависящие от удалённых строк.
+     */
+    private void afterPurge(Target target, Integer id) {
+        touch(target);
+        switch (target) {
+            case CLIENT -> {
+                entitlementCache.evictClient(id);
+                occupancyService.evictAll();
+                slotReservations.evictAll();
+            }
+            case COACH -> {
+                occupancyService.evictCoach(id);
+                slotReservations.evictAll();
+                passSummaryService.markAllDirty();
+            }
+            case TICKET -> {
+                entitlementCache.clear();
+                passSummaryService.markAllDirty();
+            }
+        }
+        rollupService.markStale();
+    }
+
+    /**
+     * Отмечает изменение таблиц, отображающих записи указанного вида.
+     */
+    private void touch(Target target) {
+        switch (target) {
+            case CLIENT -> tableVersions.touch(TableVersions.Table.CLIENTS, TableVersions.Table.PURCHASES);
+            case COACH -> tableVersions.touch(TableVersions.Table.COACHES);
+            case TICKET -> tableVersions.touch(TableVersions.Table.TICKETS, TableVersions.Table.PURCHASES);
+        }
+    }
+
+    private void forgetFinished() {
+        List<Job> finished = jobs.values().stream().filter(job -> job.finished).toList();
+        for (int i = 0; i < finished.size() - KEPT_FINISHED; i++) {
+            Job job = finished.get(i);
+            jobs.remove(job.target + ":" + job.id, job);
+        }
+    }
+}
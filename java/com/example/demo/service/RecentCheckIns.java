@@ -0,0 +1,148 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Недавние записи на занятия для отсева повторных отметок.
+ *
+ * Занятие определяется клиентом, тренером и часовым слотом.
+ * Для текущего и предыдущего слота в памяти хранятся пары
+ * «клиент — тренер», поэтому повторная отметка отклоняется
+ * без обращения к базе данных. Более старые слоты удаляются,
+ * а в одном слоте хранится не больше
+ * {@code fitness.checkin.dedup.max-per-slot} пар, так что объём
+ * памяти ограничен. Отметки вне окна и сверх предела проверяются
+ * уникальным ключом {@code uk_visits_client_coach_slot} таблицы посещений.
+ */
+@Component
+public class RecentCheckIns {
+
+    /**
+     * Количество хранимых слотов: текущий и предыдущий.
+     */
+    private static final int KEPT_SLOTS = 2;
+
+    /**
+     * Наибольшее количество пар «клиент — тренер» в одном слоте.
+     */
+    @Value("${fitness.checkin.dedup.max-per-slot:100000}")
+    private int maxPerSlot;
+
+    /**
+     * Записи на занятия по началу слота.
+     */
+    private final ConcurrentSkipListMap<LocalDateTime, Slot> slots = new ConcurrentSkipListMap<>();
+
+    /**
+     * Записи одного слота.
+     */
+    private static final class Slot {
+        private final Set<Long> keys = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    /**
+     * Возвращает начало слота занятия.
+     *
+     * @param visitDate дата и время посещения
+     * @return начало часа посещения
+     */
+    public static LocalDateTime slotOf(LocalDateTime visitDate) {
+        return visitDate == null ? null : visitDate.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    /**
+     * Запоминает запись клиента на занятие.
+     *
+     * Если запись выполняется в транзакции, которая затем
+     * откатывается, запись забывается, чтобы клиента можно
+     * было отметить повторно.
+     *
+     * @param clientNumber номер клиента
+     * @param coachNumber  номер тренера
+     * @param visitDate    дата и время посещения
+     * @return false, если клиент уже записан на это занятие
+     */
+    public boolean add(Integer clientNumber, Integer coachNumber, LocalDateTime visitDate) {
+        Slot slot = slot(clientNumber, coachNumber, visitDate);
+        if (slot == null) {
+            return true;
+        }
+        Long key = key(clientNumber, coachNumber);
+        if (slot.keys.contains(key)) {
+            return false;
+        }
+        if (slot.size.get() >= maxPerSlot) {
+            return true;
+        }
+        if (!slot.keys.add(key)) {
+            return false;
+        }
+        slot.size.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED && slot.keys.remove(key)) {
+                        slot.size.decrementAndGet();
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Забывает запись клиента на занятие после удаления посещения.
+     *
+     * @param clientNumber номер клиента
+     * @param coachNumber  номер тренера
+     * @param visitDate    дата и время посещения
+     */
+    public void remove(Integer clientNumber, Integer coachNumber, LocalDateTime visitDate) {
+        if (clientNumber == null || coachNumber == null || visitDate == null) {
+            return;
+        }
+        Slot slot = slots.get(slotOf(visitDate));
+        if (slot != null && slot.keys.remove(key(clientNumber, coachNumber))) {
+            slot.size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Возвращает записи слота посещения или null, если слот
+     * не хранится в памяти.
+     */
+    private Slot slot(Integer clientNumber, Integer coachNumber, LocalDateTime visitDate) {
+        if (clientNumber == null || coachNumber == null || visitDate == null) {
+            return null;
+        }
+        LocalDateTime current = slotOf(LocalDateTime.now());
+        LocalDateTime oldest = current.minusHours(KEPT_SLOTS - 1);
+        LocalDateTime start = slotOf(visitDate);
+        if (start.isBefore(oldest) || start.isAfter(current)) {
+            return null;
+        }
+        Map<LocalDateTime, Slot> expired = slots.headMap(oldest);
+        if (!expired.isEmpty()) {
+            expired.clear();
+        }
+        return slots.computeIfAbsent(start, s -> new Slot());
+    }
+
+    private static Long key(Integer clientNumber, Integer coachNumber) {
+        return ((long) clientNumber << 32) | (coachNumber & 0xffffffffL);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.service;
+
+import com.example.demo.model.*;
+import com.example.demo.repository.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис справочных данных для выпадающих списков форм.
+ *
+ * Списки специализаций, абонементов и тренеров
+ * меняются редко, поэтому хранятся в ограниченном по размеру
+ * и времени жизни кэше (см. {@link com.example.demo.config.CacheConfig}).
+ * Связи, которые выводятся в формах, загружаются сразу,
+ * чтобы закэшированные сущности можно было отображать
+ * вне сессии Hibernate.
+ *
+ * Контроллеры, изменяющие данные, сбрасывают соответствующие
+ * кэши методами {@code evict*}.
+ */
+@Service
+public class ReferenceDataService {
+
+    /**
+     * Репозиторий специализаций.
+     */
+    @Autowired
+    private SpecializationRepository specializationRepo;
+
+    /**
+     * Репозиторий абонементов.
+     */
+    @Autowired
+    private SeasonTicketRepository ticketRepo;
+
+    /**
+     * Репозиторий тренеров.
+     */
+    @Autowired
+    private CoachRepository coachRepo;
+
+    /**
+     * Возвращает список специализаций.
+     *
+     * @return все специализации
+     */
+    @Cacheable("specializations")
+    public List<Specialization> specializations() {
+        return specializationRepo.findAll();
+    }
+
+    /**
+     * Возвращает список абонементов.
+     *
+     * @return все абонементы со специализацией
+     */
+    @Cacheable("tickets")
+    public List<SeasonTicket> tickets() {
+        return ticketRepo.findAllWithSpecialization();
+    }
+
+    /**
+     * Возвращает список тренеров.
+     *
+     * @return все тренеры со специализацией
+     */
+    @Cacheable("coaches")
+    public List<Coach> coaches() {
+        return coachRepo.findAllWithSpecialization();
+    }
+
+    /**
+     * Возвращает тренеров по номеру для проверки тренера
+     * и вместимости его слота при каждой записи.
+     *
+     * Хранится в том же кэше, что и список тренеров,
+     * и сбрасывается вместе с ним.
+     *
+     * @return тренеры со специализацией по номеру тренера
+     */
+    @Cacheable(cacheNames = "coaches", key = "'byNumber'")
+    public Map<Integer, Coach> coachesByNumber() {
+        return coachRepo.findAllWithSpecialization().stream()
+                .collect(Collectors.toUnmodifiableMap(Coach::getCoachNumber, Function.identity()));
+    }
+
+    /**
+     * Сбрасывает кэш специализаций.
+     */
+    @CacheEvict(cacheNames = "specializations", allEntries = true)
+    public void evictSpecializations() {
+    }
+
+    /**
+     * Сбрасывает кэш абонементов.
+     */
+    @CacheEvict(cacheNames = "tickets", allEntries = true)
+    public void evictTickets() {
+    }
+
+    /**
+     * Сбрасывает кэш тренеров.
+     */
+    @CacheEvict(cacheNames = "coaches", allEntries = true)
+    public void evictCoaches() {
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AttendanceCell;
+import com.example.demo.dto.RevenueCell;
+import com.example.demo.model.Attendance;
+import com.example.demo.repository.AttendanceRollupRepository;
+import com.example.demo.repository.RevenueRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сервис сводных показателей для главной страницы.
+ *
+ * Хранит выручку по специализациям за месяц и посещаемость
+ * тренеров за день в отдельных таблицах. Сохранение и удаление
+ * покупок и посещений изменяют только свою строку сводки
+ * в той же транзакции, поэтому главная страница читает
+ * готовые значения, а не агрегирует таблицы фактов.
+ *
+ * Каскадные удаления клиентов, тренеров и абонементов,
+ * изменение цены абонемента и пакетный импорт помечают
+ * сводку устаревшей: она пересчитывается заданием восстановления
+ * при его следующем запуске. Кроме того, сводка полностью
+ * пересчитывается по расписанию.
+ */
+@Service
+public class RollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupService.class);
+
+    /**
+     * Репозиторий сводной выручки.
+     */
+    @Autowired
+    private RevenueRollupRepository revenueRepo;
+
+    /**
+     * Репозиторий сводной посещаемости.
+     */
+    @Autowired
+    private AttendanceRollupRepository attendanceRepo;
+
+    /**
+     * Шаблон транзакций для пересчёта сводки.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Включено ли ведение сводки.
+     */
+    @Value("${fitness.rollup.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Признак того, что сводка расходится с таблицами фактов.
+     */
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    /**
+     * Учитывает покупку абонемента в выручке.
+     *
+     * @param ticketNumber номер абонемента
+     * @param purchaseDate дата покупки
+     */
+    @Transactional
+    public void purchaseAdded(Integer ticketNumber, LocalDate purchaseDate) {
+        addPurchase(ticketNumber, purchaseDate, 1);
+    }
+
+    /**
+     * Исключает удалённую покупку абонемента из выручки.
+     *
+     * @param ticketNumber номер абонемента
+     * @param purchaseDate дата покупки
+     */
+    @Transactional
+    public void purchaseRemoved(Integer ticketNumber, LocalDate purchaseDate) {
+        addPurchase(ticketNumber, purchaseDate, -1);
+    }
+
+    /**
+     * Учитывает посещение в посещаемости тренера.
+     *
+     * @param coachNumber номер тренера
+     * @param visitDate   дата и время посещения
+     * @param attendance  отметка о посещении или null
+     */
+    @Transactional
+    public void visitAdded(Integer coachNumber, LocalDateTime visitDate, Attendance attendance) {
+        addVisit(coachNumber, visitDate, attendance, 1);
+    }
+
+    /**
+     * Учитывает пакет посещений тренера за один день.
+     *
+     * @param coachNumber номер тренера
+     * @param day         день посещений
+     * @param visits      количество посещений
+     * @param attended    количество посещений с отметкой о присутствии
+     */
+    @Transactional
+    public void visitsAdded(Integer coachNumber, LocalDate day, int visits, int attended) {
+        if (!enabled || coachNumber == null || day == null || visits == 0) {
+            return;
+        }
+        attendanceRepo.add(coachNumber, day, visits, attended);
+    }
+
+    /**
+     * Исключает удалённое посещение из посещаемости тренера.
+     *
+     * @param coachNumber номер тренера
+     * @param visitDate   дата и время посещения
+     * @param attendance  отметка о посещении или null
+     */
+    @Transactional
+    public void visitRemoved(Integer coachNumber, LocalDateTime visitDate, Attendance attendance) {
+        addVisit(coachNumber, visitDate, attendance, -1);
+    }
+
+    /**
+     * Помечает сводку устаревшей после изменений, которые
+     * не учитываются инкрементально.
+     */
+    public void markStale() {
+        stale.set(true);
+    }
+
+    /**
+     * Возвращает выручку за последние месяцы.
+     *
+     * @param months количество месяцев, включая текущий
+     * @return выручка по специализациям от новых месяцев к старым
+     */
+    @Transactional(readOnly = true)
+    public List<RevenueCell> revenue(int months) {
+        return revenueRepo.findCells(LocalDate.now().withDayOfMonth(1).minusMonths(months - 1));
+    }
+
+    /**
+     * Возвращает посещаемость за последние дни.
+     *
+     * @param days количество дней, включая текущий
+     * @return посещаемость тренеров от новых дней к старым
+     */
+    @Transactional(readOnly = true)
+    public List<AttendanceCell> attendance(int days) {
+        return attendanceRepo.findCells(LocalDate.now().minusDays(days - 1));
+    }
+
+    /**
+     * Помечает сводку устаревшей при первом запуске, когда
+     * таблицы сводки ещё пусты, чтобы учесть уже накопленные данные.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIfEmpty() {
+        if (enabled && revenueRepo.count() == 0 && attendanceRepo.count() == 0) {
+            markStale();
+        }
+    }
+
+    /**
+     * Пересчитывает сводку, если она помечена устаревшей.
+     */
+    @Scheduled(fixedDelayString = "${fitness.rollup.repair-delay:PT1M}")
+    public void repairIfStale() {
+        if (stale.getAndSet(false)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Полностью пересчитывает сводку по таблицам фактов.
+     *
+     * Таблицы сводки блокируются до конца пересчёта, поэтому
+     * инкрементальные обновления, начатые во время пересчёта,
+     * ждут его завершения и применяются уже к новым значениям.
+     */
+    @Scheduled(cron = "${fitness.rollup.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        int rows = transactionTemplate.execute(status -> {
+            revenueRepo.lockTable();
+            attendanceRepo.lockTable();
+            revenueRepo.deleteAllRows();
+            attendanceRepo.deleteAllRows();
+            return revenueRepo.rebuild() + attendanceRepo.rebuild();
+        });
+        log.info("Сводка пересчитана: {} строк за {} мс", rows, System.currentTimeMillis() - started);
+    }
+
+    private void addPurchase(Integer ticketNumber, LocalDate purchaseDate, int sign) {
+        if (!enabled || ticketNumber == null || purchaseDate == null) {
+            return;
+        }
+        revenueRepo.add(ticketNumber, purchaseDate.withDayOfMonth(1), sign);
+    }
+
+    private void addVisit(Integer coachNumber, LocalDateTime visitDate, Attendance attendance, int sign) {
+        if (!enabled || coachNumber == null || visitDate == null) {
+            return;
+        }
+        attendanceRepo.add(coachNumber, visitDate.toLocalDate(), sign, attendance == Attendance.ATTENDED ? sign : 0);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.TicketPurchaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Заполняет остаток занятий у покупок, сделанных
+ * до появления учёта оставшихся занятий.
+ *
+ * Выполняется один раз при запуске приложения; для уже
+ * заполненных покупок запрос ничего не изменяет. Из остатка
+ * вычитаются посещения клиента, сделанные до заполнения, см.
+ * {@link TicketPurchaseRepository#initRemainingSessions()}.
+ */
+@Component
+public class SessionLedgerInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionLedgerInitializer.class);
+
+    /**
+     * Репозиторий покупок абонементов.
+     */
+    @Autowired
+    private TicketPurchaseRepository purchaseRepo;
+
+    /**
+     * Заполняет незаполненные остатки занятий.
+     *
+     * @param args аргументы запуска приложения
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        int updated = purchaseRepo.initRemainingSessions();
+        if (updated > 0) {
+            log.info("Остаток занятий заполнен для {} покупок", updated);
+        }
+    }
+}
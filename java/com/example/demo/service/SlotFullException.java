@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+/**
+ * Исключение, сообщающее о том, что у тренера в часовом слоте
+ * не осталось свободных мест.
+ */
+public class SlotFullException extends CheckInException {
+
+    /**
+     * Создаёт исключение с сообщением для пользователя.
+     *
+     * @param booked   количество записей в слоте
+     * @param capacity вместимость слота
+     */
+    public SlotFullException(int booked, int capacity) {
+        super("⚠️ У тренера нет свободных мест на это время: записано " + booked + " из " + capacity + "!");
+    }
+}
@@ -0,0 +1,392 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Coach;
+import com.example.demo.model.Specialization;
+import com.example.demo.repository.VisitRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Учёт занятых мест у тренеров по часовым слотам.
+ *
+ * Вместимость слота задаётся специализацией тренера
+ * ({@link com.example.demo.model.Specialization#getSlotCapacity()});
+ * если она не указана, количество записей в слоте не ограничено.
+ * Тренер ищется по номеру в кэше {@link ReferenceDataService#coachesByNumber()},
+ * который сбрасывается при сохранении специализации.
+ *
+ * Количество записей в слоте хранится в памяти: при первом обращении
+ * оно читается из базы данных, затем изменяется при записи и удалении
+ * посещений. Проверка и увеличение выполняются под одной из
+ * {@code fitness.slots.lock-stripes} блокировок, выбранной по тренеру
+ * и слоту, поэтому записи к разным тренерам не ждут друг друга,
+ * а две записи в один слот не могут обе занять последнее место.
+ * Блокировка удерживается только на время проверки: начальное
+ * количество читается из базы данных до неё и сохраняется, только
+ * если за это время слот никто не загрузил, а посещения слотов
+ * той же блокировки не изменялись в обход счётчиков; иначе чтение
+ * повторяется. Место, занятое в транзакции, которая затем откатилась,
+ * освобождается.
+ *
+ * Отметки турникетов занимают место при приёме
+ * ({@link #hold(Integer, LocalDateTime)}) и держат его до пакетной
+ * записи посещения, после которой место подтверждается или
+ * освобождается. Отметки, восстановленные из журнала при запуске,
+ * уже подтверждены турникету и учитываются без проверки вместимости.
+ *
+ * Счётчики прошедших слотов без незавершённых записей удаляются
+ * по расписанию и при необходимости читаются из базы данных заново.
+ * Счётчики ведутся в памяти одного экземпляра приложения.
+ */
+@Component
+public class SlotReservations {
+
+    /**
+     * Сервис справочных данных для специализации тренера.
+     */
+    @Autowired
+    private ReferenceDataService referenceData;
+
+    /**
+     * Репозиторий посещений для начального количества записей в слоте.
+     */
+    @Autowired
+    private VisitRepository visitRepo;
+
+    /**
+     * Количество блокировок слотов.
+     */
+    @Value("${fitness.slots.lock-stripes:256}")
+    private int stripeCount;
+
+    /**
+     * Блокировки слотов; слот защищается блокировкой с номером
+     * по хэшу тренера и начала слота.
+     */
+    private ReentrantLock[] stripes;
+
+    /**
+     * Отметки изменений по блокировкам: увеличиваются, когда посещения
+     * слота без счётчика в памяти изменяются в обход проверки
+     * или счётчик слота удаляется.
+     */
+    private AtomicLongArray stamps;
+
+    /**
+     * Записи по тренеру и началу слота.
+     */
+    private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * Тренер и начало часового слота.
+     */
+    private record Key(int coachNumber, LocalDateTime start) {
+    }
+
+    /**
+     * Записи одного слота; изменяются только под блокировкой слота.
+     */
+    private static final class Slot {
+        private int booked;
+        private int pending;
+
+        private Slot(int booked) {
+            this.booked = booked;
+        }
+    }
+
+    /**
+     * Создаёт блокировки слотов.
+     */
+    @PostConstruct
+    public void init() {
+        stripes = new ReentrantLock[Math.max(stripeCount, 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        stamps = new AtomicLongArray(stripes.length);
+    }
+
+    /**
+     * Занимает место у тренера в слоте посещения.
+     *
+     * Если место занимается в транзакции, оно освобождается
+     * при её откате.
+     *
+     * @param coachNumber номер тренера
+     * @param visitDate   дата и время посещения
+     * @throws SlotFullException если в слоте не осталось мест
+     */
+    public void reserve(Integer coachNumber, LocalDateTime visitDate) {
+        if (coachNumber == null || visitDate == null) {
+            return;
+        }
+        Key key = new Key(coachNumber, RecentCheckIns.slotOf(visitDate));
+        ReentrantLock lock = stripes[stripe(key)];
+        Slot slot = book(key, capacityOf(coachNumber));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    settle(lock, slot, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            settle(lock, slot, true);
+        }
+    }
+
+    /**
+     * Занимает место у тренера в слоте до явного подтверждения
+     * {@link #confirm(Integer, LocalDateTime)} или отмены
+     * {@link #cancel(Integer, LocalDateTime)}.
+     *
+     * Используется отметками турникетов, посещения которых
+     * записываются позже пакетом. Если место занимается в транзакции,
+     * которая затем откатилась, оно освобождается.
+     *
+     * @param coachNumber номер тренера
+     * @param visitDate   дата и время посещения
+     * @throws SlotFullException если в слоте не осталось мест
+     */
+    public void hold(Integer coachNumber, LocalDateTime visitDate) {
+        if (coachNumber == null || visitDate == null) {
+            return;
+        }
+        Key key = new Key(coachNumber, RecentCheckIns.slotOf(visitDate));
+        ReentrantLock lock = stripes[stripe(key)];
+        Slot slot = book(key, capacityOf(coachNumber));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        settle(lock, slot, false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Подтверждает место, занятое {@link #hold(Integer, LocalDateTime)},
+     * после записи посещения. Внутри транзакции место подтверждается
+     * после её фиксации.
+     *
+     * @param coachNumber номер тренера
+     * @param visitDate   дата и время посещения
+     */
+    public void confirm(Integer coachNumber, LocalDateTime visitDate) {
+        release(coachNumber, visitDate, true);
+    }
+
+    /**
+     * Освобождает место, занятое {@link #hold(Integer, LocalDateTime)},
+     * если посещение не было записано. Внутри транзакции место
+     * освобождается после её фиксации.
+     *
+     * @param coachNumber номер тренера
+     * @param visitDate   дата и время посещения
+     */
+    public void cancel(Integer coachNumber, LocalDateTime visitDate) {
+        release(coachNumber, visitDate, false);
+    }
+
+    /**
+     * Учитывает посещение, записанное без проверки вместимости,
+     * например отметку турникета, восстановленную из журнала.
+     * Внутри транзакции счётчик изменяется после её фиксации.
+     *
+     * @param coachNumber номер тренера
+     * @param visitDate   дата и время посещения
+     */
+    public void added(Integer coachNumber, LocalDateTime visitDate) {
+        change(coachNumber, visitDate, 1);
+    }
+
+    /**
+     * Освобождает место после удаления посещения.
+     * Внутри транзакции место освобождается после её фиксации.
+     *
+     * @param coachNumber номер тренера
+     * @param visitDate   дата и время посещения
+     */
+    public void released(Integer coachNumber, LocalDateTime visitDate) {
+        change(coachNumber, visitDate, -1);
+    }
+
+    /**
+     * Удаляет счётчики всех слотов без незавершённых записей,
+     * чтобы они были прочитаны из базы данных заново.
+     *
+     * Используется после изменений посещений в обход сервиса записи:
+     * каскадного удаления и пакетного импорта.
+     */
+    public void evictAll() {
+        evictBefore(LocalDateTime.MAX);
+    }
+
+    /**
+     * Удаляет счётчики прошедших слотов без незавершённых записей.
+     */
+    @Scheduled(fixedDelayString = "${fitness.slots.evict-delay:PT10M}")
+    public void evictExpired() {
+        evictBefore(RecentCheckIns.slotOf(LocalDateTime.now()).minusHours(1));
+    }
+
+    /**
+     * Возвращает вместимость слота тренера.
+     *
+     * @param coachNumber номер тренера
+     * @return наибольшее количество записей в одном слоте
+     *         или null, если оно не ограничено
+     */
+    public Integer capacityOf(Integer coachNumber) {
+        Coach coach = referenceData.coachesByNumber().get(coachNumber);
+        Specialization specialization = coach != null ? coach.getSpecialization() : null;
+        return specialization != null ? specialization.getSlotCapacity() : null;
+    }
+
+    /**
+     * Занимает место в слоте, загружая счётчик из базы данных
+     * вне блокировки, и отмечает запись незавершённой.
+     */
+    private Slot book(Key key, Integer capacity) {
+        int stripe = stripe(key);
+        ReentrantLock lock = stripes[stripe];
+        while (true) {
+            Slot loaded = slots.get(key);
+            long stamp = stamps.get(stripe);
+            int count = loaded != null ? 0
+                    : (int) visitRepo.countCoachVisits(key.coachNumber(), key.start(), key.start().plusHours(1));
+            lock.lock();
+            try {
+                Slot slot = slots.get(key);
+                if (slot == null) {
+                    if (loaded != null || stamps.get(stripe) != stamp) {
+                        continue;
+                    }
+                    slot = new Slot(count);
+                    slots.put(key, slot);
+                }
+                if (capacity != null && slot.booked >= capacity) {
+                    throw new SlotFullException(slot.booked, capacity);
+                }
+                slot.booked++;
+                slot.pending++;
+                return slot;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Завершает запись: место остаётся занятым или освобождается.
+     */
+    private static void settle(ReentrantLock lock, Slot slot, boolean keep) {
+        lock.lock();
+        try {
+            slot.pending--;
+            if (!keep) {
+                slot.booked--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Integer coachNumber, LocalDateTime visitDate, boolean keep) {
+        if (coachNumber == null || visitDate == null) {
+            return;
+        }
+        Key key = new Key(coachNumber, RecentCheckIns.slotOf(visitDate));
+        Runnable apply = () -> {
+            // Слот с незавершённой записью не удаляется, поэтому он на месте.
+            Slot slot = slots.get(key);
+            if (slot != null) {
+                settle(stripes[stripe(key)], slot, keep);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private void change(Integer coachNumber, LocalDateTime visitDate, int delta) {
+        if (coachNumber == null || visitDate == null) {
+            return;
+        }
+        Key key = new Key(coachNumber, RecentCheckIns.slotOf(visitDate));
+        Runnable apply = () -> {
+            int stripe = stripe(key);
+            ReentrantLock lock = stripes[stripe];
+            lock.lock();
+            try {
+                Slot slot = slots.get(key);
+                if (slot != null) {
+                    slot.booked = Math.max(slot.booked + delta, 0);
+                } else {
+                    stamps.incrementAndGet(stripe);
+                }
+            } finally {
+                lock.unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    private void evictBefore(LocalDateTime start) {
+        for (Key key : slots.keySet()) {
+            if (!key.start().isBefore(start)) {
+                continue;
+            }
+            int stripe = stripe(key);
+            ReentrantLock lock = stripes[stripe];
+            lock.lock();
+            try {
+                Slot slot = slots.get(key);
+                if (slot != null && slot.pending == 0) {
+                    slots.remove(key);
+                    stamps.incrementAndGet(stripe);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private int stripe(Key key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.demo.service;
+
+import com.example.demo.config.ReplicaRoutingDataSource;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Счётчики версий таблиц для условных ответов страниц списков.
+ *
+ * Каждое изменение таблицы увеличивает её версию и запоминает
+ * время изменения. Страница списка получает ETag из версий таблиц,
+ * которые она показывает, и Last-Modified из времени их последнего
+ * изменения; если браузер прислал те же значения, отвечается
+ * 304 Not Modified без запросов к базе данных и отрисовки шаблона.
+ *
+ * Если настроена реплика, для каждой таблицы хранится ещё версия,
+ * изменения которой уже воспроизведены на реплике: её переносит
+ * {@link com.example.demo.config.ReplicaLagMonitor}, сравнивая позицию
+ * журнала реплики с позицией основной базы данных. Страница, читающая
+ * с реплики, получает ETag из этих версий, поэтому она не сохраняется
+ * в браузере под версией изменений, которых в ней ещё нет. Страница,
+ * читающая с основной базы данных, получает текущие версии.
+ *
+ * Версии хранятся в памяти одного экземпляра приложения;
+ * в ETag входит время запуска, чтобы после перезапуска
+ * страницы загружались заново.
+ */
+@Component
+public class TableVersions {
+
+    /**
+     * Таблица, отображаемая на страницах списков.
+     */
+    public enum Table {
+        CLIENTS, COACHES, TICKETS, PURCHASES
+    }
+
+    /**
+     * Версия и время изменения таблицы.
+     *
+     * @param number   номер версии
+     * @param modified время изменения в миллисекундах
+     */
+    public record Version(long number, long modified) {
+    }
+
+    private final String started = Long.toHexString(System.currentTimeMillis());
+
+    /**
+     * Текущие версии таблиц основной базы данных.
+     */
+    private final Map<Table, Version> versions = new EnumMap<>(Table.class);
+
+    /**
+     * Версии таблиц, изменения которых уже есть на реплике.
+     */
+    private final Map<Table, Version> replicated = new EnumMap<>(Table.class);
+
+    /**
+     * Источник данных, выбирающий реплику; нет, если реплика не настроена.
+     */
+    @Autowired(required = false)
+    private ReplicaRoutingDataSource routing;
+
+    /**
+     * Создаёт счётчики с временем изменения, равным времени запуска.
+     */
+    public TableVersions() {
+        long now = System.currentTimeMillis();
+        for (Table table : Table.values()) {
+            versions.put(table, new Version(0, now));
+            replicated.put(table, new Version(0, now));
+        }
+    }
+
+    /**
+     * Отмечает изменение таблиц.
+     *
+     * Внутри транзакции версии увеличиваются после её фиксации,
+     * чтобы страница, прочитанная до фиксации, не получила новую версию.
+     *
+     * @param tables изменённые таблицы
+     */
+    public void touch(Table... tables) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(tables);
+                }
+            });
+        } else {
+            bump(tables);
+        }
+    }
+
+    /**
+     * Проверяет, не изменились ли таблицы страницы с прошлого
+     * запроса браузера.
+     *
+     * Устанавливает заголовки ETag, Last-Modified и
+     * {@code Cache-Control: no-cache}, чтобы браузер проверял
+     * страницу при каждом обновлении.
+     *
+     * @param request запрос страницы
+     * @param tables  таблицы, отображаемые на странице
+     * @return true, если ответ 304 уже подготовлен и страницу строить не нужно
+     */
+    public boolean notModified(WebRequest request, Table... tables) {
+        Map<Table, Version> current = visible();
+        String etag = "W/\"" + version(current, tables) + "\"";
+        long lastModified = 0;
+        for (Table table : tables) {
+            lastModified = Math.max(lastModified, current.get(table).modified());
+        }
+        if (request instanceof ServletWebRequest servlet) {
+            HttpServletResponse response = servlet.getResponse();
+            if (response != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            }
+        }
+        return request.checkNotModified(etag, lastModified);
+    }
+
+    /**
+     * Возвращает общую версию таблиц, меняющуюся при изменении любой из них.
+     *
+     * @param tables таблицы
+     * @return строка версии
+     */
+    public String version(Table... tables) {
+        return version(visible(), tables);
+    }
+
+    /**
+     * Возвращает текущие версии таблиц основной базы данных.
+     *
+     * @return снимок версий
+     */
+    public synchronized Map<Table, Version> snapshot() {
+        return new EnumMap<>(versions);
+    }
+
+    /**
+     * Отмечает, что изменения до снимка версий воспроизведены на реплике.
+     *
+     * @param snapshot снимок {@link #snapshot()}, сделанный до того,
+     *                 как была прочитана позиция журнала основной базы данных
+     */
+    public synchronized void replicated(Map<Table, Version> snapshot) {
+        snapshot.forEach((table, version) -> {
+            if (version.number() > replicated.get(table).number()) {
+                replicated.put(table, version);
+            }
+        });
+    }
+
+    /**
+     * Возвращает версии данных, которые прочитает текущий запрос:
+     * уже воспроизведённые на реплике, если запрос читает с неё.
+     */
+    private synchronized Map<Table, Version> visible() {
+        return new EnumMap<>(routing != null && routing.readsFromReplica() ? replicated : versions);
+    }
+
+    private String version(Map<Table, Version> current, Table... tables) {
+        StringBuilder version = new StringBuilder(started);
+        for (Table table : tables) {
+            version.append('-').append(current.get(table).number());
+        }
+        return version.toString();
+    }
+
+    private synchronized void bump(Table... tables) {
+        long now = System.currentTimeMillis();
+        for (Table table : tables) {
+            versions.put(table, new Version(versions.get(table).number() + 1, now));
+        }
+    }
+}
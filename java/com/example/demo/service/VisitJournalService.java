@@ -0,0 +1,155 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.VisitPage;
+import com.example.demo.dto.VisitRow;
+import com.example.demo.repository.VisitRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Сервис постраничного просмотра журнала посещений.
+ *
+ * Использует keyset-пагинацию по паре (visitDate, visitNumber):
+ * вместо номера страницы передаётся курсор — дата и номер
+ * крайнего посещения соседней страницы.
+ */
+@Service
+public class VisitJournalService {
+
+    /**
+     * Количество посещений на странице журнала.
+     */
+    public static final int PAGE_SIZE = 50;
+
+    /**
+     * Нижняя граница периода, если начало не указано.
+     */
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    /**
+     * Верхняя граница периода, если конец не указан.
+     */
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    /**
+     * Окно последних посещений, в котором сначала ищется страница
+     * «раньше курсора». Если в окне набирается полная страница,
+     * более старые посещения (и месячные секции таблицы) не читаются.
+     */
+    private static final Period RECENT_WINDOW = Period.ofMonths(1);
+
+    /**
+     * Репозиторий для работы с посещениями.
+     */
+    @Autowired
+    private VisitRepository visitRepo;
+
+    /**
+     * Возвращает страницу журнала.
+     *
+     * Если передан курсор {@code before}, возвращаются посещения
+     * раньше него; если {@code after} — позже него. Без курсора
+     * возвращается страница с самыми новыми посещениями периода.
+     *
+     * @param from        начало периода (включительно) или null
+     * @param to          конец периода (включительно) или null
+     * @param coachNumber номер тренера для фильтрации или null
+     * @param before      дата посещения курсора «раньше» или null
+     * @param beforeId    номер посещения курсора «раньше» или null
+     * @param after       дата посещения курсора «позже» или null
+     * @param afterId     номер посещения курсора «позже» или null
+     * @return страница журнала
+     */
+    @Transactional(readOnly = true)
+    public VisitPage page(LocalDate from, LocalDate to, Integer coachNumber,
+                          LocalDateTime before, Integer beforeId,
+                          LocalDateTime after, Integer afterId) {
+        LocalDateTime start = startOf(from);
+        LocalDateTime end = endOf(to);
+        PageRequest limit = PageRequest.of(0, PAGE_SIZE + 1);
+
+        if (after != null && afterId != null) {
+            List<VisitRow> rows = coachNumber != null
+                    ? visitRepo.findCoachPageAfter(coachNumber, start, end, after, afterId, limit)
+                    : visitRepo.findPageAfter(start, end, after, afterId, limit);
+            boolean hasNewer = rows.size() > PAGE_SIZE;
+            List<VisitRow> visits = new ArrayList<>(rows.subList(0, Math.min(rows.size(), PAGE_SIZE)));
+            Collections.reverse(visits);
+            return new VisitPage(visits, true, hasNewer);
+        }
+
+        boolean fromCursor = before != null && beforeId != null;
+        LocalDateTime cursorDate = fromCursor ? before : end;
+        Integer cursorId = fromCursor ? beforeId : Integer.MAX_VALUE;
+
+        LocalDateTime recent = (cursorDate.isBefore(LocalDateTime.now()) ? cursorDate : LocalDateTime.now())
+                .minus(RECENT_WINDOW);
+        List<VisitRow> rows = List.of();
+        if (recent.isAfter(start)) {
+            rows = findPageBefore(recent, end, coachNumber, cursorDate, cursorId, limit);
+        }
+        if (rows.size() <= PAGE_SIZE) {
+            rows = findPageBefore(start, end, coachNumber, cursorDate, cursorId, limit);
+        }
+        boolean hasOlder = rows.size() > PAGE_SIZE;
+        List<VisitRow> visits = rows.subList(0, Math.min(rows.size(), PAGE_SIZE));
+        return new VisitPage(visits, hasOlder, fromCursor);
+    }
+
+    /**
+     * Возвращает страницу истории посещений клиента.
+     *
+     * Без курсора возвращаются самые новые посещения клиента,
+     * с курсором {@code before} — посещения раньше него.
+     *
+     * @param clientNumber номер клиента
+     * @param before       дата посещения курсора «раньше» или null
+     * @param beforeId     номер посещения курсора «раньше» или null
+     * @param size         размер страницы
+     * @return страница истории посещений
+     */
+    @Transactional(readOnly = true)
+    public VisitPage clientPage(Integer clientNumber, LocalDateTime before, Integer beforeId, int size) {
+        boolean fromCursor = before != null && beforeId != null;
+        List<VisitRow> rows = visitRepo.findClientPageBefore(clientNumber,
+                fromCursor ? before : MAX_DATE, fromCursor ? beforeId : Integer.MAX_VALUE,
+                PageRequest.of(0, size + 1));
+        return new VisitPage(rows.subList(0, Math.min(rows.size(), size)), rows.size() > size, fromCursor);
+    }
+
+    private List<VisitRow> findPageBefore(LocalDateTime start, LocalDateTime end, Integer coachNumber,
+                                          LocalDateTime cursorDate, Integer cursorId, PageRequest limit) {
+        return coachNumber != null
+                ? visitRepo.findCoachPageBefore(coachNumber, start, end, cursorDate, cursorId, limit)
+                : visitRepo.findPageBefore(start, end, cursorDate, cursorId, limit);
+    }
+
+    /**
+     * Возвращает начало периода журнала.
+     *
+     * @param from первый день периода или null
+     * @return начало первого дня (включительно) или нижняя граница по умолчанию
+     */
+    public static LocalDateTime startOf(LocalDate from) {
+        return from != null ? from.atStartOfDay() : MIN_DATE;
+    }
+
+    /**
+     * Возвращает конец периода журнала.
+     *
+     * @param to последний день периода или null
+     * @return начало следующего дня (не включительно) или верхняя граница по умолчанию
+     */
+    public static LocalDateTime endOf(LocalDate to) {
+        return to != null ? to.plusDays(1).atStartOfDay() : MAX_DATE;
+    }
+}
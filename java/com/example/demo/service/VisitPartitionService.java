@@ -0,0 +1,410 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Секционирование таблицы посещений по месяцам и перенос
+ * старых месяцев в архив.
+ *
+ * Режим включается свойством {@code fitness.visits.partitioning.enabled}
+ * и работает только с PostgreSQL. При первом запуске в этом режиме
+ * таблица {@code visits} в одной транзакции заменяется секционированной
+ * по {@code visit_date}: создаются месячные секции от самого раннего
+ * посещения, строки копируются, старая таблица удаляется. Посещения
+ * без даты попадают в секцию по умолчанию.
+ *
+ * PostgreSQL не позволяет объявить у секционированной таблицы
+ * уникальные ключи без ключа секционирования, поэтому первичный
+ * ключ и ключ «клиент — тренер — слот» создаются в каждой секции.
+ * По той же причине ключ слота не объявлен в сущности
+ * {@link com.example.demo.model.Visit}: у несекционированной таблицы
+ * он создаётся при запуске.
+ * Слот занятия всегда лежит в месяце посещения, так что ключ
+ * секции защищает от повторной записи так же, как общий.
+ *
+ * Ежедневное задание создаёт секции на
+ * {@code fitness.visits.partitioning.months-ahead} месяцев вперёд
+ * и переносит секции старше
+ * {@code fitness.visits.partitioning.retention-months} месяцев
+ * в архив: посещения месяца сжимаются частями в таблицу
+ * {@code visit_archive_chunks}, итог записывается
+ * в {@code visit_archives}, а секция удаляется. Сводная посещаемость
+ * архивных месяцев после ночного пересчёта не сохраняется.
+ */
+@Service
+public class VisitPartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitPartitionService.class);
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    /**
+     * Имя секции по умолчанию для посещений без даты.
+     */
+    private static final String DEFAULT_PARTITION = "visits_default";
+
+    /**
+     * Столбцы посещений в порядке записи в архив.
+     */
+    private static final String COLUMNS =
+            "visit_number, client_number, coach_number, visit_date, attendance, slot_start, checkin_seq";
+
+    /**
+     * Сколько строк секции драйвер читает за одно обращение к курсору.
+     */
+    private static final int FETCH_SIZE = 1000;
+
+    /**
+     * Шаблон JDBC для DDL и переноса строк.
+     */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /**
+     * Шаблон транзакций для замены таблицы и архивирования секций.
+     */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Сервис тепловой карты загрузки тренеров.
+     */
+    @Autowired
+    private OccupancyService occupancyService;
+
+    /**
+     * Перевод текстовых отметок о посещении перед архивированием секции.
+     */
+    @Autowired
+    private AttendanceMigrationService attendanceMigration;
+
+    /**
+     * Включено ли секционирование посещений.
+     */
+    @Value("${fitness.visits.partitioning.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * На сколько месяцев вперёд создаются секции.
+     */
+    @Value("${fitness.visits.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    /**
+     * Сколько месяцев, включая текущий, посещения хранятся в таблице.
+     */
+    @Value("${fitness.visits.partitioning.retention-months:24}")
+    private int retentionMonths;
+
+    /**
+     * Наибольшее количество посещений в одной части архива.
+     */
+    @Value("${fitness.visits.partitioning.archive-chunk-rows:50000}")
+    private int archiveChunkRows;
+
+    /**
+     * Переводит таблицу посещений на секции, если режим включён,
+     * до остальных задач запуска, читающих посещения. Без секций
+     * создаёт общий ключ «клиент — тренер — слот» и индекс по номеру
+     * отметки турникета, если их ещё нет. Если режим выключен, а таблица
+     * уже переведена на секции, ничего не делает: ключ слота задан
+     * в каждой секции, а общий уникальный индекс на секционированной
+     * таблице без колонки секционирования создать нельзя.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void init() {
+        if (!enabled) {
+            if (isPostgres() && isPartitioned()) {
+                return;
+            }
+            jdbc.execute("create unique index if not exists " + CheckInService.SLOT_KEY
+                    + " on visits (client_number, coach_number, slot_start)");
+            jdbc.execute("create index if not exists idx_visits_checkin_seq on visits (checkin_seq)");
+            return;
+        }
+        if (!isPartitioned()) {
+            migrate();
+        }
+        maintain();
+    }
+
+    /**
+     * Создаёт секции на следующие месяцы и архивирует устаревшие.
+     */
+    @Scheduled(cron = "${fitness.visits.partitioning.cron:0 0 4 * * *}")
+    public void maintain() {
+        if (!enabled || !isPartitioned()) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        transactionTemplate.executeWithoutResult(status -> createPartitions(current, current.plusMonths(monthsAhead)));
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths - 1L);
+        for (String partition : partitions()) {
+            YearMonth month = monthOf(partition);
+            if (month != null && month.isBefore(oldestKept)) {
+                archive(partition, month);
+            }
+        }
+    }
+
+    private boolean isPostgres() {
+        String product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbc.queryForObject(
+                "select exists (select 1 from pg_partitioned_table where partrelid = to_regclass('visits'))",
+                Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    /**
+     * Заменяет таблицу посещений секционированной в одной транзакции.
+     */
+    private void migrate() {
+        long started = System.currentTimeMillis();
+        Long rows = transactionTemplate.execute(status -> {
+            jdbc.execute("lock table visits in access exclusive mode");
+            jdbc.execute("alter table visits rename to visits_unpartitioned");
+            jdbc.execute("create table visits (like visits_unpartitioned including defaults including identity) "
+                    + "partition by range (visit_date)");
+
+            LocalDate first = jdbc.queryForObject("select cast(min(visit_date) as date) from visits_unpartitioned",
+                    LocalDate.class);
+            YearMonth current = YearMonth.now();
+            createPartitions(first != null && first.isBefore(current.atDay(1)) ? YearMonth.from(first) : current,
+                    current.plusMonths(monthsAhead));
+            jdbc.execute("create table if not exists " + DEFAULT_PARTITION + " partition of visits default");
+            createKeys(DEFAULT_PARTITION);
+
+            // Таблица создана по образцу старой, поэтому порядок столбцов совпадает;
+            // копируются и столбцы, ещё не переведённые в новый формат.
+            long copied = jdbc.update("insert into visits overriding system value "
+                    + "select * from visits_unpartitioned");
+            // Последовательность столбца serial принадлежит старой таблице
+            // и удалилась бы вместе с ней; столбцу identity создана своя.
+            for (String sequence : jdbc.queryForList("select pg_get_serial_sequence('visits_unpartitioned', "
+                    + "'visit_number') from pg_attribute where attrelid = to_regclass('visits_unpartitioned') "
+                    + "and attname = 'visit_number' and attidentity = ''", String.class)) {
+                jdbc.execute("alter sequence " + sequence + " owned by visits.visit_number");
+            }
+            jdbc.execute("drop table visits_unpartitioned");
+            jdbc.queryForObject("select setval(pg_get_serial_sequence('visits', 'visit_number'), "
+                    + "coalesce(max(visit_number), 0) + 1, false) from visits", Long.class);
+
+            jdbc.execute("create index idx_visits_date_number on visits (visit_date, visit_number)");
+            jdbc.execute("create index idx_visits_coach_date_number on visits (coach_number, visit_date, visit_number)");
+            jdbc.execute("create index idx_visits_client_date_number "
+                    + "on visits (client_number, visit_date, visit_number)");
+            jdbc.execute("create index idx_visits_checkin_seq on visits (checkin_seq)");
+            jdbc.execute("alter table visits add foreign key (client_number) references clients (client_number)");
+            jdbc.execute("alter table visits add foreign key (coach_number) references coaches (coach_number)");
+            return copied;
+        });
+        log.info("Таблица посещений секционирована по месяцам: {} строк за {} мс",
+                rows, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Создаёт недостающие месячные секции с ключами за указанные месяцы.
+     */
+    private void createPartitions(YearMonth from, YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            String partition = "visits_" + month.format(SUFFIX);
+            jdbc.execute("create table if not exists " + partition + " partition of visits "
+                    + "for values from ('" + month.atDay(1) + "') to ('" + month.plusMonths(1).atDay(1) + "')");
+            createKeys(partition);
+        }
+    }
+
+    /**
+     * Создаёт в секции первичный ключ и ключ записи на занятие.
+     */
+    private void createKeys(String partition) {
+        jdbc.execute("create unique index if not exists " + partition + "_pkey on " + partition + " (visit_number)");
+        jdbc.execute("create unique index if not exists " + partition + CheckInService.PARTITION_SLOT_KEY
+                + " on " + partition + " (client_number, coach_number, slot_start)");
+    }
+
+    /**
+     * Возвращает месячные секции таблицы посещений.
+     */
+    private List<String> partitions() {
+        return jdbc.queryForList("select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid "
+                + "where i.inhparent = to_regclass('visits') order by c.relname", String.class);
+    }
+
+    private static YearMonth monthOf(String partition) {
+        if (!partition.matches("visits_\\d{4}_\\d{2}")) {
+            return null;
+        }
+        return YearMonth.parse(partition.substring("visits_".length()), SUFFIX);
+    }
+
+    /**
+     * Переносит посещения секции в архив и удаляет секцию
+     * в одной транзакции.
+     *
+     * Строки читаются курсором и записываются в архив частями
+     * по {@code archive-chunk-rows} строк, поэтому в памяти
+     * одновременно находится не больше одной части.
+     */
+    private void archive(String partition, YearMonth month) {
+        long started = System.currentTimeMillis();
+        if (attendanceMigration.convert(partition) < 0) {
+            return;
+        }
+        JdbcTemplate cursor = new JdbcTemplate(jdbc.getDataSource());
+        cursor.setFetchSize(FETCH_SIZE);
+        long rows = transactionTemplate.execute(status -> {
+            ArchiveWriter writer = new ArchiveWriter(Date.valueOf(month.atDay(1)));
+            cursor.query("select " + COLUMNS + " from " + partition + " order by visit_number", writer);
+            writer.flush();
+            jdbc.update("insert into visit_archives (month, rows_count, chunks_count, archived_at) values (?, ?, ?, ?)",
+                    writer.month, writer.rows, writer.chunks, Timestamp.valueOf(LocalDateTime.now()));
+            jdbc.execute("alter table visits detach partition " + partition);
+            jdbc.execute("drop table " + partition);
+            return writer.rows;
+        });
+        occupancyService.evictAll();
+        log.info("Посещения за {} перенесены в архив: {} строк за {} мс",
+                month, rows, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Записывает посещения месяца в таблицу {@code visit_archive_chunks}:
+     * каждая часть — отдельный CSV с заголовком, сжатый gzip.
+     */
+    private final class ArchiveWriter implements RowCallbackHandler {
+
+        /**
+         * Первый день архивного месяца.
+         */
+        private final Date month;
+
+        /**
+         * Сжатые данные текущей части.
+         */
+        private ByteArrayOutputStream bytes;
+
+        /**
+         * Запись в текущую часть; равна null, пока часть не начата.
+         */
+        private Writer writer;
+
+        /**
+         * Количество строк в текущей части.
+         */
+        private int chunkRows;
+
+        /**
+         * Количество записанных частей.
+         */
+        private int chunks;
+
+        /**
+         * Количество записанных строк.
+         */
+        private long rows;
+
+        private ArchiveWriter(Date month) {
+            this.month = month;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            Object[] values = new Object[7];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            try {
+                if (writer == null) {
+                    bytes = new ByteArrayOutputStream();
+                    writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8);
+                    writer.write(COLUMNS.replace(" ", "") + "\r\n");
+                }
+                writeRow(writer, values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+            if (++chunkRows >= archiveChunkRows) {
+                flush();
+            }
+        }
+
+        /**
+         * Сохраняет начатую часть.
+         */
+        private void flush() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            jdbc.update("insert into visit_archive_chunks (month, chunk, rows_count, data) values (?, ?, ?, ?)",
+                    month, chunks, chunkRows, bytes.toByteArray());
+            chunks++;
+            chunkRows = 0;
+            writer = null;
+            bytes = null;
+        }
+    }
+
+    /**
+     * Записывает одну строку CSV, экранируя значения при необходимости.
+     */
+    private static void writeRow(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i] == null ? "" : values[i].toString();
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
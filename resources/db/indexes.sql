@@ -0,0 +1,51 @@
+-- План индексов базы данных фитнес клуба.
+--
+-- Те же индексы объявлены в @Table(indexes = ...) сущностей и создаются
+-- Hibernate при запуске (spring.jpa.hibernate.ddl-auto=update), но
+-- обычным CREATE INDEX, который блокирует запись в таблицу на всё время
+-- построения. На заполненной базе выполните этот файл до обновления
+-- приложения: индексы строятся без блокировки записи, и при запуске
+-- Hibernate находит их уже созданными.
+--
+--     psql -d fitness -f indexes.sql
+--
+-- CREATE INDEX CONCURRENTLY нельзя выполнять в транзакции, поэтому
+-- файл выполняется без --single-transaction. Если построение прервано,
+-- индекс остаётся недействительным: удалите его и выполните файл снова.
+--
+-- Для секционированной таблицы посещений (fitness.visits.partitioning.enabled)
+-- индексы создаются при переходе на секции, см. VisitPartitionService.
+
+-- Посещения: журнал по дате, журнал и загрузка тренера, история клиента.
+create index concurrently if not exists idx_visits_date_number
+    on visits (visit_date, visit_number);
+create index concurrently if not exists idx_visits_coach_date_number
+    on visits (coach_number, visit_date, visit_number);
+create index concurrently if not exists idx_visits_client_date_number
+    on visits (client_number, visit_date, visit_number);
+
+-- Посещения: отметки турникетов по номеру в журнале (индекс создаётся
+-- и при запуске, см. VisitPartitionService).
+create index concurrently if not exists idx_visits_checkin_seq
+    on visits (checkin_seq);
+
+-- Посещения: неявки клиента и тренера (частичные индексы, см. AttendanceMigrationService).
+create index concurrently if not exists idx_visits_client_no_show
+    on visits (client_number, visit_date) where attendance = 0;
+create index concurrently if not exists idx_visits_coach_no_show
+    on visits (coach_number, visit_date) where attendance = 0;
+
+-- Индекс по клиенту заменён составным idx_visits_client_date_number.
+drop index concurrently if exists idx_visits_client;
+
+-- Покупки: действующий абонемент и история клиента, удаление абонемента.
+create index concurrently if not exists idx_ticket_purchases_client_date
+    on ticket_purchases (client_number, purchase_date);
+create index concurrently if not exists idx_ticket_purchases_ticket
+    on ticket_purchases (ticket_number);
+
+-- Справочники: удаление и отбор по специализации.
+create index concurrently if not exists idx_coaches_specialization
+    on coaches (specialization_number);
+create index concurrently if not exists idx_season_tickets_specialization
+    on season_tickets (specialization_number);
@@ -0,0 +1,77 @@
+/*
+ * Поле выбора клиента с поиском.
+ *
+ * Подключается к текстовому полю с атрибутом data-client-search,
+ * в котором указан id скрытого поля для номера клиента.
+ * При вводе от трёх символов запрашивает /clients/search и показывает подсказки;
+ * после выбора записывает номер клиента в скрытое поле и отправляет
+ * событие "client-selected" с найденным клиентом в detail.
+ */
+document.querySelectorAll('[data-client-search]').forEach(function (input) {
+    const hidden = document.getElementById(input.dataset.clientSearch);
+    const list = document.createElement('div');
+    list.className = 'list-group position-absolute w-100 shadow-sm';
+    list.style.zIndex = 1000;
+    input.parentElement.style.position = 'relative';
+    input.after(list);
+
+    let timer = null;
+    let request = 0;
+
+    function requireSelection() {
+        input.setCustomValidity(hidden.value ? '' : 'Выберите клиента из списка');
+    }
+
+    function choose(hit) {
+        hidden.value = hit.clientNumber;
+        input.value = hit.fullName;
+        list.innerHTML = '';
+        requireSelection();
+        input.dispatchEvent(new CustomEvent('client-selected', {detail: hit}));
+    }
+
+    function render(hits) {
+        list.innerHTML = '';
+        hits.forEach(function (hit) {
+            const item = document.createElement('button');
+            item.type = 'button';
+            item.className = 'list-group-item list-group-item-action';
+            item.textContent = hit.fullName;
+            const details = [hit.phone, hit.email].filter(Boolean).join(' · ');
+            if (details) {
+                const small = document.createElement('small');
+                small.className = 'text-muted ms-2';
+                small.textContent = details;
+                item.appendChild(small);
+            }
+            item.addEventListener('mousedown', function (e) {
+                e.preventDefault();
+                choose(hit);
+            });
+            list.appendChild(item);
+        });
+    }
+
+    input.addEventListener('input', function () {
+        hidden.value = '';
+        requireSelection();
+        clearTimeout(timer);
+        const q = input.value.trim();
+        if (q.length < 3) {
+            list.innerHTML = '';
+            return;
+        }
+        timer = setTimeout(function () {
+            const current = ++request;
+            fetch('/clients/search?limit=10&q=' + encodeURIComponent(q))
+                .then(r => r.json())
+                .then(hits => { if (current === request) render(hits); });
+        }, 150);
+    });
+
+    input.addEventListener('blur', function () {
+        list.innerHTML = '';
+    });
+
+    requireSelection();
+});